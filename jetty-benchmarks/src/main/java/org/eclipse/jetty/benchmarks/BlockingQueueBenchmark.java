@@ -0,0 +1,90 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.benchmarks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.BlockingRingQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark the job queues of the QueuedThreadPool with several threads offering
+ * and several threads polling, as select sets dispatch to pool threads.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class BlockingQueueBenchmark
+{
+    private static final Runnable JOB=new Runnable()
+    {
+        public void run()
+        {
+        }
+    };
+
+    @Param({"BlockingRingQueue","BlockingArrayQueue","ArrayBlockingQueue"})
+    public String _type;
+
+    private BlockingQueue<Runnable> _queue;
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp()
+    {
+        if ("BlockingRingQueue".equals(_type))
+            _queue=new BlockingRingQueue<Runnable>(1024);
+        else if ("BlockingArrayQueue".equals(_type))
+            _queue=new BlockingArrayQueue<Runnable>(1024,0,1024);
+        else
+            _queue=new ArrayBlockingQueue<Runnable>(1024);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(4)
+    public boolean offer()
+    {
+        return _queue.offer(JOB);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(4)
+    public Runnable poll()
+    {
+        return _queue.poll();
+    }
+}
@@ -0,0 +1,99 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark {@link HttpFields} adding, getting and removing the fields of a typical response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class HttpFieldsBenchmark
+{
+    private static final String[][] FIELDS=
+    {
+        {HttpHeaders.CONTENT_TYPE,"text/html;charset=utf-8"},
+        {HttpHeaders.CONTENT_LENGTH,"12345"},
+        {HttpHeaders.CACHE_CONTROL,"no-cache"},
+        {HttpHeaders.EXPIRES,"Thu, 01 Jan 1970 00:00:00 GMT"},
+        {HttpHeaders.SET_COOKIE,"JSESSIONID=1c2ri4k1jvk9a1ddbv3l6kmqlp;Path=/"},
+        {HttpHeaders.SET_COOKIE,"theme=dark;Path=/"},
+        {HttpHeaders.LAST_MODIFIED,"Mon, 17 Oct 2011 09:30:00 GMT"},
+        {HttpHeaders.ETAG,"\"2f8a-4afd3c2e\""},
+        {HttpHeaders.VARY,"Accept-Encoding"},
+        {"X-Powered-By","Jetty"},
+    };
+
+    private final HttpFields _fields=new HttpFields();
+    private final HttpFields _populated=new HttpFields();
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp()
+    {
+        for (String[] field : FIELDS)
+            _populated.add(field[0],field[1]);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int add()
+    {
+        _fields.clear();
+        for (String[] field : FIELDS)
+            _fields.add(field[0],field[1]);
+        return _fields.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int get()
+    {
+        int length=0;
+        for (String[] field : FIELDS)
+            length+=_populated.getStringField(field[0]).length();
+        return length+(_populated.getStringField(HttpHeaders.ACCEPT)==null?0:1);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int remove()
+    {
+        _fields.clear();
+        for (String[] field : FIELDS)
+            _fields.add(field[0],field[1]);
+        _fields.remove(HttpHeaders.CONTENT_LENGTH);
+        _fields.remove(HttpHeaders.SET_COOKIE);
+        _fields.remove("X-Powered-By");
+        return _fields.size();
+    }
+}
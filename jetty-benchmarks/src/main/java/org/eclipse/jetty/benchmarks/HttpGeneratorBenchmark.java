@@ -0,0 +1,145 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jetty.http.AbstractGenerator;
+import org.eclipse.jetty.http.Generator;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpGenerator;
+import org.eclipse.jetty.http.HttpHeaderValues;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.SimpleBuffers;
+import org.eclipse.jetty.io.View;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark {@link HttpGenerator} generating a response.
+ * <p>
+ * The content is either written in a single last write with a content length,
+ * or in several writes that are flushed as chunks. If gzip is enabled,
+ * the content is compressed with a {@link GZIPOutputStream} for each response,
+ * as done by the gzip filter, before it is generated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class HttpGeneratorBenchmark
+{
+    private static final int WRITES=4;
+
+    @Param({"1024","32768"})
+    public int size;
+
+    @Param({"false","true"})
+    public boolean chunked;
+
+    @Param({"false","true"})
+    public boolean gzip;
+
+    private byte[] _content;
+    private ByteArrayEndPoint _endp;
+    private HttpGenerator _generator;
+    private final HttpFields _fields=new HttpFields();
+    private final ByteArrayOutputStream2 _gzipped=new ByteArrayOutputStream2();
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp()
+    {
+        String text="<p>The quick brown fox jumped over the lazy dog. Now is the time for all good men to come to the aid of the party.</p>\n";
+        _content=new byte[size];
+        for (int i=0;i<size;i++)
+            _content[i]=(byte)text.charAt(i%text.length());
+
+        _endp=new ByteArrayEndPoint(new byte[0],2*size+4096);
+        _endp.setGrowOutput(true);
+        _generator=new HttpGenerator(new SimpleBuffers(new ByteArrayBuffer(4096),new ByteArrayBuffer(16384)),_endp);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int generate() throws IOException
+    {
+        _endp.reset();
+        _generator.reset();
+        _fields.clear();
+
+        Buffer content;
+        if (gzip)
+        {
+            _gzipped.reset();
+            GZIPOutputStream out=new GZIPOutputStream(_gzipped);
+            out.write(_content);
+            out.close();
+            content=new ByteArrayBuffer(_gzipped.getBuf(),0,_gzipped.getCount());
+            _fields.put(HttpHeaders.CONTENT_ENCODING_BUFFER,HttpHeaderValues.GZIP_BUFFER);
+        }
+        else
+            content=new ByteArrayBuffer(_content);
+
+        _generator.setVersion(11);
+        _generator.setResponse(200,null);
+        _fields.put(HttpHeaders.CONTENT_TYPE,"text/html;charset=utf-8");
+
+        if (chunked)
+        {
+            // write the content in several parts, flushing each as a chunk
+            View view=new View(content);
+            int length=content.length();
+            int part=1+length/WRITES;
+            for (int offset=0;offset<length;offset+=part)
+            {
+                boolean last=offset+part>=length;
+                view.setPutIndex(last?length:offset+part);
+                view.setGetIndex(offset);
+                _generator.addContent(view,last);
+                if (_generator.isState(AbstractGenerator.STATE_HEADER))
+                    _generator.completeHeader(_fields,last);
+                if (!last)
+                    _generator.flushBuffer();
+            }
+        }
+        else
+        {
+            _generator.addContent(content,Generator.LAST);
+            _generator.completeHeader(_fields,Generator.LAST);
+        }
+
+        _generator.complete();
+        while (!_generator.isComplete())
+            _generator.flushBuffer();
+        return _endp.getOut().length();
+    }
+}
@@ -0,0 +1,65 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark {@link HttpURI} parsing a request URI and decoding its path, as done for each request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class HttpURIBenchmark
+{
+    @Param({"/shop/cart.html?item=1234&qty=1","/docs/R%C3%A9sum%C3%A9%20(2011).pdf","http://www.example.com:8080/api/v1/orders;jsessionid=1c2ri4k1?expand=items"})
+    public String uri;
+
+    private byte[] _raw;
+    private final HttpURI _uri=new HttpURI();
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp() throws UnsupportedEncodingException
+    {
+        _raw=uri.getBytes(StringUtil.__UTF8);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int parse()
+    {
+        _uri.parse(_raw,0,_raw.length);
+        String query=_uri.getQuery();
+        return _uri.getDecodedPath().length()+(query==null?0:query.length());
+    }
+}
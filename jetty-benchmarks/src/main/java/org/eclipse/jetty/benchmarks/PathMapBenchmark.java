@@ -0,0 +1,74 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.PathMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark {@link PathMap} matching paths against the servlet mappings of a typical webapp.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class PathMapBenchmark
+{
+    private static final String[] SPECS=
+    {
+        "/","/favicon.ico","/admin","/admin/*","/api/v1/*","/api/v2/*","/static/*",
+        "/servlet/*","/rest/*","/j_security_check","*.jsp","*.jspx","*.do"
+    };
+
+    @Param({"/favicon.ico","/api/v1/orders/1234","/shop/cart/view.jsp","/shop/index.html"})
+    public String path;
+
+    private final PathMap _map=new PathMap();
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp()
+    {
+        for (String spec : SPECS)
+            _map.put(spec,spec);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public Object match()
+    {
+        return _map.match(path);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public Object getMatch()
+    {
+        return _map.getMatch(path);
+    }
+}
@@ -0,0 +1,74 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.UrlEncoded;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* ------------------------------------------------------------ */
+/** Benchmark {@link UrlEncoded} decoding a query string and a form body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class UrlEncodedBenchmark
+{
+    private static final String QUERY="q=jetty+http%2Fserver&lang=en&page=2&sort=relevance&filter=type%3Ajar&filter=year%3A2011";
+    private static final String FORM="name=J%C3%BCrgen+M%C3%BCller&email=jm%40example.com&address=12+Main+St%2C+Springfield&comment=%E2%82%AC5+off+please%21&agree=on";
+
+    private final MultiMap<String> _map=new MultiMap<String>();
+    private byte[] _form;
+
+    /* ------------------------------------------------------------ */
+    @Setup
+    public void setUp() throws UnsupportedEncodingException
+    {
+        _form=FORM.getBytes(StringUtil.__ISO_8859_1);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int decodeQuery()
+    {
+        _map.clear();
+        UrlEncoded.decodeTo(QUERY,_map,StringUtil.__UTF8);
+        return _map.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Benchmark
+    public int decodeForm()
+    {
+        _map.clear();
+        UrlEncoded.decodeUtf8To(_form,0,_form.length,_map);
+        return _map.size();
+    }
+}
@@ -367,6 +367,11 @@ class SelectConnector extends AbstractLifeCycle implements HttpClient.Connector,
             return _endp.flush(header,buffer,trailer);
         }
 
+        public int flush(Buffer... buffers) throws IOException
+        {
+            return _endp.flush(buffers);
+        }
+
         public String getLocalAddr()
         {
             return _endp.getLocalAddr();
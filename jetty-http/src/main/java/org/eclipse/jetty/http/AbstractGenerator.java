@@ -134,6 +134,17 @@ public abstract class AbstractGenerator implements Generator
         }
     }
 
+    /* ------------------------------------------------------------------------------- */
+    /**
+     * @return the total capacity of the buffers currently held by the generator.
+     */
+    public int getBuffersCapacity()
+    {
+        Buffer header=_header;
+        Buffer buffer=_buffer;
+        return (header==null?0:header.capacity())+(buffer==null?0:buffer.capacity());
+    }
+
     /* ------------------------------------------------------------------------------- */
     public void resetBuffer()
     {
@@ -15,6 +15,7 @@ package org.eclipse.jetty.http;
 
 import org.eclipse.jetty.io.Buffers;
 import org.eclipse.jetty.io.BuffersFactory;
+import org.eclipse.jetty.io.TrackingBuffers;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 
 /* ------------------------------------------------------------ */
@@ -26,9 +27,12 @@ public class HttpBuffers extends AbstractLifeCycle
 {
     private int _requestBufferSize=16*1024;
     private int _requestHeaderSize=6*1024;
+    private int _requestHeaderInitialSize=0;
     private int _responseBufferSize=32*1024;
     private int _responseHeaderSize=6*1024;
     private int _maxBuffers=1024;
+    private boolean _trackBuffers=false;
+    private double _trackBuffersSampleRatio=0.01;
     
     private Buffers.Type _requestBufferType=Buffers.Type.BYTE_ARRAY;
     private Buffers.Type _requestHeaderType=Buffers.Type.BYTE_ARRAY;
@@ -76,6 +80,26 @@ public class HttpBuffers extends AbstractLifeCycle
         _requestHeaderSize = requestHeaderSize;
     }
 
+    /**
+     * @return the initial size of request header buffers, or 0 if they start at the requestHeaderSize
+     */
+    public int getRequestHeaderInitialSize()
+    {
+        return _requestHeaderInitialSize;
+    }
+    
+    /**
+     * @param requestHeaderInitialSize the initial size of request header buffers, or 0 for them
+     * to start at the requestHeaderSize. A smaller initial size saves memory for connections with
+     * small requests, as a header buffer that fills is replaced by larger buffers up to the
+     * requestHeaderSize. Only takes effect when started.
+     * @see HttpParser#setMaxHeaderSize(int)
+     */
+    public void setRequestHeaderInitialSize(int requestHeaderInitialSize)
+    {
+        _requestHeaderInitialSize = requestHeaderInitialSize;
+    }
+    
     /**
      * @return the responseBufferSize
      */
@@ -192,8 +216,14 @@ public class HttpBuffers extends AbstractLifeCycle
     protected void doStart()
         throws Exception
     {
-        _requestBuffers=BuffersFactory.newBuffers(_requestHeaderType,_requestHeaderSize,_requestBufferType,_requestBufferSize,_requestBufferType,getMaxBuffers());
+        int requestHeaderSize=(_requestHeaderInitialSize>0 && _requestHeaderInitialSize<_requestHeaderSize)?_requestHeaderInitialSize:_requestHeaderSize;
+        _requestBuffers=BuffersFactory.newBuffers(_requestHeaderType,requestHeaderSize,_requestBufferType,_requestBufferSize,_requestBufferType,getMaxBuffers());
         _responseBuffers=BuffersFactory.newBuffers(_responseHeaderType,_responseHeaderSize,_responseBufferType,_responseBufferSize,_responseBufferType,getMaxBuffers());
+        if (_trackBuffers)
+        {
+            _requestBuffers=new TrackingBuffers(_requestBuffers,_trackBuffersSampleRatio);
+            _responseBuffers=new TrackingBuffers(_responseBuffers,_trackBuffersSampleRatio);
+        }
         super.doStart();
     }
     
@@ -226,4 +256,68 @@ public class HttpBuffers extends AbstractLifeCycle
         return _maxBuffers;
     }
     
+    /**
+     * @return True if the buffers obtained by connections are tracked
+     * @see TrackingBuffers
+     */
+    public boolean isTrackBuffers()
+    {
+        return _trackBuffers;
+    }
+
+    /**
+     * @param trackBuffers True if the buffers obtained by connections are tracked, so that buffers
+     * not returned when a connection closes are reported. Tracking has a cost for every buffer
+     * and is intended for diagnosing leaks. Only takes effect when started.
+     * @see TrackingBuffers
+     */
+    public void setTrackBuffers(boolean trackBuffers)
+    {
+        _trackBuffers = trackBuffers;
+    }
+
+    /**
+     * @return the fraction of tracked buffers for which the acquiring stack is recorded
+     */
+    public double getTrackBuffersSampleRatio()
+    {
+        return _trackBuffersSampleRatio;
+    }
+
+    /**
+     * @param sampleRatio the fraction of tracked buffers for which the acquiring stack is recorded
+     * and reported if the buffer is leaked.
+     */
+    public void setTrackBuffersSampleRatio(double sampleRatio)
+    {
+        _trackBuffersSampleRatio = sampleRatio;
+        if (_requestBuffers instanceof TrackingBuffers)
+            ((TrackingBuffers)_requestBuffers).setSampleRatio(sampleRatio);
+        if (_responseBuffers instanceof TrackingBuffers)
+            ((TrackingBuffers)_responseBuffers).setSampleRatio(sampleRatio);
+    }
+
+    /**
+     * @return the number of request and response buffers obtained and not returned, or -1 if buffers are not tracked
+     */
+    public long getBuffersOutstanding()
+    {
+        Buffers request=_requestBuffers;
+        Buffers response=_responseBuffers;
+        if (request instanceof TrackingBuffers && response instanceof TrackingBuffers)
+            return ((TrackingBuffers)request).getOutstanding()+((TrackingBuffers)response).getOutstanding();
+        return -1;
+    }
+
+    /**
+     * @return the number of request and response buffers not returned when their connection closed, or -1 if buffers are not tracked
+     */
+    public long getBuffersLeaked()
+    {
+        Buffers request=_requestBuffers;
+        Buffers response=_responseBuffers;
+        if (request instanceof TrackingBuffers && response instanceof TrackingBuffers)
+            return ((TrackingBuffers)request).getLeaked()+((TrackingBuffers)response).getLeaked();
+        return -1;
+    }
 }
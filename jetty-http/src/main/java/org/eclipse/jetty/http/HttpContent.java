@@ -29,6 +29,7 @@ public interface HttpContent
 {
     Buffer getContentType();
     Buffer getLastModified();
+    HttpFields.Block getHeaderBlock();
     Buffer getIndirectBuffer();
     Buffer getDirectBuffer();
     Resource getResource();
@@ -71,6 +72,12 @@ public interface HttpContent
             return null;
         }
 
+        /* ------------------------------------------------------------ */
+        public HttpFields.Block getHeaderBlock()
+        {
+            return null;
+        }
+
         /* ------------------------------------------------------------ */
         public Buffer getDirectBuffer()
         {
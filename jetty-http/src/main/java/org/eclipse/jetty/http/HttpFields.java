@@ -16,7 +16,7 @@ package org.eclipse.jetty.http;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
@@ -49,6 +49,11 @@ import org.eclipse.jetty.util.log.Logger;
 /**
  * HTTP Fields. A collection of HTTP header and or Trailer fields. 
  * 
+ * <p>The fields are kept in order in an array, and the first field of each name is
+ * indexed by a small open addressing hash table, with the other fields of the same
+ * name chained from it. The {@link Field}s are reused after {@link #clear()}, so that
+ * recycled fields do not allocate for each request or response.
+ *
  * <p>This class is not synchronized as it is expected that modifications will only be performed by a
  * single thread.
  * 
@@ -291,8 +296,9 @@ public class HttpFields
     public final static String __01Jan1970_COOKIE = formatCookieDate(0).trim();
 
     /* -------------------------------------------------------------- */
-    private final ArrayList<Field> _fields = new ArrayList<Field>(20);
-    private final HashMap<Buffer,Field> _names = new HashMap<Buffer,Field>(32);
+    private Field[] _fields = new Field[16];
+    private Field[] _index = new Field[32];
+    private int _size;
     private final int _maxCookieVersion;
     
     /* ------------------------------------------------------------ */
@@ -353,17 +359,29 @@ public class HttpFields
      */
     public Enumeration<String> getFieldNames()
     {
-        final Enumeration<?> buffers = Collections.enumeration(_names.keySet());
         return new Enumeration<String>()
         {
+            int i = next(0);
+
+            int next(int from)
+            {
+                // skip all but the first field of each name
+                while (from<_size && getFirst(_fields[from]._name)!=_fields[from])
+                    from++;
+                return from;
+            }
+
             public String nextElement()
             {
-                return buffers.nextElement().toString();
+                if (i>=_size) throw new NoSuchElementException();
+                String name=_fields[i]._name.toString();
+                i=next(i+1);
+                return name;
             }
             
             public boolean hasMoreElements()
             {
-                return buffers.hasMoreElements();
+                return i<_size;
             }
         }; 
     }
@@ -371,7 +389,7 @@ public class HttpFields
     /* ------------------------------------------------------------ */
     public int size()
     {
-        return _fields.size();
+        return _size;
     }
     
     /* ------------------------------------------------------------ */
@@ -382,31 +400,172 @@ public class HttpFields
      */
     public Field getField(int i)
     {
-        return _fields.get(i);
+        if (i>=_size)
+            throw new IndexOutOfBoundsException("Index: "+i+", Size: "+_size);
+        return _fields[i];
     }
 
     /* ------------------------------------------------------------ */
     private Field getField(String name)
     {
-        return _names.get(HttpHeaders.CACHE.lookup(name));
+        return getField(HttpHeaders.CACHE.lookup(name));
     }
 
     /* ------------------------------------------------------------ */
     private Field getField(Buffer name)
     {
-        return _names.get(HttpHeaders.CACHE.lookup(name));
+        if (!(name instanceof CachedBuffer))
+            name = HttpHeaders.CACHE.lookup(name);
+        return getFirst(name);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param name the name, already looked up in the {@link HttpHeaders#CACHE}
+     * @return the first field of the name, or null
+     */
+    private Field getFirst(Buffer name)
+    {
+        int mask=_index.length-1;
+        for (int i=hash(name)&mask;;i=(i+1)&mask)
+        {
+            Field field=_index[i];
+            if (field==null || isName(field._name,name))
+                return field;
+        }
     }
 
     /* ------------------------------------------------------------ */
     public boolean containsKey(Buffer name)
     {
-        return _names.containsKey(HttpHeaders.CACHE.lookup(name));
+        return getField(name)!=null;
     }
 
     /* ------------------------------------------------------------ */
     public boolean containsKey(String name)
     {
-        return _names.containsKey(HttpHeaders.CACHE.lookup(name));
+        return getField(name)!=null;
+    }
+
+    /* ------------------------------------------------------------ */
+    private static int hash(Buffer name)
+    {
+        int h=name.hashCode();
+        return h^(h>>>16);
+    }
+
+    /* ------------------------------------------------------------ */
+    private static boolean isName(Buffer name, Buffer other)
+    {
+        return name==other || name.equalsIgnoreCase(other);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Append a field, reusing a cleared field if there is one
+     * @param first the first field of the name, or null if this is the first
+     */
+    private Field newField(Buffer name, Buffer value, Field first)
+    {
+        if (_size==_fields.length)
+        {
+            Field[] fields=new Field[_size*2];
+            System.arraycopy(_fields,0,fields,0,_size);
+            _fields=fields;
+            _index=new Field[_fields.length*2];
+            reindex();
+        }
+
+        Field field=_fields[_size];
+        if (field==null)
+            _fields[_size]=field=new Field(name,value);
+        else
+        {
+            field._name=name;
+            field._value=value;
+            field._block=null;
+        }
+        _size++;
+
+        if (first==null)
+        {
+            int mask=_index.length-1;
+            int i=hash(name)&mask;
+            while (_index[i]!=null)
+                i=(i+1)&mask;
+            _index[i]=field;
+        }
+        else
+        {
+            while (first._next!=null)
+                first=first._next;
+            first._next=field;
+        }
+        return field;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Remove fields from the array and index.
+     * @param name the name of the fields to remove
+     * @param only the only field to remove, or null to remove all the fields of the name
+     */
+    private void removeFields(Buffer name, Field only)
+    {
+        Field first=getFirst(name);
+        if (first==null)
+            return;
+
+        // unchain the field
+        if (only!=null && only!=first)
+        {
+            Field f=first;
+            while (f._next!=only)
+                f=f._next;
+            f._next=only._next;
+        }
+
+        // Move the removed fields after the others, keeping the order of the others
+        int j=0;
+        for (int i=0;i<_size;i++)
+        {
+            Field field=_fields[i];
+            if (only==null?isName(field._name,name):field==only)
+            {
+                field._name=null;
+                field._value=null;
+                field._block=null;
+            }
+            else
+            {
+                _fields[i]=_fields[j];
+                _fields[j++]=field;
+            }
+        }
+        for (int i=j;i<_size;i++)
+            _fields[i]._next=null;
+        _size=j;
+        reindex();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void reindex()
+    {
+        Arrays.fill(_index,null);
+        int mask=_index.length-1;
+        for (int f=0;f<_size;f++)
+        {
+            Field field=_fields[f];
+            for (int i=hash(field._name)&mask;;i=(i+1)&mask)
+            {
+                Field first=_index[i];
+                if (first==null)
+                {
+                    _index[i]=field;
+                    break;
+                }
+                if (isName(first._name,field._name))
+                    break;
+            }
+        }
     }
 
     /* -------------------------------------------------------------- */
@@ -610,9 +769,39 @@ public class HttpFields
             value= HttpHeaderValues.CACHE.lookup(value).asImmutableBuffer();
         
         // new value;
-        Field field = new Field(name, value);
-        _fields.add(field);
-        _names.put(name, field);
+        newField(name,value,null);
+    }
+
+    /* -------------------------------------------------------------- */
+    /**
+     * Set the fields of a pre-encoded block. Any existing fields with the names
+     * of the block are replaced.
+     * 
+     * @param block the block of fields
+     */
+    public void put(Block block)
+    {
+        for (Buffer name : block._names)
+            remove(name);
+        for (int i=0;i<block._names.length;i++)
+            newField(block._names[i],block._values[i],getFirst(block._names[i]))._block=block;
+    }
+
+    /* -------------------------------------------------------------- */
+    /**
+     * @param index the index of a field
+     * @return the block put at the index, if all the fields of the block are still
+     * in place, else null.
+     */
+    Block getBlock(int index)
+    {
+        Block block=_fields[index]._block;
+        if (block==null || index+block._names.length>_size)
+            return null;
+        for (int i=1;i<block._names.length;i++)
+            if (_fields[index+i]._block!=block)
+                return null;
+        return block;
     }
 
     /* -------------------------------------------------------------- */
@@ -690,23 +879,8 @@ public class HttpFields
             value= HttpHeaderValues.CACHE.lookup(value);
         value=value.asImmutableBuffer();
         
-        Field field = _names.get(name);
-        Field last = null;
-        while (field != null)
-        {
-            last = field;
-            field = field._next;
-        }
-
-        // create the field
-        field = new Field(name, value);
-        _fields.add(field);
-
-        // look for chain to add too
-        if (last != null)
-            last._next = field;
-        else
-            _names.put(name, field);
+        // create the field, chained to any others of the same name
+        newField(name,value,getFirst(name));
     }
 
     /* ------------------------------------------------------------ */
@@ -730,12 +904,7 @@ public class HttpFields
     {
         if (!(name instanceof BufferCache.CachedBuffer)) 
             name = HttpHeaders.CACHE.lookup(name);
-        Field field = _names.remove(name);
-        while (field != null)
-        {
-            _fields.remove(field);
-            field = field._next;
-        }
+        removeFields(name,null);
     }
 
     /* -------------------------------------------------------------- */
@@ -1003,20 +1172,14 @@ public class HttpFields
         name_value_params = buf.toString();
         
         // remove existing set-cookie of same name
-        Field field = getField(HttpHeaders.SET_COOKIE);
-        Field last=null;
+        Field field = getField(HttpHeaders.SET_COOKIE_BUFFER);
         while (field!=null)
         {
             if (field._value!=null && field._value.toString().startsWith(start))
             {
-                _fields.remove(field);
-                if (last==null)
-                    _names.put(HttpHeaders.SET_COOKIE_BUFFER,field._next);
-                else
-                    last._next=field._next;
+                removeFields(HttpHeaders.SET_COOKIE_BUFFER,field);
                 break;
             }
-            last=field;
             field=field._next;
         }
 
@@ -1029,12 +1192,8 @@ public class HttpFields
     /* -------------------------------------------------------------- */
     public void putTo(Buffer buffer) throws IOException
     {
-        for (int i = 0; i < _fields.size(); i++)
-        {
-            Field field = _fields.get(i);
-            if (field != null) 
-                field.putTo(buffer);
-        }
+        for (int i = 0; i < _size; i++)
+            _fields[i].putTo(buffer);
         BufferUtil.putCRLF(buffer);
     }
 
@@ -1044,9 +1203,9 @@ public class HttpFields
         try
         {
             StringBuffer buffer = new StringBuffer();
-            for (int i = 0; i < _fields.size(); i++)
+            for (int i = 0; i < _size; i++)
             {
-                Field field = (Field) _fields.get(i);
+                Field field = _fields[i];
                 if (field != null)
                 {
                     String tmp = field.getName();
@@ -1073,8 +1232,16 @@ public class HttpFields
      */
     public void clear()
     {
-        _fields.clear();
-        _names.clear();
+        for (int i=0;i<_size;i++)
+        {
+            Field field=_fields[i];
+            field._name=null;
+            field._value=null;
+            field._next=null;
+            field._block=null;
+        }
+        _size=0;
+        Arrays.fill(_index,null);
     }
 
     /* ------------------------------------------------------------ */
@@ -1257,6 +1424,7 @@ public class HttpFields
         private Buffer _name;
         private Buffer _value;
         private Field _next;
+        private Block _block;
 
         /* ------------------------------------------------------------ */
         private Field(Buffer name, Buffer value)
@@ -1373,4 +1541,89 @@ public class HttpFields
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A block of fields pre-encoded for a header.
+     * <p>
+     * A block is immutable, so it may be shared by many responses with the same
+     * fields, such as those of static content. When the block is {@link HttpFields#put(Block) put}
+     * its fields are set as normal fields, that may be read, replaced or removed. While all the
+     * fields of the block remain, the {@link HttpGenerator} copies the encoded block to the header
+     * in one put rather than encoding each field.
+     * <p>
+     * A block may not contain the fields that the generator interprets: 
+     * Content-Length, Transfer-Encoding, Connection, Server and Date. 
+     */
+    public static final class Block
+    {
+        private final Buffer[] _names;
+        private final Buffer[] _values;
+        private final Buffer _buffer;
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @param fields the fields of the block
+         * @throws IllegalArgumentException if the fields contain a field that may not be in a block
+         */
+        public Block(HttpFields fields)
+        {
+            int size=fields.size();
+            _names=new Buffer[size];
+            _values=new Buffer[size];
+            int length=0;
+            for (int i=0;i<size;i++)
+            {
+                Field field=fields.getField(i);
+                switch(field.getNameOrdinal())
+                {
+                    case HttpHeaders.CONTENT_LENGTH_ORDINAL:
+                    case HttpHeaders.TRANSFER_ENCODING_ORDINAL:
+                    case HttpHeaders.CONNECTION_ORDINAL:
+                    case HttpHeaders.SERVER_ORDINAL:
+                    case HttpHeaders.DATE_ORDINAL:
+                        throw new IllegalArgumentException(field.getName());
+                }
+                _names[i]=field._name;
+                _values[i]=field._value;
+                length+=field._name.length()+field._value.length()+4;
+            }
+
+            ByteArrayBuffer buffer=new ByteArrayBuffer(length);
+            try
+            {
+                for (int i=0;i<size;i++)
+                    fields.getField(i).putTo(buffer);
+            }
+            catch(IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            _buffer=buffer.asImmutableBuffer();
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return the number of fields in the block
+         */
+        public int size()
+        {
+            return _names.length;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return the encoded fields, each terminated by CRLF
+         */
+        public Buffer getBuffer()
+        {
+            return _buffer;
+        }
+
+        /* ------------------------------------------------------------ */
+        public String toString()
+        {
+            return _buffer.toString();
+        }
+    }
 }
@@ -524,12 +524,28 @@ public class HttpGenerator extends AbstractGenerator
             if (fields != null)
             {
                 int s=fields.size();
+                int blocked=0;
                 for (int f=0;f<s;f++)
                 {
                     HttpFields.Field field = fields.getField(f);
                     if (field==null)
                         continue;
 
+                    // copy a pre-encoded block of fields in one put
+                    boolean encoded=blocked>0;
+                    if (encoded)
+                        blocked--;
+                    else
+                    {
+                        HttpFields.Block block=fields.getBlock(f);
+                        if (block!=null)
+                        {
+                            _header.put(block.getBuffer());
+                            blocked=block.size()-1;
+                            encoded=true;
+                        }
+                    }
+
                     switch (field.getNameOrdinal())
                     {
                         case HttpHeaders.CONTENT_LENGTH_ORDINAL:
@@ -548,7 +564,8 @@ public class HttpGenerator extends AbstractGenerator
 
                             // write the field to the header buffer
                             content_type=true;
-                            field.putTo(_header);
+                            if (!encoded)
+                                field.putTo(_header);
                             break;
 
                         case HttpHeaders.TRANSFER_ENCODING_ORDINAL:
@@ -664,7 +681,8 @@ public class HttpGenerator extends AbstractGenerator
 
                         default:
                             // write the field to the header buffer
-                            field.putTo(_header);
+                            if (!encoded)
+                                field.putTo(_header);
                     }
                 }
             }
@@ -860,16 +878,16 @@ public class HttpGenerator extends AbstractGenerator
                     case 7:
                         throw new IllegalStateException(); // should never happen!
                     case 6:
-                        len = _endp.flush(_header, _buffer, null);
+                        len = _endp.flush(_header, _buffer);
                         break;
                     case 5:
-                        len = _endp.flush(_header, _content, null);
+                        len = _endp.flush(_header, _content);
                         break;
                     case 4:
                         len = _endp.flush(_header);
                         break;
                     case 3:
-                        len = _endp.flush(_buffer, _content, null);
+                        len = _endp.flush(_buffer, _content);
                         break;
                     case 2:
                         len = _endp.flush(_buffer);
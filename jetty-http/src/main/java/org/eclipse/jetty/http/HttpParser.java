@@ -17,6 +17,7 @@ import java.io.IOException;
 
 import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.io.BufferCache.CachedBuffer;
+import org.eclipse.jetty.io.BufferPool;
 import org.eclipse.jetty.io.BufferUtil;
 import org.eclipse.jetty.io.Buffers;
 import org.eclipse.jetty.io.ByteArrayBuffer;
@@ -62,6 +63,7 @@ public class HttpParser implements Parser
     private Buffer _header; // Buffer for header data (and small _content)
     private Buffer _body; // Buffer for large content
     private Buffer _buffer; // The current buffer in use (either _header or _content)
+    private Buffer _grownHeader; // Header buffer replaced after the first line was handled
     private CachedBuffer _cached;
     private View.CaseInsensitive _tok0; // Saved token: header name, request method or response version
     private View.CaseInsensitive _tok1; // Saved token: header value, request URI or response code
@@ -69,6 +71,7 @@ public class HttpParser implements Parser
     private int _responseStatus; // If >0 then we are parsing a response
     private boolean _forceContentBuffer;
     private boolean _persistent;
+    private int _maxHeaderSize;
 
     /* ------------------------------------------------------------------------------- */
     protected final View  _contentView=new View(); // View of the content in the buffer for {@link Input}
@@ -116,6 +119,27 @@ public class HttpParser implements Parser
         _handler=handler;
     }
 
+    /* ------------------------------------------------------------------------------- */
+    /**
+     * @return the size to which a full header buffer may grow, or 0 if it does not grow.
+     */
+    public int getMaxHeaderSize()
+    {
+        return _maxHeaderSize;
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /**
+     * @param maxHeaderSize the size to which a full header buffer may grow, or 0 if it does not grow.
+     * If the header buffer from the {@link Buffers} fills before the header is complete, it is
+     * replaced by buffers of increasing size classes until this size is reached, so that the
+     * header buffer can start small.
+     */
+    public void setMaxHeaderSize(int maxHeaderSize)
+    {
+        _maxHeaderSize=maxHeaderSize;
+    }
+
     /* ------------------------------------------------------------------------------- */
     public long getContentLength()
     {
@@ -262,8 +286,7 @@ public class HttpParser implements Parser
                     _header=_buffers.getHeader();
                 }
                 _buffer=_header;
-                _tok0=new View.CaseInsensitive(_header);
-                _tok1=new View.CaseInsensitive(_header);
+                bindTokens(_header);
                 _tok0.setPutIndex(_tok0.getIndex());
                 _tok1.setPutIndex(_tok1.getIndex());
             }
@@ -287,7 +310,8 @@ public class HttpParser implements Parser
                 try
                 {
                     filled=fill();
-                    LOG.debug("filled {}/{}",filled,_buffer.length());
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("filled {}/{}",filled,_buffer.length());
                 }
                 catch(IOException e)
                 {
@@ -348,7 +372,6 @@ public class HttpParser implements Parser
 
             // Handle header states
             byte ch;
-            byte[] array=_buffer.array();
             int last=_state;
             while (_state<STATE_END && length-->0)
             {
@@ -496,7 +519,7 @@ public class HttpParser implements Parser
                             if (_responseStatus>0)
                                 _handler.startResponse(version=HttpVersions.CACHE.lookup(_tok0), _responseStatus,_buffer.sliceFromMark());
                             else
-                                _handler.startRequest(HttpMethods.CACHE.lookup(_tok0), _tok1, version=HttpVersions.CACHE.lookup(_buffer.sliceFromMark()));
+                                _handler.startRequest(HttpMethods.CACHE.lookup(_tok0), _tok1, version=versionFromMark());
                             _eol=ch;
                             _persistent=HttpVersions.CACHE.getOrdinal(version)>=HttpVersions.HTTP_1_1_ORDINAL;
                             _state=STATE_HEADER;
@@ -665,16 +688,12 @@ public class HttpParser implements Parser
                                     _state=STATE_HEADER_NAME;
 
                                     // try cached name!
-                                    if (array!=null)
+                                    _cached=HttpHeaders.CACHE.getBest(_buffer, _buffer.markIndex(), length+1);
+                                    if (_cached!=null)
                                     {
-                                        _cached=HttpHeaders.CACHE.getBest(array, _buffer.markIndex(), length+1);
-
-                                        if (_cached!=null)
-                                        {
-                                            _length=_cached.length();
-                                            _buffer.setGetIndex(_buffer.markIndex()+_length);
-                                            length=_buffer.length();
-                                        }
+                                        _length=_cached.length();
+                                        _buffer.setGetIndex(_buffer.markIndex()+_length);
+                                        length=_buffer.length();
                                     }
                                 }
                             }
@@ -998,8 +1017,7 @@ public class HttpParser implements Parser
         if (_buffer==null)
         {
             _buffer=_header=getHeaderBuffer();
-            _tok0=new View.CaseInsensitive(_buffer);
-            _tok1=new View.CaseInsensitive(_buffer);
+            bindTokens(_buffer);
         }
 
         // Is there unconsumed content in body buffer
@@ -1027,7 +1045,7 @@ public class HttpParser implements Parser
             }
 
             // Are we full?
-            if (_buffer.space() == 0)
+            if (_buffer.space() == 0 && !growHeader())
             {
                 LOG.warn("Full {}",_buffer.toDetailString());
                 throw new HttpException(HttpStatus.REQUEST_ENTITY_TOO_LARGE_413, "FULL "+(_buffer==_body?"body":"head"));
@@ -1048,6 +1066,100 @@ public class HttpParser implements Parser
         return -1;
     }
 
+    /* ------------------------------------------------------------------------------- */
+    /** Replace a full header buffer with a larger one.
+     * The data is copied to the same indexes of the new buffer, so that the
+     * mark and the saved tokens remain valid.
+     * <p>Once the first line has been passed to the handler, the handler may keep
+     * a reference to the array of the replaced buffer (eg. {@link HttpURI}), so that
+     * buffer is only returned by {@link #reset()} when the message is complete.
+     * @return true if the header buffer was replaced
+     */
+    private boolean growHeader()
+    {
+        if (_buffer!=_header || _state>=STATE_END || _buffers==null || _header.capacity()>=_maxHeaderSize)
+            return false;
+
+        Buffer header=_buffers.getBuffer(Math.min(BufferPool.sizeClass(_header.capacity()+1),_maxHeaderSize));
+        if (header.capacity()<=_header.capacity())
+        {
+            _buffers.returnBuffer(header);
+            return false;
+        }
+        LOG.debug("grow header {}->{}",_header.capacity(),header.capacity());
+
+        header.clear();
+        header.poke(0,_header.peek(0,_header.putIndex()));
+        header.setPutIndex(_header.putIndex());
+        header.setGetIndex(_header.getIndex());
+        header.setMarkIndex(_header.markIndex());
+        rebind(_tok0,header);
+        rebind(_tok1,header);
+
+        if (_grownHeader==null && _state>=STATE_HEADER)
+            _grownHeader=_header;
+        else
+        {
+            _header.clear();
+            _buffers.returnBuffer(_header);
+        }
+        _buffer=_header=header;
+        return true;
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    private static void rebind(View view, Buffer buffer)
+    {
+        int get=view.getIndex();
+        int put=view.putIndex();
+        view.update(buffer);
+        view.update(get,put);
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /** Bind the saved tokens to a header buffer.
+     * The tokens are reused for each header buffer, so that parsing does not allocate.
+     */
+    private void bindTokens(Buffer buffer)
+    {
+        if (_tok0==null)
+        {
+            _tok0=new View.CaseInsensitive(buffer);
+            _tok1=new View.CaseInsensitive(buffer);
+        }
+        else
+        {
+            _tok0.update(buffer);
+            _tok1.update(buffer);
+        }
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /**
+     * @return the version from the mark to the current character, which is
+     * a cached buffer unless the version is unknown.
+     */
+    private Buffer versionFromMark()
+    {
+        int mark=_buffer.markIndex();
+        Buffer version=HttpVersions.CACHE.get(_buffer,mark,_buffer.getIndex()-mark-1);
+        if (version==null)
+            return HttpVersions.CACHE.lookup(_buffer.sliceFromMark());
+        _buffer.setMarkIndex(-1);
+        return version;
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /**
+     * @return the total capacity of the buffers currently held by the parser.
+     */
+    public int getBuffersCapacity()
+    {
+        Buffer header=_header;
+        Buffer body=_body;
+        return (header==null?0:header.capacity())+(body==null?0:body.capacity());
+    }
+
     /* ------------------------------------------------------------------------------- */
     public void reset()
     {
@@ -1059,6 +1171,13 @@ public class HttpParser implements Parser
         _length=0;
         _responseStatus=0;
 
+        if (_grownHeader!=null)
+        {
+            _grownHeader.clear();
+            _buffers.returnBuffer(_grownHeader);
+            _grownHeader=null;
+        }
+
         // Consume LF if CRLF
         if (_eol == HttpTokens.CARRIAGE_RETURN && _buffer!=null && _buffer.hasContent() && _buffer.peek() == HttpTokens.LINE_FEED)
             _eol=_buffer.get();
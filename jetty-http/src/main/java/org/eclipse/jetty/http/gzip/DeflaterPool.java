@@ -0,0 +1,174 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.http.gzip;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/* ------------------------------------------------------------ */
+/** A bounded pool of {@link Deflater}s for gzip.
+ * <p>
+ * Each {@link Deflater} holds native memory that is only freed when it is
+ * ended or finalized, so creating one per response is costly. This pool
+ * keeps up to {@link #getCapacity()} idle deflaters, which are reset when
+ * released so they can be reused for another stream. Deflaters released
+ * to a full pool are ended.
+ * <p>
+ * The deflaters are created with the {@link #getLevel() level} and {@link #getStrategy() strategy}
+ * of the pool, and with no zlib wrapper, as the gzip header and trailer are written by
+ * {@link PooledGzipOutputStream}.
+ */
+public class DeflaterPool
+{
+    private final Queue<Deflater> _deflaters = new ConcurrentLinkedQueue<Deflater>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicLong _created = new AtomicLong();
+    private final int _capacity;
+    private final int _level;
+    private final int _strategy;
+
+    /* ------------------------------------------------------------ */
+    public DeflaterPool()
+    {
+        this(64,Deflater.DEFAULT_COMPRESSION,Deflater.DEFAULT_STRATEGY);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param capacity The maximum number of idle deflaters kept
+     * @param level The compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     * or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param strategy The compression strategy: {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}
+     * or {@link Deflater#HUFFMAN_ONLY}
+     */
+    public DeflaterPool(int capacity, int level, int strategy)
+    {
+        if (capacity<0)
+            throw new IllegalArgumentException("capacity "+capacity);
+        if (level<Deflater.DEFAULT_COMPRESSION || level>Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("level "+level);
+        if (strategy!=Deflater.DEFAULT_STRATEGY && strategy!=Deflater.FILTERED && strategy!=Deflater.HUFFMAN_ONLY)
+            throw new IllegalArgumentException("strategy "+strategy);
+        _capacity=capacity;
+        _level=level;
+        _strategy=strategy;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of idle deflaters kept.
+     */
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The compression level of the deflaters.
+     */
+    public int getLevel()
+    {
+        return _level;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The compression strategy of the deflaters.
+     */
+    public int getStrategy()
+    {
+        return _strategy;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of idle deflaters in the pool.
+     */
+    public int getSize()
+    {
+        return _size.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of deflaters created by the pool.
+     */
+    public long getCreated()
+    {
+        return _created.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return An idle deflater from the pool, or a new deflater
+     */
+    public Deflater acquire()
+    {
+        Deflater deflater=_deflaters.poll();
+        if (deflater!=null)
+        {
+            _size.decrementAndGet();
+            return deflater;
+        }
+
+        _created.incrementAndGet();
+        deflater=new Deflater(_level,true);
+        deflater.setStrategy(_strategy);
+        return deflater;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Return a deflater to the pool.
+     * The deflater must not be used after it has been released.
+     * @param deflater The deflater acquired from this pool
+     */
+    public void release(Deflater deflater)
+    {
+        if (_size.incrementAndGet()>_capacity)
+        {
+            _size.decrementAndGet();
+            deflater.end();
+        }
+        else
+        {
+            deflater.reset();
+            _deflaters.offer(deflater);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /** End all the idle deflaters in the pool.
+     */
+    public void clear()
+    {
+        Deflater deflater=_deflaters.poll();
+        while (deflater!=null)
+        {
+            _size.decrementAndGet();
+            deflater.end();
+            deflater=_deflaters.poll();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{level=%d,strategy=%d,size=%d/%d}",getClass().getSimpleName(),hashCode(),_level,_strategy,getSize(),_capacity);
+    }
+}
@@ -41,6 +41,7 @@ public class GzipResponseWrapper extends HttpServletResponseWrapper
     private Set<String> _mimeTypes;
     private int _bufferSize=DEFAULT_BUFFER_SIZE;
     private int _minGzipSize=DEFAULT_MIN_GZIP_SIZE;
+    private DeflaterPool _deflaterPool;
 
     private PrintWriter _writer;
     private GzipStream _gzStream;
@@ -90,6 +91,28 @@ public class GzipResponseWrapper extends HttpServletResponseWrapper
         _minGzipSize = minGzipSize;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Sets the pool of deflaters.
+     *
+     * @param deflaterPool the pool of deflaters, or null to create a deflater for each response
+     */
+    public void setDeflaterPool(DeflaterPool deflaterPool)
+    {
+        _deflaterPool = deflaterPool;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Gets the pool of deflaters.
+     *
+     * @return the pool of deflaters, or null
+     */
+    public DeflaterPool getDeflaterPool()
+    {
+        return _deflaterPool;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @see javax.servlet.ServletResponseWrapper#setContentType(java.lang.String)
@@ -399,7 +422,7 @@ public class GzipResponseWrapper extends HttpServletResponseWrapper
      */
     protected GzipStream newGzipStream(HttpServletRequest request,HttpServletResponse response,long contentLength,int bufferSize, int minGzipSize) throws IOException
     {
-        return new GzipStream(request,response,contentLength,bufferSize,minGzipSize);
+        return new GzipStream(request,response,contentLength,bufferSize,minGzipSize,_deflaterPool);
     }
 
     /* ------------------------------------------------------------ */
@@ -19,7 +19,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -37,12 +36,15 @@ public class GzipStream extends ServletOutputStream
     protected HttpServletResponse _response;
     protected OutputStream _out;
     protected ByteArrayOutputStream2 _bOut;
-    protected GZIPOutputStream _gzOut;
+    /** The compressing stream. Since 7.6 this is a {@link PooledGzipOutputStream}
+     * rather than a {@link java.util.zip.GZIPOutputStream}. */
+    protected PooledGzipOutputStream _gzOut;
     protected boolean _closed;
     protected int _bufferSize;
     protected int _minGzipSize;
     protected long _contentLength;
     protected boolean _doNotGzip;
+    protected DeflaterPool _deflaterPool;
 
     /**
      * Instantiates a new gzip stream.
@@ -56,6 +58,23 @@ public class GzipStream extends ServletOutputStream
      */
     public GzipStream(HttpServletRequest request,HttpServletResponse response,long contentLength,int bufferSize, int minGzipSize) throws IOException
     {
+        this(request,response,contentLength,bufferSize,minGzipSize,null);
+    }
+
+    /**
+     * Instantiates a new gzip stream.
+     *
+     * @param request the request
+     * @param response the response
+     * @param contentLength the content length
+     * @param bufferSize the buffer size
+     * @param minGzipSize the min gzip size
+     * @param deflaterPool the pool of deflaters, or null to create a deflater for the stream
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public GzipStream(HttpServletRequest request,HttpServletResponse response,long contentLength,int bufferSize, int minGzipSize, DeflaterPool deflaterPool) throws IOException
+    {
+        _deflaterPool=deflaterPool;
         _request=request;
         _response=response;
         _contentLength=contentLength;
@@ -76,7 +95,10 @@ public class GzipStream extends ServletOutputStream
         _out=null;
         _bOut=null;
         if (_gzOut!=null)
+        {
             _response.setHeader("Content-Encoding",null);
+            _gzOut.release();
+        }
         _gzOut=null;
         _doNotGzip=false;
     }
@@ -230,7 +252,7 @@ public class GzipStream extends ServletOutputStream
             
             if (setContentEncodingGzip())
             {
-                _out=_gzOut=new GZIPOutputStream(_response.getOutputStream(),_bufferSize);
+                _out=_gzOut=new PooledGzipOutputStream(_response.getOutputStream(),_deflaterPool,_bufferSize);
 
                 if (_bOut!=null)
                 {
@@ -0,0 +1,199 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.http.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.BufferPool;
+import org.eclipse.jetty.io.Buffers;
+import org.eclipse.jetty.io.BuffersFactory;
+
+/* ------------------------------------------------------------ */
+/** A gzip output stream using a pooled {@link Deflater} and buffer.
+ * <p>
+ * Like {@link java.util.zip.GZIPOutputStream}, but the deflater is acquired
+ * from a {@link DeflaterPool} and the compressed output is deflated directly into a
+ * buffer from the {@link BuffersFactory#getBufferPool() shared buffer pool}, which is
+ * written to the underlying stream in one write each time it is filled.
+ * The deflater and buffer are returned to their pools when the stream is
+ * {@link #finish() finished} or {@link #release() released}.
+ * <p>
+ * If there is no deflater pool, a deflater is created for the stream and ended when it is finished.
+ * If there is no shared buffer pool, a buffer is allocated for the stream.
+ */
+public class PooledGzipOutputStream extends OutputStream
+{
+    private final static byte[] __header = { (byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final OutputStream _out;
+    private final DeflaterPool _pool;
+    private final BufferPool _bufferPool;
+    private final CRC32 _crc = new CRC32();
+    private final byte[] _single = new byte[1];
+    private Deflater _deflater;
+    private Buffer _buffer;
+    private byte[] _bytes;
+    private int _count;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param out The stream to write the compressed output to
+     * @param pool The pool of deflaters, or null for a new deflater
+     * @param bufferSize The size of the buffer for the compressed output
+     */
+    public PooledGzipOutputStream(OutputStream out, DeflaterPool pool, int bufferSize)
+    {
+        _out=out;
+        _pool=pool;
+        _deflater=pool==null?new Deflater(Deflater.DEFAULT_COMPRESSION,true):pool.acquire();
+        _bufferPool=BuffersFactory.getBufferPool();
+        if (_bufferPool==null)
+            _bytes=new byte[BufferPool.sizeClass(bufferSize)];
+        else
+        {
+            _buffer=_bufferPool.acquire(Buffers.Type.BYTE_ARRAY,BufferPool.sizeClass(bufferSize));
+            _bytes=_buffer.array();
+        }
+        System.arraycopy(__header,0,_bytes,0,__header.length);
+        _count=__header.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void write(int b) throws IOException
+    {
+        _single[0]=(byte)b;
+        write(_single,0,1);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (_deflater==null)
+            throw new IOException("CLOSED");
+        if (_deflater.finished())
+            throw new IOException("FINISHED");
+        if (len==0)
+            return;
+
+        _crc.update(b,off,len);
+        _deflater.setInput(b,off,len);
+        while (!_deflater.needsInput())
+            deflate();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Write the buffered compressed output and flush the underlying stream.
+     * Data held within the deflater is not flushed.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (_deflater!=null)
+            flushBuffer();
+        _out.flush();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Finish the compressed data and write the gzip trailer, without closing the
+     * underlying stream. The deflater and buffer are returned to their pools.
+     */
+    public void finish() throws IOException
+    {
+        if (_deflater==null)
+            return;
+        try
+        {
+            _deflater.finish();
+            while (!_deflater.finished())
+                deflate();
+
+            if (_bytes.length-_count<8)
+                flushBuffer();
+            putInt((int)_crc.getValue());
+            putInt((int)_deflater.getBytesRead());
+            flushBuffer();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            _out.close();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Return the deflater and buffer to their pools without finishing the stream.
+     * The stream may not be written after it is released.
+     */
+    public void release()
+    {
+        if (_deflater!=null)
+        {
+            if (_pool==null)
+                _deflater.end();
+            else
+                _pool.release(_deflater);
+            _deflater=null;
+            if (_buffer!=null)
+                _bufferPool.release(_buffer);
+            _buffer=null;
+            _bytes=null;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void deflate() throws IOException
+    {
+        if (_count==_bytes.length)
+            flushBuffer();
+        _count+=_deflater.deflate(_bytes,_count,_bytes.length-_count);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void flushBuffer() throws IOException
+    {
+        if (_count>0)
+        {
+            _out.write(_bytes,0,_count);
+            _count=0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void putInt(int i)
+    {
+        _bytes[_count++]=(byte)i;
+        _bytes[_count++]=(byte)(i>>8);
+        _bytes[_count++]=(byte)(i>>16);
+        _bytes[_count++]=(byte)(i>>24);
+    }
+}
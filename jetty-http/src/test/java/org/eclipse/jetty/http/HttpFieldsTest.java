@@ -17,6 +17,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -537,4 +538,93 @@ public class HttpFieldsTest
         //System.err.println(s2);
         assertEquals(s1,s2);
     }
+
+    @Test
+    public void testBlock() throws Exception
+    {
+        HttpFields blocked = new HttpFields();
+        blocked.put("Content-Type","text/html");
+        blocked.put("Accept-Ranges","bytes");
+        HttpFields.Block block = new HttpFields.Block(blocked);
+        assertEquals(2,block.size());
+
+        HttpFields header = new HttpFields();
+        header.put("Content-Type","text/plain");
+        header.put("name0","value0");
+        header.put(block);
+        assertEquals(3,header.size());
+        assertEquals("value0",header.getStringField("name0"));
+        assertEquals("text/html",header.getStringField("Content-Type"));
+        assertEquals("bytes",header.getStringField("Accept-Ranges"));
+        assertNull(header.getBlock(0));
+        assertTrue(header.getBlock(1)==block);
+
+        header.remove("name0");
+        assertTrue(header.getBlock(0)==block);
+
+        header.put("Accept-Ranges","none");
+        assertNull(header.getBlock(0));
+        assertEquals("text/html",header.getStringField("Content-Type"));
+
+        blocked.put("Content-Length","10");
+        try
+        {
+            new HttpFields.Block(blocked);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    @Test
+    public void testManyFields() throws Exception
+    {
+        HttpFields header = new HttpFields();
+
+        // more fields than the initial capacity, with some repeated names
+        for (int i=0;i<100;i++)
+            header.add("name"+(i%40),"value"+i);
+        assertEquals(100,header.size());
+        for (int i=0;i<100;i++)
+            assertEquals("name"+(i%40)+": value"+i,header.getField(i).getName()+": "+header.getField(i).getValue());
+
+        Enumeration<String> names=header.getFieldNames();
+        for (int i=0;i<40;i++)
+            assertEquals("name"+i,names.nextElement());
+        assertFalse(names.hasMoreElements());
+
+        Enumeration<String> values=header.getValues("NAME7");
+        assertEquals("value7",values.nextElement());
+        assertEquals("value47",values.nextElement());
+        assertEquals("value87",values.nextElement());
+        assertFalse(values.hasMoreElements());
+
+        // removing keeps the order of the other fields
+        header.remove("name7");
+        header.remove("name13");
+        assertEquals(94,header.size());
+        assertFalse(header.containsKey("name7"));
+        assertNull(header.getStringField("name13"));
+        int i=0;
+        for (int f=0;f<header.size();f++)
+        {
+            while (i%40==7 || i%40==13)
+                i++;
+            assertEquals("value"+i++,header.getField(f).getValue());
+        }
+        for (int n=0;n<40;n++)
+            if (n!=7 && n!=13)
+                assertEquals("value"+n,header.getStringField("name"+n));
+
+        // cleared fields are reused
+        HttpFields.Field field=header.getField(0);
+        header.clear();
+        assertEquals(0,header.size());
+        assertNull(header.getStringField("name0"));
+        header.put("other","value");
+        assertTrue(field==header.getField(0));
+        assertEquals("other",field.getName());
+        assertEquals("value",header.getStringField("Other"));
+    }
 }
@@ -58,6 +58,49 @@ public class HttpGeneratorTest
         assertTrue(endp.getOut().toString().indexOf("Content-Length")==-1);
     }
 
+    @Test
+    public void testHeaderBlock() throws Exception
+    {
+        Buffer bb=new ByteArrayBuffer(8096);
+        Buffer sb=new ByteArrayBuffer(1500);
+        HttpFields fields = new HttpFields();
+        ByteArrayEndPoint endp = new ByteArrayEndPoint(new byte[0],4096);
+        HttpGenerator hg = new HttpGenerator(new SimpleBuffers(sb,bb),endp);
+
+        HttpFields blocked = new HttpFields();
+        blocked.put("Content-Type","text/plain");
+        blocked.put("Cache-Control","max-age=3600");
+        HttpFields.Block block = new HttpFields.Block(blocked);
+        assertEquals("Content-Type: text/plain\r\nCache-Control: max-age=3600\r\n",block.toString());
+
+        fields.put("Other","value");
+        fields.put(block);
+        fields.putLongField("Content-Length",4);
+        hg.setResponse(200,null);
+        hg.setVersion(11);
+        hg.completeHeader(fields,true);
+        hg.addContent(new ByteArrayBuffer("test"),true);
+        hg.complete();
+        hg.flushBuffer();
+        String response=endp.getOut().toString();
+        assertTrue(response.indexOf("Other: value\r\nContent-Type: text/plain\r\nCache-Control: max-age=3600\r\nContent-Length: 4\r\n")>0);
+
+        // a replaced field is generated in place of the block
+        hg.reset();
+        endp.reset();
+        fields.put("Cache-Control","no-cache");
+        hg.setResponse(200,null);
+        hg.setVersion(11);
+        hg.completeHeader(fields,true);
+        hg.addContent(new ByteArrayBuffer("test"),true);
+        hg.complete();
+        hg.flushBuffer();
+        response=endp.getOut().toString();
+        assertTrue(response.indexOf("Content-Type: text/plain\r\n")>0);
+        assertTrue(response.indexOf("Cache-Control: no-cache\r\n")>0);
+        assertTrue(response.indexOf("max-age")<0);
+    }
+
     @Test
     public void testHTTP() throws Exception
     {
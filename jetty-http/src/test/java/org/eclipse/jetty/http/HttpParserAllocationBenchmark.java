@@ -0,0 +1,133 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.http;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.SimpleBuffers;
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.io.nio.IndirectNIOBuffer;
+
+/* ------------------------------------------------------------ */
+/** Measure the bytes allocated by {@link HttpParser} per request.
+ * <p>
+ * Requests are parsed repeatedly from a header buffer with an {@link HttpParser.EventHandler}
+ * that does not allocate, so the bytes allocated by the parsing thread are those of the
+ * parser and the {@link BufferCache} lookups it does.
+ * Requires a JVM that supports {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * <pre>
+ * usage: java org.eclipse.jetty.http.HttpParserAllocationBenchmark [iterations]
+ * </pre>
+ */
+public class HttpParserAllocationBenchmark
+{
+    private static final String KNOWN=
+        "GET /index.html?query=value HTTP/1.1\r\n"+
+        "Host: www.example.com\r\n"+
+        "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:7.0.1) Gecko/20100101 Firefox/7.0.1\r\n"+
+        "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"+
+        "Accept-Language: en-us,en;q=0.5\r\n"+
+        "Accept-Encoding: gzip, deflate\r\n"+
+        "Accept-Charset: ISO-8859-1,utf-8;q=0.7,*;q=0.7\r\n"+
+        "Connection: keep-alive\r\n"+
+        "Cache-Control: max-age=0\r\n"+
+        "\r\n";
+
+    private static final String UNKNOWN=
+        "POST /form HTTP/1.1\r\n"+
+        "Host: www.example.com\r\n"+
+        "Content-Type: application/x-www-form-urlencoded\r\n"+
+        "Content-Length: 0\r\n"+
+        "X-Requested-With: XMLHttpRequest\r\n"+
+        "X-Forwarded-For: 10.0.0.1\r\n"+
+        "\r\n";
+
+    /* ------------------------------------------------------------ */
+    public static void main(String[] args) throws Exception
+    {
+        int iterations=args.length>0?Integer.parseInt(args[0]):200000;
+
+        for (String request : new String[]{KNOWN,UNKNOWN})
+        {
+            System.err.println(request.substring(0,request.indexOf('\r')));
+            System.err.printf("  indirect: %6.1f bytes/request%n",measure(new IndirectNIOBuffer(4096),request,iterations));
+            System.err.printf("  direct:   %6.1f bytes/request%n",measure(new DirectNIOBuffer(4096),request,iterations));
+            System.err.printf("  array:    %6.1f bytes/request%n",measure(new ByteArrayBuffer(4096),request,iterations));
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private static double measure(Buffer header, String request, int iterations) throws IOException
+    {
+        ByteArrayBuffer in=new ByteArrayBuffer(request);
+        ByteArrayEndPoint endp=new ByteArrayEndPoint();
+        endp.setIn(in);
+        endp.setGrowOutput(true);
+        HttpParser parser=new HttpParser(new SimpleBuffers(header,null),endp,new Handler());
+
+        // warm up
+        for (int i=0;i<iterations;i++)
+            parse(parser,in);
+
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long id=Thread.currentThread().getId();
+        long start=threads.getThreadAllocatedBytes(id);
+        for (int i=0;i<iterations;i++)
+            parse(parser,in);
+        long allocated=threads.getThreadAllocatedBytes(id)-start;
+        return ((double)allocated)/iterations;
+    }
+
+    /* ------------------------------------------------------------ */
+    private static void parse(HttpParser parser, ByteArrayBuffer in) throws IOException
+    {
+        in.setGetIndex(0);
+        while (!parser.isComplete())
+            parser.parseNext();
+        parser.reset();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    private static class Handler extends HttpParser.EventHandler
+    {
+        long _hash;
+
+        @Override
+        public void startRequest(Buffer method, Buffer url, Buffer version) throws IOException
+        {
+            _hash+=method.hashCode()+url.length()+version.hashCode();
+        }
+
+        @Override
+        public void parsedHeader(Buffer name, Buffer value) throws IOException
+        {
+            _hash+=name.hashCode()+value.length();
+        }
+
+        @Override
+        public void startResponse(Buffer version, int status, Buffer reason) throws IOException
+        {
+        }
+
+        @Override
+        public void content(Buffer ref) throws IOException
+        {
+        }
+    }
+}
@@ -19,7 +19,10 @@ import static org.junit.Assert.assertTrue;
 import java.io.UnsupportedEncodingException;
 
 import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.BufferPool;
+import org.eclipse.jetty.io.Buffers;
 import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.io.SharedBuffers;
 import org.eclipse.jetty.io.SimpleBuffers;
 import org.eclipse.jetty.io.bio.StringEndPoint;
 import org.eclipse.jetty.util.StringUtil;
@@ -174,6 +177,109 @@ public class HttpParserTest
         assertEquals(5, h);
     }
 
+    @Test
+    public void testGrowHeader() throws Exception
+    {
+        StringEndPoint io=new StringEndPoint();
+        StringBuilder value=new StringBuilder();
+        for (int i=0;i<50;i++)
+            value.append("0123456789");
+        io.setInput(
+            "GET /grow HTTP/1.0\015\012"
+                + "Host: localhost\015\012"
+                + "Header1: "+value+"\015\012"
+                + "Header2: value2\015\012"
+                + "\015\012");
+        BufferPool pool=new BufferPool();
+        Buffers buffers=new SharedBuffers(pool,Buffers.Type.BYTE_ARRAY,64,Buffers.Type.BYTE_ARRAY,4096,Buffers.Type.BYTE_ARRAY);
+
+        Handler handler = new Handler();
+        HttpParser parser= new HttpParser(buffers,io, handler);
+        parser.setMaxHeaderSize(4096);
+        parser.parse();
+        assertEquals("GET", f0);
+        assertEquals("/grow", f1);
+        assertEquals("HTTP/1.0", f2);
+        assertEquals("Host", hdr[0]);
+        assertEquals("localhost", val[0]);
+        assertEquals(value.toString(), val[1]);
+        assertEquals("Header2", hdr[2]);
+        assertEquals("value2", val[2]);
+        assertEquals(0,parser.getBuffersCapacity());
+
+        // Cannot grow beyond the maximum
+        io.setInput(
+            "GET /grow HTTP/1.0\015\012"
+                + "Header1: "+value+"\015\012"
+                + "\015\012");
+        parser= new HttpParser(buffers,io, handler);
+        parser.setMaxHeaderSize(256);
+        try
+        {
+            parser.parse();
+            assertTrue(false);
+        }
+        catch(HttpException e)
+        {
+            assertEquals(HttpStatus.REQUEST_ENTITY_TOO_LARGE_413,e.getStatus());
+        }
+    }
+
+    @Test
+    public void testGrowHeaderKeepsRequestLine() throws Exception
+    {
+        StringBuilder value=new StringBuilder();
+        for (int i=0;i<50;i++)
+            value.append("0123456789");
+        StringEndPoint io=new StringEndPoint();
+        io.setInput(
+            "GET /grow/path?a=b HTTP/1.0\015\012"
+                + "Header1: "+value+"\015\012"
+                + "\015\012");
+        BufferPool pool=new BufferPool();
+        Buffers buffers=new SharedBuffers(pool,Buffers.Type.BYTE_ARRAY,64,Buffers.Type.BYTE_ARRAY,4096,Buffers.Type.BYTE_ARRAY);
+
+        // Like AbstractHttpConnection, the URI refers to the array of the header buffer
+        final HttpURI uri=new HttpURI();
+        HttpParser parser=new HttpParser(buffers,io,new HttpParser.EventHandler()
+        {
+            @Override
+            public void startRequest(Buffer method, Buffer url, Buffer version)
+            {
+                uri.parse(url.array(),url.getIndex(),url.length());
+            }
+
+            @Override
+            public void parsedHeader(Buffer name, Buffer value)
+            {
+            }
+
+            @Override
+            public void content(Buffer ref)
+            {
+            }
+
+            @Override
+            public void startResponse(Buffer version, int status, Buffer reason)
+            {
+            }
+        });
+        parser.setMaxHeaderSize(4096);
+        parser.parse();
+
+        // Another parser takes a header buffer from the pool before the URI is decoded
+        StringEndPoint other=new StringEndPoint();
+        other.setInput("GET /xxxx/xxxx?x=y HTTP/1.0\015\012\015\012");
+        HttpParser otherParser=new HttpParser(buffers,other,new Handler());
+        otherParser.parse();
+
+        assertEquals("/grow/path",uri.getPath());
+        assertEquals("a=b",uri.getQuery());
+
+        parser.reset();
+        assertEquals(0,parser.getBuffersCapacity());
+    }
+
     @Test
     public void testChunkParse() throws Exception
     {
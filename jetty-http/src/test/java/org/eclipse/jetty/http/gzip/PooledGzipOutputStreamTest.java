@@ -0,0 +1,141 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.http.gzip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.jetty.io.BufferPool;
+import org.eclipse.jetty.io.Buffers;
+import org.eclipse.jetty.io.BuffersFactory;
+import org.eclipse.jetty.util.IO;
+import org.junit.Test;
+
+public class PooledGzipOutputStreamTest
+{
+    private static byte[] content(int length)
+    {
+        byte[] content=new byte[length];
+        for (int i=0;i<length;i++)
+            content[i]=(byte)("The quick brown fox jumps over the lazy dog ".charAt(i%44)+i/1000);
+        return content;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException
+    {
+        ByteArrayOutputStream out=new ByteArrayOutputStream();
+        IO.copy(new GZIPInputStream(new ByteArrayInputStream(gzipped)),out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        DeflaterPool pool=new DeflaterPool(2,Deflater.BEST_SPEED,Deflater.DEFAULT_STRATEGY);
+
+        for (int length : new int[]{0,1,100,8192,100000})
+        {
+            byte[] content=content(length);
+            ByteArrayOutputStream out=new ByteArrayOutputStream();
+            PooledGzipOutputStream gzip=new PooledGzipOutputStream(out,pool,256);
+            if (length>0)
+                gzip.write(content[0]);
+            for (int i=1;i<length;i+=7000)
+                gzip.write(content,i,Math.min(7000,length-i));
+            gzip.close();
+
+            assertArrayEquals("length="+length,content,gunzip(out.toByteArray()));
+            assertEquals(1,pool.getSize());
+        }
+
+        // deflaters were reused
+        assertEquals(1,pool.getCreated());
+    }
+
+    @Test
+    public void testRelease() throws Exception
+    {
+        DeflaterPool pool=new DeflaterPool(1,Deflater.DEFAULT_COMPRESSION,Deflater.DEFAULT_STRATEGY);
+        PooledGzipOutputStream gzip0=new PooledGzipOutputStream(new ByteArrayOutputStream(),pool,1024);
+        PooledGzipOutputStream gzip1=new PooledGzipOutputStream(new ByteArrayOutputStream(),pool,1024);
+        gzip0.write(content(1000));
+        gzip0.release();
+        gzip1.finish();
+        assertEquals(1,pool.getSize());
+        assertEquals(2,pool.getCreated());
+
+        try
+        {
+            gzip0.write(1);
+            fail();
+        }
+        catch(IOException e)
+        {
+        }
+
+        // a reset deflater compresses a new stream
+        ByteArrayOutputStream out=new ByteArrayOutputStream();
+        PooledGzipOutputStream gzip=new PooledGzipOutputStream(out,pool,1024);
+        gzip.write(content(5000));
+        gzip.finish();
+        assertArrayEquals(content(5000),gunzip(out.toByteArray()));
+
+        pool.clear();
+        assertEquals(0,pool.getSize());
+    }
+
+    @Test
+    public void testBufferPool() throws Exception
+    {
+        BufferPool shared=BuffersFactory.getBufferPool();
+        try
+        {
+            // The buffer is returned to the pool it was acquired from
+            BufferPool pool=new BufferPool();
+            BuffersFactory.setBufferPool(pool);
+            ByteArrayOutputStream out=new ByteArrayOutputStream();
+            PooledGzipOutputStream gzip=new PooledGzipOutputStream(out,null,1024);
+            BuffersFactory.setBufferPool(null);
+            gzip.write(content(5000));
+            gzip.close();
+            assertArrayEquals(content(5000),gunzip(out.toByteArray()));
+            pool.acquire(Buffers.Type.BYTE_ARRAY,BufferPool.sizeClass(1024));
+            assertEquals(1,pool.getHits());
+
+            // Without a shared pool, the stream has its own buffer
+            out=new ByteArrayOutputStream();
+            gzip=new PooledGzipOutputStream(out,null,1024);
+            gzip.write(content(5000));
+            gzip.close();
+            assertArrayEquals(content(5000),gunzip(out.toByteArray()));
+        }
+        finally
+        {
+            BuffersFactory.setBufferPool(shared);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadLevel() throws Exception
+    {
+        new DeflaterPool(1,10,Deflater.DEFAULT_STRATEGY);
+    }
+}
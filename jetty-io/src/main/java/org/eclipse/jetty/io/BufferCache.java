@@ -23,13 +23,36 @@ import org.eclipse.jetty.util.StringMap;
 /** 
  * Stores a collection of {@link Buffer} objects.
  * Buffers are stored in an ordered collection and can retreived by index or value
- * 
+ * <p>
+ * Buffers are looked up by value with a case insensitive trie of rows indexed by byte,
+ * that is walked directly over the bytes of the buffer, so that a lookup neither hashes
+ * the buffer nor allocates. The common characters of tokens (letters and some
+ * punctuation) index a row of 32 entries, while other bytes index a sparse per row array.
  */
 public class BufferCache
 {
-    private final HashMap _bufferMap=new HashMap();
+    private static final int __ROW=32;
+    private static final int[] __LOOKUP=new int[256];
+    static
+    {
+        for (int i=0;i<__LOOKUP.length;i++)
+            __LOOKUP[i]=-1;
+        for (int c='a';c<='z';c++)
+        {
+            __LOOKUP[c]=c-'a';
+            __LOOKUP[c-'a'+'A']=c-'a';
+        }
+        String others="-./:;=";
+        for (int i=0;i<others.length();i++)
+            __LOOKUP[others.charAt(i)]=26+i;
+    }
+
     private final StringMap _stringMap=new StringMap(StringMap.CASE_INSENSTIVE);
     private final ArrayList _index= new ArrayList();
+    private char[] _tree=new char[__ROW*16];
+    private char[][] _bigIndex=new char[16][];
+    private CachedBuffer[] _values=new CachedBuffer[16];
+    private int _rows=1;
 
     /* ------------------------------------------------------------------------------- */
     /** Add a buffer to the cache at the specified index.
@@ -38,7 +61,8 @@ public class BufferCache
     public CachedBuffer add(String value, int ordinal)
     {
         CachedBuffer buffer= new CachedBuffer(value, ordinal);
-        _bufferMap.put(buffer, buffer);
+        int row=row(buffer);
+        _values[row]=buffer;
         _stringMap.put(value, buffer);
         while ((ordinal - _index.size()) >= 0)
             _index.add(null);
@@ -56,7 +80,50 @@ public class BufferCache
 
     public CachedBuffer get(Buffer buffer)
     {
-        return (CachedBuffer)_bufferMap.get(buffer);
+        return get(buffer,buffer.getIndex(),buffer.length());
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /** Get the cached buffer equal, ignoring case, to bytes of a buffer.
+     * @param buffer The buffer
+     * @param index The index of the first byte
+     * @param length The number of bytes
+     * @return The cached buffer or null if there is none.
+     */
+    public CachedBuffer get(Buffer buffer, int index, int length)
+    {
+        byte[] array=buffer.array();
+        int row=0;
+        for (int i=index,end=index+length;i<end;i++)
+        {
+            row=next(row,array==null?buffer.peek(i):array[i]);
+            if (row==0)
+                return null;
+        }
+        return _values[row];
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /** Get the longest cached buffer equal, ignoring case, to the leading bytes of a buffer.
+     * @param buffer The buffer
+     * @param index The index of the first byte
+     * @param maxLength The maximum number of bytes to match
+     * @return The longest cached buffer or null if there is none.
+     */
+    public CachedBuffer getBest(Buffer buffer, int index, int maxLength)
+    {
+        byte[] array=buffer.array();
+        CachedBuffer best=null;
+        int row=0;
+        for (int i=index,end=index+maxLength;i<end;i++)
+        {
+            row=next(row,array==null?buffer.peek(i):array[i]);
+            if (row==0)
+                break;
+            if (_values[row]!=null)
+                best=_values[row];
+        }
+        return best;
     }
 
     public CachedBuffer get(String value)
@@ -119,6 +186,66 @@ public class BufferCache
         return -1;
     }
     
+    /* ------------------------------------------------------------------------------- */
+    private int next(int row, byte b)
+    {
+        int c=b&0xff;
+        int i=__LOOKUP[c];
+        if (i>=0)
+            return _tree[row*__ROW+i];
+        char[] big=_bigIndex[row];
+        return big==null?0:big[c];
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /** Get the row for the bytes of a buffer, adding rows as needed
+     */
+    private int row(Buffer buffer)
+    {
+        int row=0;
+        for (int i=buffer.getIndex();i<buffer.putIndex();i++)
+        {
+            int c=buffer.peek(i)&0xff;
+            int next=next(row,(byte)c);
+            if (next==0)
+            {
+                next=newRow();
+                int t=__LOOKUP[c];
+                if (t>=0)
+                    _tree[row*__ROW+t]=(char)next;
+                else
+                {
+                    if (_bigIndex[row]==null)
+                        _bigIndex[row]=new char[256];
+                    _bigIndex[row][c]=(char)next;
+                }
+            }
+            row=next;
+        }
+        return row;
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    private int newRow()
+    {
+        if (_rows==Character.MAX_VALUE)
+            throw new IllegalStateException("Too many rows");
+        if (_rows==_values.length)
+        {
+            int rows=_rows*2;
+            char[] tree=new char[rows*__ROW];
+            System.arraycopy(_tree,0,tree,0,_tree.length);
+            _tree=tree;
+            char[][] bigIndex=new char[rows][];
+            System.arraycopy(_bigIndex,0,bigIndex,0,_rows);
+            _bigIndex=bigIndex;
+            CachedBuffer[] values=new CachedBuffer[rows];
+            System.arraycopy(_values,0,values,0,_rows);
+            _values=values;
+        }
+        return _rows++;
+    }
+
     public static class CachedBuffer extends ByteArrayBuffer.CaseInsensitive
     {
         private final int _ordinal;
@@ -156,7 +283,7 @@ public class BufferCache
     public String toString()
     {
         return "CACHE["+
-        	"bufferMap="+_bufferMap+
+        	"rows="+_rows+
         	",stringMap="+_stringMap+
         	",index="+_index+
         	"]";
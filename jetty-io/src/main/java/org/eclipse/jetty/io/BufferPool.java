@@ -0,0 +1,422 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.io.nio.IndirectNIOBuffer;
+import org.eclipse.jetty.io.nio.SlabAllocator;
+
+/* ------------------------------------------------------------ */
+/** A shared pool of buffers.
+ * <p>
+ * Buffers are pooled in buckets by {@link Buffers.Type} and capacity. Each
+ * bucket has a small per thread magazine of buffers, so that a thread that
+ * returns and gets buffers of the same size does so without contention, backed
+ * by a lock free depot shared by all threads. The buffers held in the depots
+ * are limited by {@link #getMaxRetainedBytes()}, while the magazines hold at most
+ * {@link #getMagazineSize()} buffers per bucket per thread.
+ * <p>
+ * Buffers are only pooled if their capacity is not more than {@link #getMaxCapacity()},
+ * they were obtained from the pool and they are of exactly the {@link ByteArrayBuffer},
+ * {@link IndirectNIOBuffer} or {@link DirectNIOBuffer} classes.
+ * Odd sized requests should be rounded up with {@link #sizeClass(int)}, so that
+ * the number of buckets stays small.
+ * <p>
+ * If a {@link SlabAllocator} is set, direct buffers are carved from its slabs
+ * and buffers that are not pooled are released back to their slab.
+ * @see SharedBuffers
+ * @see BuffersFactory#getBufferPool()
+ */
+public class BufferPool
+{
+    private final ConcurrentMap<Integer,Bucket> _direct = new ConcurrentHashMap<Integer,Bucket>();
+    private final ConcurrentMap<Integer,Bucket> _indirect = new ConcurrentHashMap<Integer,Bucket>();
+    private final ConcurrentMap<Integer,Bucket> _byteArray = new ConcurrentHashMap<Integer,Bucket>();
+    private final AtomicLong _retainedBytes = new AtomicLong();
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _allocations = new AtomicLong();
+    private final AtomicLong _discards = new AtomicLong();
+    private volatile long _maxRetainedBytes=Runtime.getRuntime().maxMemory()/16;
+    private volatile int _maxCapacity=1024*1024;
+    private volatile int _magazineSize=2;
+    private volatile SlabAllocator _slabAllocator;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param size A buffer size
+     * @return The smallest power of 2 that is at least the size (and at least 256).
+     */
+    public static int sizeClass(int size)
+    {
+        if (size<=256)
+            return 256;
+        int c=Integer.highestOneBit(size);
+        return c==size?c:(c<<1);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of bytes held in the shared depots.
+     */
+    public long getMaxRetainedBytes()
+    {
+        return _maxRetainedBytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxRetainedBytes The maximum number of bytes held in the shared depots.
+     */
+    public void setMaxRetainedBytes(long maxRetainedBytes)
+    {
+        _maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The capacity above which buffers are not pooled.
+     */
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxCapacity The capacity above which buffers are not pooled.
+     */
+    public void setMaxCapacity(int maxCapacity)
+    {
+        _maxCapacity = maxCapacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of buffers held per thread for each bucket.
+     */
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param magazineSize The maximum number of buffers held per thread for each bucket.
+     * Changes only affect buckets and threads that have not yet used the pool.
+     */
+    public void setMagazineSize(int magazineSize)
+    {
+        _magazineSize = magazineSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The allocator of direct buffers, or null if they are allocated individually.
+     */
+    public SlabAllocator getSlabAllocator()
+    {
+        return _slabAllocator;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param slabAllocator The allocator of direct buffers, or null to allocate them individually.
+     * Direct buffers already pooled are not affected.
+     */
+    public void setSlabAllocator(SlabAllocator slabAllocator)
+    {
+        _slabAllocator = slabAllocator;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes currently held in the shared depots.
+     */
+    public long getRetainedBytes()
+    {
+        return _retainedBytes.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers obtained from the pool.
+     */
+    public long getHits()
+    {
+        return _hits.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of poolable buffers that had to be allocated.
+     */
+    public long getMisses()
+    {
+        return _misses.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers allocated, including those too large to be pooled.
+     */
+    public long getAllocations()
+    {
+        return _allocations.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of returned buffers that were not pooled.
+     */
+    public long getDiscards()
+    {
+        return _discards.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buckets.
+     */
+    public int getBuckets()
+    {
+        return _direct.size()+_indirect.size()+_byteArray.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Reset the statistics counters.
+     */
+    public void statsReset()
+    {
+        _hits.set(0);
+        _misses.set(0);
+        _allocations.set(0);
+        _discards.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Get a buffer from the pool.
+     * @param type The type of the buffer
+     * @param capacity The exact capacity of the buffer
+     * @return A pooled buffer or a new buffer.
+     */
+    public Buffer acquire(Buffers.Type type, int capacity)
+    {
+        if (capacity>_maxCapacity)
+        {
+            _allocations.incrementAndGet();
+            return newBuffer(type,capacity);
+        }
+
+        Bucket bucket = getBucket(type,capacity,true);
+        Magazine magazine = bucket._magazines.get();
+        if (magazine._size>0)
+        {
+            Buffer buffer=magazine._buffers[--magazine._size];
+            magazine._buffers[magazine._size]=null;
+            _hits.incrementAndGet();
+            return buffer;
+        }
+
+        Buffer buffer=bucket._depot.poll();
+        if (buffer!=null)
+        {
+            _retainedBytes.addAndGet(-capacity);
+            _hits.incrementAndGet();
+            return buffer;
+        }
+
+        _misses.incrementAndGet();
+        _allocations.incrementAndGet();
+        return newBuffer(type,capacity);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Return a buffer to the pool.
+     * The buffer is cleared and pooled if it is poolable and there is space for it.
+     * @param buffer The buffer to return
+     */
+    public void release(Buffer buffer)
+    {
+        buffer.clear();
+        if (buffer.isVolatile() || buffer.isImmutable())
+            return;
+
+        Buffers.Type type = typeOf(buffer);
+        int capacity=buffer.capacity();
+        Bucket bucket = (type==null || capacity>_maxCapacity)?null:getBucket(type,capacity,false);
+        if (bucket==null)
+        {
+            discard(buffer);
+            return;
+        }
+
+        Magazine magazine = bucket._magazines.get();
+        if (magazine._size<magazine._buffers.length)
+        {
+            magazine._buffers[magazine._size++]=buffer;
+            return;
+        }
+
+        if (_retainedBytes.addAndGet(capacity)>_maxRetainedBytes)
+        {
+            _retainedBytes.addAndGet(-capacity);
+            discard(buffer);
+            return;
+        }
+        bucket._depot.offer(buffer);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void discard(Buffer buffer)
+    {
+        _discards.incrementAndGet();
+        SlabAllocator slabAllocator=_slabAllocator;
+        if (slabAllocator!=null)
+            slabAllocator.release(buffer);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Empty the shared depots.
+     * Buffers held in per thread magazines are not released.
+     */
+    public void clear()
+    {
+        clear(_direct);
+        clear(_indirect);
+        clear(_byteArray);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void clear(ConcurrentMap<Integer,Bucket> buckets)
+    {
+        for (Bucket bucket : buckets.values())
+        {
+            Buffer buffer=bucket._depot.poll();
+            while (buffer!=null)
+            {
+                _retainedBytes.addAndGet(-buffer.capacity());
+                SlabAllocator slabAllocator=_slabAllocator;
+                if (slabAllocator!=null)
+                    slabAllocator.release(buffer);
+                buffer=bucket._depot.poll();
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private Bucket getBucket(Buffers.Type type, int capacity, boolean create)
+    {
+        ConcurrentMap<Integer,Bucket> buckets;
+        switch(type)
+        {
+            case DIRECT:
+                buckets=_direct;
+                break;
+            case INDIRECT:
+                buckets=_indirect;
+                break;
+            default:
+                buckets=_byteArray;
+        }
+
+        Integer key=Integer.valueOf(capacity);
+        Bucket bucket=buckets.get(key);
+        if (bucket==null && create)
+        {
+            bucket=new Bucket(_magazineSize);
+            Bucket b=buckets.putIfAbsent(key,bucket);
+            if (b!=null)
+                bucket=b;
+        }
+        return bucket;
+    }
+
+    /* ------------------------------------------------------------ */
+    private Buffers.Type typeOf(Buffer buffer)
+    {
+        Class<?> c=buffer.getClass();
+        if (c==DirectNIOBuffer.class)
+            return Buffers.Type.DIRECT;
+        if (c==SlabAllocator.SlabBuffer.class && ((SlabAllocator.SlabBuffer)buffer).getAllocator()==_slabAllocator)
+            return Buffers.Type.DIRECT;
+        if (c==IndirectNIOBuffer.class)
+            return Buffers.Type.INDIRECT;
+        if (c==ByteArrayBuffer.class)
+            return Buffers.Type.BYTE_ARRAY;
+        return null;
+    }
+
+    /* ------------------------------------------------------------ */
+    private Buffer newBuffer(Buffers.Type type, int capacity)
+    {
+        switch(type)
+        {
+            case BYTE_ARRAY:
+                return new ByteArrayBuffer(capacity);
+            case DIRECT:
+                SlabAllocator slabAllocator=_slabAllocator;
+                return slabAllocator==null?new DirectNIOBuffer(capacity):slabAllocator.allocate(capacity);
+            case INDIRECT:
+                return new IndirectNIOBuffer(capacity);
+        }
+        throw new IllegalStateException();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{retained=%d/%d,hits=%d,misses=%d}",getClass().getSimpleName(),hashCode(),getRetainedBytes(),getMaxRetainedBytes(),getHits(),getMisses());
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    private static class Bucket
+    {
+        final Queue<Buffer> _depot = new ConcurrentLinkedQueue<Buffer>();
+        final ThreadLocal<Magazine> _magazines;
+
+        Bucket(final int magazineSize)
+        {
+            _magazines=new ThreadLocal<Magazine>()
+            {
+                @Override
+                protected Magazine initialValue()
+                {
+                    return new Magazine(magazineSize);
+                }
+            };
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    private static class Magazine
+    {
+        final Buffer[] _buffers;
+        int _size;
+
+        Magazine(int size)
+        {
+            _buffers=new Buffer[size];
+        }
+    }
+}
@@ -2,8 +2,38 @@ package org.eclipse.jetty.io;
 
 public class BuffersFactory
 {
+    private static volatile BufferPool __bufferPool = new BufferPool();
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The pool shared by the buffers created by {@link #newBuffers(Buffers.Type, int, Buffers.Type, int, Buffers.Type, int)},
+     * or null if the buffers are not shared.
+     */
+    public static BufferPool getBufferPool()
+    {
+        return __bufferPool;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pool The pool to be shared by the buffers created by {@link #newBuffers(Buffers.Type, int, Buffers.Type, int, Buffers.Type, int)},
+     * or null for each buffers to have its own {@link PooledBuffers} or {@link ThreadLocalBuffers}.
+     */
+    public static void setBufferPool(BufferPool pool)
+    {
+        __bufferPool = pool;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxSize The maximum number of buffers pooled, or -1 for thread local buffers. Only used
+     * if there is no shared {@link #getBufferPool()}.
+     */
     public static Buffers newBuffers(Buffers.Type headerType, int headerSize, Buffers.Type bufferType, int bufferSize, Buffers.Type otherType,int maxSize)
     {
+        BufferPool pool=__bufferPool;
+        if (pool!=null)
+            return new SharedBuffers(pool,headerType,headerSize,bufferType,bufferSize,otherType);
         if (maxSize>=0)
             return new PooledBuffers(headerType,headerSize,bufferType,bufferSize,otherType,maxSize);
         return new ThreadLocalBuffers(headerType,headerSize,bufferType,bufferSize,otherType);
@@ -79,6 +79,18 @@ public interface EndPoint
      */
     int flush(Buffer header, Buffer buffer, Buffer trailer) throws IOException;
 
+    /**
+     * Flush the buffers, in order, from their current getIndex to their putIndex.
+     * The getIndex of each buffer is updated with the number of bytes flushed from it, and
+     * a buffer is only flushed once all the preceding buffers have been flushed. This may be
+     * done either as a single gather write or as several writes, which the implementation is
+     * free to select.
+     * @param buffers The buffers to flush. Null or empty buffers are skipped.
+     * @return the total number of bytes written.
+     * @throws EofException If the endpoint is closed or output is shutdown.
+     */
+    int flush(Buffer... buffers) throws IOException;
+
 
     /* ------------------------------------------------------------ */
     /**
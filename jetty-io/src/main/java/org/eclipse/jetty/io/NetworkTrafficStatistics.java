@@ -0,0 +1,539 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.statistic.StripedCounter;
+
+/* ------------------------------------------------------------ */
+/** Aggregated statistics of network traffic.
+ * <p>
+ * Bytes in and out, the number of reads and writes and the time blocked
+ * waiting for a connection to become writable are counted for all
+ * connections and for each remote subnet. The counters of all connections
+ * and of "other" subnets are {@link StripedCounter}s striped over the processors,
+ * so that the counting does not contend between threads. The counters of
+ * each subnet have a single cell, so that a subnet takes little memory however
+ * many processors there are. Subnets that have spent the most time blocked on
+ * writes are those with slow clients that push back on the server.
+ * <p>
+ * The statistics can be added as a {@link NetworkTrafficListener}, in which case
+ * only bytes are counted and the subnet is looked up for every event. An endpoint
+ * that supports the statistics directly (e.g. one created by a
+ * <code>org.eclipse.jetty.server.nio.NetworkTrafficSelectChannelConnector</code>)
+ * looks up its {@link Traffic} once when opened and also counts the reads, writes
+ * and blocking, without creating views of the buffers.
+ */
+public class NetworkTrafficStatistics implements NetworkTrafficListener
+{
+    private final ConcurrentMap<String,Traffic> _subnets = new ConcurrentHashMap<String,Traffic>();
+    private final Traffic _total = new Traffic("total",true);
+    private final Traffic _other = new Traffic("other",true);
+    private volatile int _ipv4PrefixLength=24;
+    private volatile int _ipv6PrefixLength=64;
+    private volatile int _maxSubnets=1024;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of leading bits of an IPv4 address that identify its subnet
+     */
+    public int getIpv4PrefixLength()
+    {
+        return _ipv4PrefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param prefixLength The number of leading bits of an IPv4 address that identify its subnet
+     */
+    public void setIpv4PrefixLength(int prefixLength)
+    {
+        if (prefixLength<0 || prefixLength>32)
+            throw new IllegalArgumentException("prefixLength "+prefixLength);
+        _ipv4PrefixLength=prefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of leading bits of an IPv6 address that identify its subnet
+     */
+    public int getIpv6PrefixLength()
+    {
+        return _ipv6PrefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param prefixLength The number of leading bits of an IPv6 address that identify its subnet
+     */
+    public void setIpv6PrefixLength(int prefixLength)
+    {
+        if (prefixLength<0 || prefixLength>128)
+            throw new IllegalArgumentException("prefixLength "+prefixLength);
+        _ipv6PrefixLength=prefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of subnets counted separately. Traffic of further subnets is
+     * counted as "other".
+     */
+    public int getMaxSubnets()
+    {
+        return _maxSubnets;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxSubnets The maximum number of subnets counted separately. Traffic of further
+     * subnets is counted as "other".
+     */
+    public void setMaxSubnets(int maxSubnets)
+    {
+        _maxSubnets=maxSubnets;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The traffic of all connections
+     */
+    public Traffic getTotal()
+    {
+        return _total;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param socket The socket of a connection
+     * @return The traffic of the subnet of the remote address of the socket
+     */
+    public Traffic getTraffic(Socket socket)
+    {
+        InetAddress address=socket.getInetAddress();
+        if (address==null)
+            return _other;
+
+        String subnet=subnetOf(address);
+        Traffic traffic=_subnets.get(subnet);
+        if (traffic==null)
+        {
+            if (_subnets.size()>=_maxSubnets)
+                return _other;
+            traffic=new Traffic(subnet);
+            Traffic t=_subnets.putIfAbsent(subnet,traffic);
+            if (t!=null)
+                traffic=t;
+        }
+        return traffic;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param address An address
+     * @return The subnet of the address in CIDR notation
+     */
+    public String subnetOf(InetAddress address)
+    {
+        byte[] bytes=address.getAddress();
+        int prefixLength=bytes.length==4?_ipv4PrefixLength:_ipv6PrefixLength;
+        for (int i=0;i<bytes.length;i++)
+        {
+            int bits=prefixLength-i*8;
+            if (bits<=0)
+                bytes[i]=0;
+            else if (bits<8)
+                bytes[i]&=(byte)(0xff<<(8-bits));
+        }
+
+        try
+        {
+            return InetAddress.getByAddress(bytes).getHostAddress()+"/"+prefixLength;
+        }
+        catch (UnknownHostException e)
+        {
+            // Cannot happen for an address of a valid length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The traffic of each subnet, with the subnets most blocked on writes first
+     */
+    public List<Traffic> getSubnetTraffic()
+    {
+        List<Traffic> subnets=new ArrayList<Traffic>(_subnets.values());
+        if (_other.getConnections()>0)
+            subnets.add(_other);
+        Collections.sort(subnets,new Comparator<Traffic>()
+        {
+            public int compare(Traffic t1, Traffic t2)
+            {
+                long b1=t1.getWriteBlockedTime();
+                long b2=t2.getWriteBlockedTime();
+                return b1>b2?-1:(b1==b2?t1.getName().compareTo(t2.getName()):1);
+            }
+        });
+        return subnets;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return A description of the traffic of each subnet, with the subnets most blocked on writes first
+     */
+    public String[] getSubnets()
+    {
+        List<Traffic> subnets=getSubnetTraffic();
+        String[] descriptions=new String[subnets.size()];
+        for (int i=0;i<descriptions.length;i++)
+            descriptions[i]=subnets.get(i).toString();
+        return descriptions;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of connections opened
+     */
+    public long getConnections()
+    {
+        return _total.getConnections();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes read from all connections
+     */
+    public long getBytesIn()
+    {
+        return _total.getBytesIn();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes written to all connections
+     */
+    public long getBytesOut()
+    {
+        return _total.getBytesOut();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of reads from all connections that read some bytes,
+     * not counting empty non blocking reads or end of file
+     */
+    public long getReads()
+    {
+        return _total.getReads();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of writes to all connections that wrote some bytes
+     */
+    public long getWrites()
+    {
+        return _total.getWrites();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean number of bytes per read
+     */
+    public double getBytesPerRead()
+    {
+        return _total.getBytesPerRead();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean number of bytes per write
+     */
+    public double getBytesPerWrite()
+    {
+        return _total.getBytesPerWrite();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of times a write blocked waiting for a connection to be writable
+     */
+    public long getWriteBlocks()
+    {
+        return _total.getWriteBlocks();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The total time in ms that writes blocked waiting for a connection to be writable
+     */
+    public long getWriteBlockedTime()
+    {
+        return _total.getWriteBlockedTime();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Reset the statistics and forget the subnets.
+     */
+    public void statsReset()
+    {
+        _subnets.clear();
+        _total.reset();
+        _other.reset();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param traffic The traffic of the subnet of an opened connection
+     */
+    public void opened(Traffic traffic)
+    {
+        _total._connections.increment();
+        traffic._connections.increment();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param traffic The traffic of the subnet of the connection
+     * @param bytes The number of bytes read, or -1 if the connection was at EOF
+     */
+    public void read(Traffic traffic, int bytes)
+    {
+        _total.read(bytes);
+        traffic.read(bytes);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param traffic The traffic of the subnet of the connection
+     * @param bytes The number of bytes written
+     */
+    public void written(Traffic traffic, int bytes)
+    {
+        _total.written(bytes);
+        traffic.written(bytes);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param traffic The traffic of the subnet of the connection
+     * @param nanos The time in ns that a write blocked waiting for the connection to be writable
+     */
+    public void blocked(Traffic traffic, long nanos)
+    {
+        _total.blocked(nanos);
+        traffic.blocked(nanos);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void opened(Socket socket)
+    {
+        opened(getTraffic(socket));
+    }
+
+    /* ------------------------------------------------------------ */
+    public void incoming(Socket socket, Buffer bytes)
+    {
+        Traffic traffic=getTraffic(socket);
+        int length=bytes.length();
+        _total._bytesIn.add(length);
+        traffic._bytesIn.add(length);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void outgoing(Socket socket, Buffer bytes)
+    {
+        Traffic traffic=getTraffic(socket);
+        int length=bytes.length();
+        _total._bytesOut.add(length);
+        traffic._bytesOut.add(length);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void closed(Socket socket)
+    {
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{subnets=%d,%s}",getClass().getSimpleName(),hashCode(),_subnets.size(),_total);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** The traffic of all connections or of a subnet.
+     */
+    public static class Traffic
+    {
+        private final String _name;
+        private final StripedCounter _connections;
+        private final StripedCounter _bytesIn;
+        private final StripedCounter _bytesOut;
+        private final StripedCounter _reads;
+        private final StripedCounter _writes;
+        private final StripedCounter _writeBlocks;
+        private final StripedCounter _writeBlockedNanos;
+
+        /* ------------------------------------------------------------ */
+        Traffic(String name)
+        {
+            this(name,false);
+        }
+
+        /* ------------------------------------------------------------ */
+        Traffic(String name, boolean striped)
+        {
+            _name=name;
+            _connections=newCounter(striped);
+            _bytesIn=newCounter(striped);
+            _bytesOut=newCounter(striped);
+            _reads=newCounter(striped);
+            _writes=newCounter(striped);
+            _writeBlocks=newCounter(striped);
+            _writeBlockedNanos=newCounter(striped);
+        }
+
+        /* ------------------------------------------------------------ */
+        private static StripedCounter newCounter(boolean striped)
+        {
+            return striped?new StripedCounter():new StripedCounter(1);
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The subnet in CIDR notation, "total" or "other"
+         */
+        public String getName()
+        {
+            return _name;
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getConnections()
+        {
+            return _connections.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getBytesIn()
+        {
+            return _bytesIn.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getBytesOut()
+        {
+            return _bytesOut.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getReads()
+        {
+            return _reads.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getWrites()
+        {
+            return _writes.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        public double getBytesPerRead()
+        {
+            long reads=getReads();
+            return reads==0?0.0:((double)getBytesIn())/reads;
+        }
+
+        /* ------------------------------------------------------------ */
+        public double getBytesPerWrite()
+        {
+            long writes=getWrites();
+            return writes==0?0.0:((double)getBytesOut())/writes;
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getWriteBlocks()
+        {
+            return _writeBlocks.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The time in ms blocked waiting for connections to be writable
+         */
+        public long getWriteBlockedTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(_writeBlockedNanos.get());
+        }
+
+        /* ------------------------------------------------------------ */
+        void read(int bytes)
+        {
+            if (bytes>0)
+            {
+                _reads.increment();
+                _bytesIn.add(bytes);
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        void written(int bytes)
+        {
+            if (bytes>0)
+            {
+                _writes.increment();
+                _bytesOut.add(bytes);
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        void blocked(long nanos)
+        {
+            _writeBlocks.increment();
+            _writeBlockedNanos.add(nanos);
+        }
+
+        /* ------------------------------------------------------------ */
+        void reset()
+        {
+            _connections.reset();
+            _bytesIn.reset();
+            _bytesOut.reset();
+            _reads.reset();
+            _writes.reset();
+            _writeBlocks.reset();
+            _writeBlockedNanos.reset();
+        }
+
+        /* ------------------------------------------------------------ */
+        @Override
+        public String toString()
+        {
+            return String.format("%s{connections=%d,in=%d/%d,out=%d/%d,blocked=%d/%dms}",_name,getConnections(),getBytesIn(),getReads(),getBytesOut(),getWrites(),getWriteBlocks(),getWriteBlockedTime());
+        }
+    }
+}
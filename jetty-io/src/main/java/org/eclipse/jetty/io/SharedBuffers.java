@@ -0,0 +1,76 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+/* ------------------------------------------------------------ */
+/** Buffers from a shared {@link BufferPool}.
+ * Header and buffer sized buffers are obtained with their exact size, while
+ * other sizes are rounded up to the {@link BufferPool#sizeClass(int)}.
+ */
+public class SharedBuffers extends AbstractBuffers
+{
+    private final BufferPool _pool;
+    private final boolean _otherHeaders;
+    private final boolean _otherBuffers;
+
+    /* ------------------------------------------------------------ */
+    public SharedBuffers(BufferPool pool, Buffers.Type headerType, int headerSize, Buffers.Type bufferType, int bufferSize, Buffers.Type otherType)
+    {
+        super(headerType,headerSize,bufferType,bufferSize,otherType);
+        _pool=pool;
+        _otherHeaders=headerType==otherType;
+        _otherBuffers=bufferType==otherType;
+    }
+
+    /* ------------------------------------------------------------ */
+    public BufferPool getBufferPool()
+    {
+        return _pool;
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getHeader()
+    {
+        return _pool.acquire(_headerType,_headerSize);
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getBuffer()
+    {
+        return _pool.acquire(_bufferType,_bufferSize);
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getBuffer(int size)
+    {
+        if (_otherHeaders && size==getHeaderSize())
+            return getHeader();
+        if (_otherBuffers && size==getBufferSize())
+            return getBuffer();
+        return _pool.acquire(_otherType,BufferPool.sizeClass(size));
+    }
+
+    /* ------------------------------------------------------------ */
+    public void returnBuffer(Buffer buffer)
+    {
+        _pool.release(buffer);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return "{{"+getHeaderSize()+","+getBufferSize()+"},"+_pool+"}";
+    }
+}
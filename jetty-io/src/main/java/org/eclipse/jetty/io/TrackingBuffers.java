@@ -0,0 +1,336 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/* ------------------------------------------------------------ */
+/** Buffers that track the buffers obtained from another {@link Buffers}.
+ * <p>
+ * The number of buffers obtained and not yet returned is counted. Buffers
+ * obtained via {@link #newBuffers(EndPoint)} are owned by the {@link EndPoint}
+ * and the stack of the acquiring thread is recorded for a sample of them.
+ * Any owned buffers not returned when
+ * {@link EndPointBuffers#close()} is called (normally when the endpoint is
+ * closed) are reported as leaked, together with their acquiring stack if it
+ * was sampled.
+ * <p>
+ * Tracking is intended to find pool leaks and has a cost for every buffer
+ * obtained, so it is normally only enabled while diagnosing.
+ */
+public class TrackingBuffers implements Buffers
+{
+    private static final Logger LOG = Log.getLogger(TrackingBuffers.class);
+
+    private final Buffers _buffers;
+    private final AtomicLong _acquired = new AtomicLong();
+    private final AtomicLong _returned = new AtomicLong();
+    private final AtomicLong _leaked = new AtomicLong();
+    private final AtomicLong _sampled = new AtomicLong();
+    private volatile int _samplePeriod;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param buffers The buffers to track
+     * @param sampleRatio The fraction of buffers for which the acquiring stack is recorded
+     */
+    public TrackingBuffers(Buffers buffers, double sampleRatio)
+    {
+        _buffers=buffers;
+        setSampleRatio(sampleRatio);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The tracked buffers
+     */
+    public Buffers getBuffers()
+    {
+        return _buffers;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The fraction of buffers for which the acquiring stack is recorded.
+     */
+    public double getSampleRatio()
+    {
+        int period=_samplePeriod;
+        return period==0?0.0:1.0/period;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param sampleRatio The fraction of buffers for which the acquiring stack is recorded.
+     * 0 records no stacks and 1 records the stack of every buffer.
+     */
+    public void setSampleRatio(double sampleRatio)
+    {
+        if (sampleRatio<0 || sampleRatio>1)
+            throw new IllegalArgumentException("sampleRatio "+sampleRatio);
+        _samplePeriod=sampleRatio==0?0:(int)Math.round(1.0/sampleRatio);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers obtained.
+     */
+    public long getAcquired()
+    {
+        return _acquired.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers obtained and not returned, including leaked buffers.
+     */
+    public long getOutstanding()
+    {
+        return _acquired.get()-_returned.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers not returned when their owning {@link EndPoint} closed, and not returned since.
+     */
+    public long getLeaked()
+    {
+        return _leaked.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers for which the acquiring stack was recorded.
+     */
+    public long getSampled()
+    {
+        return _sampled.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param endpoint The endpoint that will own the buffers
+     * @return Buffers that track the buffers obtained by the endpoint.
+     */
+    public EndPointBuffers newBuffers(EndPoint endpoint)
+    {
+        return new EndPointBuffers(endpoint);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Get buffers owned by an endpoint, if the buffers are tracked.
+     * @param buffers The buffers
+     * @param endpoint The endpoint that will own the buffers
+     * @return {@link #newBuffers(EndPoint)} if the buffers are a TrackingBuffers, else the passed buffers
+     */
+    public static Buffers newBuffers(Buffers buffers, EndPoint endpoint)
+    {
+        if (buffers instanceof TrackingBuffers)
+            return ((TrackingBuffers)buffers).newBuffers(endpoint);
+        return buffers;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Close buffers owned by an endpoint, if they are tracked.
+     * @param buffers The buffers obtained from {@link #newBuffers(Buffers, EndPoint)}
+     */
+    public static void close(Buffers buffers)
+    {
+        if (buffers instanceof EndPointBuffers)
+            ((EndPointBuffers)buffers).close();
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getHeader()
+    {
+        return acquired(_buffers.getHeader());
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getBuffer()
+    {
+        return acquired(_buffers.getBuffer());
+    }
+
+    /* ------------------------------------------------------------ */
+    public Buffer getBuffer(int size)
+    {
+        return acquired(_buffers.getBuffer(size));
+    }
+
+    /* ------------------------------------------------------------ */
+    public void returnBuffer(Buffer buffer)
+    {
+        _returned.incrementAndGet();
+        _buffers.returnBuffer(buffer);
+    }
+
+    /* ------------------------------------------------------------ */
+    private Buffer acquired(Buffer buffer)
+    {
+        _acquired.incrementAndGet();
+        return buffer;
+    }
+
+    /* ------------------------------------------------------------ */
+    private Throwable sample()
+    {
+        int period=_samplePeriod;
+        if (period==0 || _acquired.get()%period!=0)
+            return null;
+        _sampled.incrementAndGet();
+        return new Throwable("Acquired by "+Thread.currentThread().getName());
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{outstanding=%d,leaked=%d,%s}",getClass().getSimpleName(),hashCode(),getOutstanding(),getLeaked(),_buffers);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** Buffers owned by an {@link EndPoint}.
+     */
+    public class EndPointBuffers implements Buffers
+    {
+        private final EndPoint _endp;
+        private final List<Owned> _owned = new ArrayList<Owned>(4);
+        private boolean _closed;
+
+        /* ------------------------------------------------------------ */
+        EndPointBuffers(EndPoint endpoint)
+        {
+            _endp=endpoint;
+        }
+
+        /* ------------------------------------------------------------ */
+        public EndPoint getEndPoint()
+        {
+            return _endp;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The number of buffers obtained by the endpoint and not yet returned.
+         */
+        public int getOutstanding()
+        {
+            synchronized (_owned)
+            {
+                return _owned.size();
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getHeader()
+        {
+            return own(TrackingBuffers.this.getHeader());
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getBuffer()
+        {
+            return own(TrackingBuffers.this.getBuffer());
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getBuffer(int size)
+        {
+            return own(TrackingBuffers.this.getBuffer(size));
+        }
+
+        /* ------------------------------------------------------------ */
+        public void returnBuffer(Buffer buffer)
+        {
+            synchronized (_owned)
+            {
+                for (int i=_owned.size();i-->0;)
+                {
+                    if (_owned.get(i)._buffer==buffer)
+                    {
+                        _owned.remove(i);
+                        if (_closed)
+                        {
+                            _leaked.decrementAndGet();
+                            LOG.debug("Returned {} after close of {}",buffer,_endp);
+                        }
+                        break;
+                    }
+                }
+            }
+            TrackingBuffers.this.returnBuffer(buffer);
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Report the buffers obtained by the endpoint that have not been returned.
+         * The buffers are counted as leaked until they are returned, if ever.
+         */
+        public void close()
+        {
+            synchronized (_owned)
+            {
+                if (_closed)
+                    return;
+                _closed=true;
+                for (Owned owned : _owned)
+                {
+                    _leaked.incrementAndGet();
+                    if (owned._acquired==null)
+                        LOG.debug("Leaked {} by {}",owned._buffer,_endp);
+                    else
+                        LOG.warn("Leaked "+owned._buffer.getClass().getSimpleName()+"["+owned._buffer.capacity()+"] by "+_endp,owned._acquired);
+                }
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        private Buffer own(Buffer buffer)
+        {
+            Owned owned=new Owned(buffer,sample());
+            synchronized (_owned)
+            {
+                _owned.add(owned);
+            }
+            return buffer;
+        }
+
+        /* ------------------------------------------------------------ */
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,outstanding=%d}",getClass().getSimpleName(),hashCode(),_endp,getOutstanding());
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    private static class Owned
+    {
+        final Buffer _buffer;
+        final Throwable _acquired;
+
+        Owned(Buffer buffer, Throwable acquired)
+        {
+            _buffer=buffer;
+            _acquired=acquired;
+        }
+    }
+}
@@ -209,6 +209,30 @@ public class StreamEndPoint implements EndPoint
         return len;
     }
 
+    /* (non-Javadoc)
+     * @see org.eclipse.io.BufferIO#flush(org.eclipse.io.Buffer[])
+     */
+    public int flush(Buffer... buffers) throws IOException
+    {
+        int len=0;
+        for (Buffer buffer : buffers)
+        {
+            if (buffer==null)
+                continue;
+            int tw=buffer.length();
+            if (tw>0)
+            {
+                int f=flush(buffer);
+                if (f<0)
+                    return len>0?len:f;
+                len+=f;
+                if (f<tw)
+                    return len;
+            }
+        }
+        return len;
+    }
+
     /* ------------------------------------------------------------ */
     /*
      * @see org.eclipse.io.EndPoint#getLocalAddr()
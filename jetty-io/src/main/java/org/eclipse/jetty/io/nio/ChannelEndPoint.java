@@ -409,6 +409,109 @@ public class ChannelEndPoint implements EndPoint
         return length;
     }
 
+    /* ------------------------------------------------------------ */
+    /* (non-Javadoc)
+     * @see org.eclipse.io.EndPoint#flush(org.eclipse.io.Buffer[])
+     */
+    public int flush(Buffer... buffers) throws IOException
+    {
+        int n=0;
+        for (Buffer buffer : buffers)
+            if (buffer!=null && buffer.length()>0)
+                n++;
+
+        ByteBuffer[] bbufs=null;
+        Buffer[] parts=buffers;
+        if (n>1 && _channel instanceof GatheringByteChannel)
+        {
+            // Wrap each buffer as a ByteBuffer without copying, unless one cannot be wrapped
+            bbufs=new ByteBuffer[n];
+            parts=new Buffer[n];
+            int i=0;
+            for (Buffer buffer : buffers)
+            {
+                if (buffer==null || buffer.length()==0)
+                    continue;
+                ByteBuffer bbuf=wrap(buffer);
+                if (bbuf==null)
+                {
+                    bbufs=null;
+                    parts=buffers;
+                    break;
+                }
+                parts[i]=buffer;
+                bbufs[i++]=bbuf;
+            }
+        }
+
+        if (bbufs!=null)
+            return gatheringFlush(parts,bbufs);
+
+        int length=0;
+        for (Buffer buffer : parts)
+        {
+            if (buffer!=null && buffer.length()>0)
+            {
+                length+=flush(buffer);
+                if (buffer.length()>0)
+                    break;
+            }
+        }
+        return length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param buffer The buffer to wrap
+     * @return A ByteBuffer sharing the content between the get and put indexes of the buffer,
+     * or null if the buffer is not backed by a ByteBuffer or an array.
+     */
+    private static ByteBuffer wrap(Buffer buffer)
+    {
+        Buffer buf=buffer.buffer();
+        if (buf instanceof NIOBuffer)
+        {
+            // Duplicate so the buffer can be shared (eg cached content) without synchronizing
+            ByteBuffer bbuf=((NIOBuffer)buf).getByteBuffer().duplicate();
+            bbuf.clear();
+            bbuf.limit(buffer.putIndex());
+            bbuf.position(buffer.getIndex());
+            return bbuf;
+        }
+        if (buffer.array()!=null)
+            return ByteBuffer.wrap(buffer.array(),buffer.getIndex(),buffer.length());
+        return null;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Write buffers with a single gathering write.
+     * @param buffers The non empty buffers to write
+     * @param bbufs The ByteBuffers wrapping the content of each buffer
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    protected int gatheringFlush(Buffer[] buffers, ByteBuffer[] bbufs) throws IOException
+    {
+        long length=((GatheringByteChannel)_channel).write(bbufs);
+
+        long remaining=length;
+        for (int i=0;i<buffers.length && remaining>0;i++)
+        {
+            int l=buffers[i].length();
+            if (remaining>=l)
+            {
+                buffers[i].skip(l);
+                remaining-=l;
+            }
+            else
+            {
+                buffers[i].skip((int)remaining);
+                remaining=0;
+            }
+        }
+        return (int)length;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @return Returns the channel.
@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.io.NetworkTrafficListener;
+import org.eclipse.jetty.io.NetworkTrafficStatistics;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -29,17 +30,28 @@ public class NetworkTrafficSelectChannelEndPoint extends SelectChannelEndPoint
     private static final Logger LOG = Log.getLogger(NetworkTrafficSelectChannelEndPoint.class);
 
     private final List<NetworkTrafficListener> listeners;
+    private final NetworkTrafficStatistics statistics;
+    private final NetworkTrafficStatistics.Traffic traffic;
 
     public NetworkTrafficSelectChannelEndPoint(SocketChannel channel, SelectorManager.SelectSet selectSet, SelectionKey key, int maxIdleTime, List<NetworkTrafficListener> listeners) throws IOException
+    {
+        this(channel, selectSet, key, maxIdleTime, listeners, null);
+    }
+
+    public NetworkTrafficSelectChannelEndPoint(SocketChannel channel, SelectorManager.SelectSet selectSet, SelectionKey key, int maxIdleTime, List<NetworkTrafficListener> listeners, NetworkTrafficStatistics statistics) throws IOException
     {
         super(channel, selectSet, key, maxIdleTime);
         this.listeners = listeners;
+        this.statistics = statistics;
+        this.traffic = statistics == null ? null : statistics.getTraffic(_socket);
     }
 
     @Override
     public int fill(Buffer buffer) throws IOException
     {
         int read = super.fill(buffer);
+        if (statistics != null)
+            statistics.read(traffic, read);
         notifyIncoming(buffer, read);
         return read;
     }
@@ -49,6 +61,8 @@ public class NetworkTrafficSelectChannelEndPoint extends SelectChannelEndPoint
     {
         int position = buffer.getIndex();
         int written = super.flush(buffer);
+        if (statistics != null)
+            statistics.written(traffic, written);
         notifyOutgoing(buffer, position, written);
         return written;
     }
@@ -60,13 +74,47 @@ public class NetworkTrafficSelectChannelEndPoint extends SelectChannelEndPoint
         int headerLength = header.length();
         int bufferPosition = buffer.getIndex();
         int written = super.gatheringFlush(header, bbuf0, buffer,bbuf1);
+        if (statistics != null)
+            statistics.written(traffic, written);
         notifyOutgoing(header, headerPosition, written > headerLength ? headerLength : written);
         notifyOutgoing(buffer, bufferPosition, written > headerLength ? written - headerLength : 0);
         return written;
     }
 
+    @Override
+    protected int gatheringFlush(Buffer[] buffers, ByteBuffer[] bbufs) throws IOException
+    {
+        int[] positions = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++)
+            positions[i] = buffers[i].getIndex();
+        int written = super.gatheringFlush(buffers, bbufs);
+        if (statistics != null)
+            statistics.written(traffic, written);
+        for (int i = 0; i < buffers.length; i++)
+            notifyOutgoing(buffers[i], positions[i], buffers[i].getIndex() - positions[i]);
+        return written;
+    }
+
+    @Override
+    public boolean blockWritable(long timeoutMs) throws IOException
+    {
+        if (statistics == null)
+            return super.blockWritable(timeoutMs);
+        long start = System.nanoTime();
+        try
+        {
+            return super.blockWritable(timeoutMs);
+        }
+        finally
+        {
+            statistics.blocked(traffic, System.nanoTime() - start);
+        }
+    }
+
     public void notifyOpened()
     {
+        if (statistics != null)
+            statistics.opened(traffic);
         if (listeners != null && !listeners.isEmpty())
         {
             for (NetworkTrafficListener listener : listeners)
@@ -84,7 +84,8 @@ public class RandomAccessFileBuffer extends AbstractBuffer implements Buffer
             synchronized (_file)
             {
                 super.clear();
-                _file.setLength(0);
+                if (!isReadOnly())
+                    _file.setLength(0);
             }
         }
         catch(Exception e)
@@ -186,5 +187,15 @@ public class RandomAccessFileBuffer extends AbstractBuffer implements Buffer
             return (int)_channel.transferTo(index,length,channel);
         }
     }
+
+    /**
+     * Close the underlying file.
+     * @throws IOException
+     */
+    public void close()
+        throws IOException
+    {
+        _file.close();
+    }
     
 }
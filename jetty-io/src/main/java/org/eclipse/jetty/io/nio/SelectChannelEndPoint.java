@@ -14,6 +14,7 @@
 package org.eclipse.jetty.io.nio;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -48,6 +49,9 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     /** The desired value for {@link SelectionKey#interestOps()} */
     private int _interestOps;
 
+    /** true if a change has been added to the select set and {@link #doUpdateKey()} has not yet been called */
+    private boolean _changePending;
+
     /**
      * The connection instance is the handler for any IO activity on the endpoint.
      * There is a different type of connection for HTTP, AJP, WebSocket and
@@ -62,6 +66,12 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     /** true if a non IO dispatch (eg async resume) is outstanding */
     private boolean _asyncDispatch = false;
 
+    /** true if the endpoint is to be dispatched to another thread when undispatched */
+    private boolean _redispatch = false;
+
+    /** The number of times a thread has been dispatched to handle this endpoint */
+    private int _dispatches;
+
     /** true if the last write operation succeed and wrote all offered bytes */
     private volatile boolean _writable = true;
 
@@ -72,6 +82,16 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     /** True if a thread has is blocked in {@link #blockWritable(long)} */
     private boolean _writeBlocked;
 
+    /** The minimum rate in bytes per second at which a blocked writer must be able to write, or 0 */
+    private int _minWriteRate;
+    private long _minWriteRatePeriod=5000;
+
+    /** The bytes flushed and the start of the period over which the write rate is measured */
+    private long _flushed;
+    private long _writeRateBytes;
+    private long _writeRateStart;
+    private long _writeRateLast;
+
     /** true if {@link SelectSet#destroyEndPoint(SelectChannelEndPoint)} has not been called */
     private boolean _open;
 
@@ -219,10 +239,93 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
                     LOG.warn("Dispatched Failed! "+this+" to "+_manager);
                     updateKey();
                 }
+                else
+                    _dispatches++;
             }
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Yield the dispatched thread.
+     * <p>
+     * When the dispatched thread has finished handling the endpoint, the endpoint
+     * is dispatched again to a new thread rather than waiting to be selected. A
+     * connection that has more work buffered, but that has done its fair share of
+     * work for one dispatch, can call this before returning from {@link AsyncConnection#handle()}
+     * so that other connections are not starved of threads.
+     * If the endpoint is not dispatched, it is dispatched as for {@link #asyncDispatch()}.
+     */
+    public void redispatch()
+    {
+        synchronized(this)
+        {
+            if (_dispatched)
+                _redispatch=true;
+            else
+                dispatch();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of times a thread has been dispatched to handle this endpoint
+     */
+    public int getDispatches()
+    {
+        synchronized(this)
+        {
+            return _dispatches;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The minimum rate in bytes per second at which a writer blocked in {@link #blockWritable(long)}
+     * must be able to write, or 0 if the rate is not checked.
+     */
+    public int getMinWriteRate()
+    {
+        return _minWriteRate;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the minimum write rate.
+     * <p>
+     * A slow client that reads the response more slowly than this rate holds a thread
+     * blocked in {@link #blockWritable(long)} for most of the time taken to write the response.
+     * If the rate at which bytes are flushed, measured over each {@link #getMinWriteRatePeriod()}
+     * in which the writer blocks, falls below this rate, the client is evicted:
+     * {@link #blockWritable(long)} returns false as if it had timed out, so that the thread is
+     * freed and the connection is closed.
+     * @param minWriteRate The minimum rate in bytes per second, or 0 to not check the rate.
+     */
+    public void setMinWriteRate(int minWriteRate)
+    {
+        _minWriteRate=minWriteRate;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The period in ms over which the write rate is measured
+     */
+    public long getMinWriteRatePeriod()
+    {
+        return _minWriteRatePeriod;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param period The period in ms over which the write rate is measured
+     */
+    public void setMinWriteRatePeriod(long period)
+    {
+        if (period<=0)
+            throw new IllegalArgumentException("period "+period);
+        _minWriteRatePeriod=period;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * Called when a dispatched thread is no longer handling the endpoint.
@@ -237,9 +340,19 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
             if (_asyncDispatch)
             {
                 _asyncDispatch=false;
+                _redispatch=false;
                 return false;
             }
             _dispatched = false;
+            if (_redispatch)
+            {
+                _redispatch=false;
+                if (getChannel().isOpen())
+                {
+                    dispatch();
+                    return true;
+                }
+            }
             updateKey();
         }
         return true;
@@ -327,6 +440,39 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
         return l;
     }
 
+    /* ------------------------------------------------------------ */
+    /*
+     */
+    @Override
+    public int flush(Buffer... buffers) throws IOException
+    {
+        int l = super.flush(buffers);
+
+        // If there was something to write and it wasn't written, then we are not writable.
+        if (l==0)
+        {
+            for (Buffer buffer : buffers)
+            {
+                if (buffer!=null && buffer.hasContent())
+                {
+                    synchronized (this)
+                    {
+                        _writable=false;
+                        if (!_dispatched)
+                            updateKey();
+                    }
+                    break;
+                }
+            }
+        }
+        else if (l>0)
+        {
+            _writable=true;
+            notIdle();
+        }
+        return l;
+    }
+
     /* ------------------------------------------------------------ */
     /*
      */
@@ -334,6 +480,8 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     public int flush(Buffer buffer) throws IOException
     {
         int l = super.flush(buffer);
+        if (l>0)
+            _flushed+=l;
 
         // If there was something to write and it wasn't written, then we are not writable.
         if (l==0 && buffer!=null && buffer.hasContent())
@@ -354,6 +502,26 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
         return l;
     }
 
+    /* ------------------------------------------------------------ */
+    @Override
+    protected int gatheringFlush(Buffer header, ByteBuffer bbuf0, Buffer buffer, ByteBuffer bbuf1) throws IOException
+    {
+        int l = super.gatheringFlush(header,bbuf0,buffer,bbuf1);
+        if (l>0)
+            _flushed+=l;
+        return l;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected int gatheringFlush(Buffer[] buffers, ByteBuffer[] bbufs) throws IOException
+    {
+        int l = super.gatheringFlush(buffers,bbufs);
+        if (l>0)
+            _flushed+=l;
+        return l;
+    }
+
     /* ------------------------------------------------------------ */
     /*
      * Allows thread to block waiting for further events.
@@ -418,6 +586,14 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
             long end=now+timeoutMs;
             boolean check=isCheckForIdle();
             setCheckForIdle(true);
+
+            // Start a new write rate period if the last block was long ago
+            if (_minWriteRate>0 && now-_writeRateLast>_minWriteRatePeriod)
+            {
+                _writeRateStart=now;
+                _writeRateBytes=_flushed;
+            }
+
             try
             {
                 _writeBlocked=true;
@@ -426,7 +602,10 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
                     try
                     {
                         updateKey();
-                        this.wait(timeoutMs>=0?(end-now):10000);
+                        long wait=timeoutMs>=0?(end-now):10000;
+                        if (_minWriteRate>0 && (wait<=0 || wait>_minWriteRatePeriod))
+                            wait=_minWriteRatePeriod;
+                        this.wait(wait);
                     }
                     catch (InterruptedException e)
                     {
@@ -438,17 +617,43 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
                     }
                     if (_writeBlocked && timeoutMs>0 && now>=end)
                         return false;
+                    if (_writeBlocked && isWriteRateTooLow(now))
+                    {
+                        LOG.debug("Evicting slow client {}",this);
+                        _manager.endPointEvicted(this);
+                        return false;
+                    }
                 }
             }
             finally
             {
                 _writeBlocked=false;
+                _writeRateLast=now;
                 setCheckForIdle(check);
             }
         }
         return true;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Check the write rate at the end of a period and start the next period.
+     * @param now the current time
+     * @return true if the bytes flushed in the period were less than the minimum write rate allows
+     */
+    private boolean isWriteRateTooLow(long now)
+    {
+        long elapsed=now-_writeRateStart;
+        if (_minWriteRate<=0 || elapsed<_minWriteRatePeriod)
+            return false;
+        long bytes=_flushed-_writeRateBytes;
+        if (bytes*1000<(long)_minWriteRate*elapsed)
+            return true;
+        _writeRateStart=now;
+        _writeRateBytes=_flushed;
+        return false;
+    }
+
     /* ------------------------------------------------------------ */
     /* short cut for busyselectChannelServerTest */
     public void clearWritable()
@@ -485,7 +690,8 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     /**
      * Updates selection key. Adds operations types to the selection key as needed. No operations
      * are removed as this is only done during dispatch. This method records the new key and
-     * schedules a call to doUpdateKey to do the keyChange
+     * schedules a call to doUpdateKey to do the keyChange, unless a call is already pending, in
+     * which case the pending call applies the latest interest operations.
      */
     private void updateKey()
     {
@@ -511,7 +717,9 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
                     LOG.ignore(e);
                 }
             }
-            changed=_interestOps!=current_ops;
+            changed=_interestOps!=current_ops && !_changePending;
+            if (changed)
+                _changePending=true;
         }
 
         if(changed)
@@ -530,6 +738,7 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     {
         synchronized (this)
         {
+            _changePending=false;
             if (getChannel().isOpen())
             {
                 if (_interestOps>0)
@@ -706,11 +915,12 @@ public class SelectChannelEndPoint extends ChannelEndPoint implements AsyncEndPo
     {
         synchronized(this)
         {
-            return String.format("SCEP@%x{%s->%s,d=%b,open=%b,ishut=%b,oshut=%b,rb=%b,wb=%b,w=%b,i=%d%s%s%s}",
+            return String.format("SCEP@%x{%s->%s,d=%b/%d,open=%b,ishut=%b,oshut=%b,rb=%b,wb=%b,w=%b,i=%d%s%s%s}",
                     hashCode(),
                     _socket.getRemoteSocketAddress(),
                     _socket.getLocalSocketAddress(),
                     _dispatched,
+                    _dispatches,
                     isOpen(),
                     isInputShutdown(),
                     isOutputShutdown(),
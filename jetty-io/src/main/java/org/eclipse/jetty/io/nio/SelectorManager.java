@@ -23,12 +23,16 @@ import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.io.AsyncEndPoint;
 import org.eclipse.jetty.io.ConnectedEndPoint;
@@ -40,6 +44,8 @@ import org.eclipse.jetty.util.component.AggregateLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.thread.HashedWheelTimeout;
 import org.eclipse.jetty.util.thread.Timeout;
 import org.eclipse.jetty.util.thread.Timeout.Task;
 
@@ -58,15 +64,20 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
     private static final int __MAX_SELECTS=Integer.getInteger("org.eclipse.jetty.io.nio.MAX_SELECTS",100000).intValue();
     private static final int __BUSY_PAUSE=Integer.getInteger("org.eclipse.jetty.io.nio.BUSY_PAUSE",50).intValue();
     private static final int __IDLE_TICK=Integer.getInteger("org.eclipse.jetty.io.nio.IDLE_TICK",400).intValue();
+    private static final int __MAX_ACCEPTS=Integer.getInteger("org.eclipse.jetty.io.nio.MAX_ACCEPTS",64).intValue();
+    private static final int __ACCEPT_RETRY=Integer.getInteger("org.eclipse.jetty.io.nio.ACCEPT_RETRY",100).intValue();
 
     private int _maxIdleTime;
     private int _lowResourcesMaxIdleTime;
     private long _lowResourcesConnections;
+    private volatile boolean _lowResources;
+    private volatile boolean _acceptPaused;
     private SelectSet[] _selectSet;
     private int _selectSets=1;
     private volatile int _set=0;
     private boolean _deferringInterestedOps0=true;
     private int _selectorPriorityDelta=0;
+    private final AtomicLong _evictions = new AtomicLong();
 
     /* ------------------------------------------------------------ */
     /**
@@ -174,10 +185,29 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         int s=_set++;
         if (s<0)
             s=-s;
-        s=s%_selectSets;
-        SelectSet set=_selectSet[s];
-        set.addChange(acceptChannel);
-        set.wakeup();
+        register(acceptChannel,s%_selectSets);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Register a {@link ServerSocketChannel} with a specific select set.
+     * <p>
+     * The select set will select the channel for OP_ACCEPT and will register
+     * accepted connections with its own selector, so that accept, registration
+     * and IO for those connections are all done by the one selecting thread.
+     * The same channel may be registered with several select sets.
+     * @param acceptChannel A non blocking, bound server channel
+     * @param set The index of the select set
+     * @see #accepted(SocketChannel)
+     */
+    public void register(ServerSocketChannel acceptChannel, int set)
+    {
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+        {
+            SelectSet s=sets[set];
+            s.addChange(acceptChannel);
+            s.wakeup();
+        }
     }
 
     /* ------------------------------------------------------------ */
@@ -239,10 +269,211 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         _lowResourcesMaxIdleTime=(int)lowResourcesMaxIdleTime;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if this manager has been placed in low resources state by {@link #setLowResources(boolean)}
+     */
+    public boolean isLowResources()
+    {
+        return _lowResources;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Place this manager in low resources state, regardless of the number of connections,
+     * so that idle connections are closed after {@link #getLowResourcesMaxIdleTime()}, if it is set.
+     * @param lowResources True if resources are low
+     */
+    public void setLowResources(boolean lowResources)
+    {
+        _lowResources=lowResources;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the select sets are not accepting connections
+     * @see #setAcceptPaused(boolean)
+     */
+    public boolean isAcceptPaused()
+    {
+        return _acceptPaused;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Pause or resume accepting connections on the server channels {@link #register(ServerSocketChannel) registered}
+     * with the select sets. While paused, new connections wait in the accept queue of the operating system.
+     * @param paused True to stop selecting server channels for accept
+     */
+    public void setAcceptPaused(boolean paused)
+    {
+        _acceptPaused=paused;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+        {
+            for (final SelectSet set : sets)
+            {
+                set.addChange(new ChangeTask()
+                {
+                    public void run()
+                    {
+                        set.updateAcceptKeys();
+                    }
+                });
+                set.wakeup();
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of wakeups of the select sets requested, eg to process a change of interest operations.
+     */
+    public long getWakeupRequests()
+    {
+        long requests=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                requests+=set.getWakeupRequests();
+        return requests;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of times the selectors of the select sets were woken up.
+     * Wakeups are coalesced, so this is normally less than {@link #getWakeupRequests()}.
+     */
+    public long getWakeups()
+    {
+        long wakeups=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                wakeups+=set.getWakeups();
+        return wakeups;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean number of changes processed per select
+     */
+    public double getChangesPerSelectMean()
+    {
+        long total=0;
+        long count=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+        {
+            for (SelectSet set : sets)
+            {
+                total+=set.getChangesPerSelect().getTotal();
+                count+=set.getChangesPerSelect().getCount();
+            }
+        }
+        return count==0?0.0:((double)total)/count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of changes processed by a select
+     */
+    public long getChangesPerSelectMax()
+    {
+        long max=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                max=Math.max(max,set.getChangesPerSelect().getMax());
+        return max;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean time in microseconds of a select loop, not including time waiting in select
+     */
+    public double getSelectLoopTimeMean()
+    {
+        long total=0;
+        long count=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+        {
+            for (SelectSet set : sets)
+            {
+                total+=set.getSelectLoopTime().getTotal();
+                count+=set.getSelectLoopTime().getCount();
+            }
+        }
+        return count==0?0.0:((double)total)/count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum time in microseconds of a select loop, not including time waiting in select
+     */
+    public long getSelectLoopTimeMax()
+    {
+        long max=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                max=Math.max(max,set.getSelectLoopTime().getMax());
+        return max;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Reset the peak select loop time of the select sets.
+     * @return The maximum time in microseconds of a select loop since the peak was last reset,
+     * not including time waiting in select
+     */
+    public long resetSelectLoopTimePeak()
+    {
+        long max=0;
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                max=Math.max(max,set._selectLoopTimePeak.getAndSet(0));
+        return max;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of slow clients evicted because they could not be written to
+     * at the minimum write rate.
+     * @see SelectChannelEndPoint#setMinWriteRate(int)
+     */
+    public long getSlowClientEvictions()
+    {
+        return _evictions.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Reset the select statistics of the select sets.
+     */
+    public void statsReset()
+    {
+        _evictions.set(0);
+        SelectSet[] sets=_selectSet;
+        if (sets!=null)
+            for (SelectSet set : sets)
+                set.statsReset();
+    }
+
 
     /* ------------------------------------------------------------------------------- */
     public abstract boolean dispatch(Runnable task);
 
+    /* ------------------------------------------------------------ */
+    /** Called when a blocked writer gives up on a slow client.
+     * @param endpoint the endpoint that could not be written to at the minimum write rate
+     * @see SelectChannelEndPoint#setMinWriteRate(int)
+     */
+    protected void endPointEvicted(SelectChannelEndPoint endpoint)
+    {
+        _evictions.incrementAndGet();
+    }
+
     /* ------------------------------------------------------------ */
     /* (non-Javadoc)
      * @see org.eclipse.component.AbstractLifeCycle#doStart()
@@ -353,6 +584,31 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
      */
     protected abstract SelectChannelEndPoint newEndPoint(SocketChannel channel, SelectorManager.SelectSet selectSet, SelectionKey sKey) throws IOException;
 
+    /* ------------------------------------------------------------ */
+    /** Called when a connection has been accepted by a select set from
+     * a {@link ServerSocketChannel} registered with {@link #register(ServerSocketChannel, int)},
+     * before the channel is registered with the select set.
+     * @param channel The accepted, non blocking channel
+     * @throws IOException
+     */
+    protected void accepted(SocketChannel channel) throws IOException
+    {
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Accept a connection from a {@link ServerSocketChannel} registered with
+     * {@link #register(ServerSocketChannel, int)}.
+     * If this throws, for example because there are too many open files, the select set
+     * stops selecting the channel for accept for a short time.
+     * @param server The server channel selected for accept
+     * @return The accepted channel or null if there is no connection to accept
+     * @throws IOException
+     */
+    protected SocketChannel accept(ServerSocketChannel server) throws IOException
+    {
+        return server.accept();
+    }
+
     /* ------------------------------------------------------------------------------- */
     protected void connectionFailed(SocketChannel channel,Throwable ex,Object attachment)
     {
@@ -383,6 +639,12 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         private final Timeout _timeout;
 
         private final ConcurrentLinkedQueue<Object> _changes = new ConcurrentLinkedQueue<Object>();
+        private final AtomicBoolean _wakeupPending = new AtomicBoolean();
+        private final AtomicLong _wakeupRequests = new AtomicLong();
+        private final AtomicLong _wakeups = new AtomicLong();
+        private final SampleStatistic _changesPerSelect = new SampleStatistic();
+        private final SampleStatistic _selectLoopTime = new SampleStatistic();
+        private final AtomicLong _selectLoopTimePeak = new AtomicLong();
 
         private volatile Selector _selector;
 
@@ -392,6 +654,8 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         private boolean _pausing;
         private boolean _paused;
         private volatile long _idleTick;
+        private long _acceptRetry;
+        private boolean _acceptFailing;
         private ConcurrentMap<SelectChannelEndPoint,Object> _endPoints = new ConcurrentHashMap<SelectChannelEndPoint, Object>();
 
         /* ------------------------------------------------------------ */
@@ -400,7 +664,7 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
             _setID=acceptorID;
 
             _idleTick = System.currentTimeMillis();
-            _timeout = new Timeout(this);
+            _timeout = new HashedWheelTimeout(this);
             _timeout.setDuration(0L);
 
             // create a selector;
@@ -433,6 +697,8 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
          */
         public void doSelect() throws IOException
         {
+            long start=System.nanoTime();
+            long waited=0;
             try
             {
                 _selecting=Thread.currentThread();
@@ -444,8 +710,10 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                 // Make any key changes required
                 Object change;
                 int changes=_changes.size();
+                int processed=0;
                 while (changes-->0 && (change=_changes.poll())!=null)
                 {
+                    processed++;
                     Channel ch=null;
                     SelectionKey key=null;
 
@@ -488,6 +756,12 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                             key.attach(endpoint);
                             endpoint.schedule();
                         }
+                        else if (change instanceof ServerSocketChannel)
+                        {
+                            // Accept new connections on this set
+                            final ServerSocketChannel channel=(ServerSocketChannel)change;
+                            channel.register(selector,acceptOps(),null);
+                        }
                         else if (change instanceof ChangeTask)
                         {
                             ((Runnable)change).run();
@@ -521,11 +795,15 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                         }
                     }
                 }
+                _changesPerSelect.set(processed);
 
 
                 // Do and instant select to see if any connections can be handled.
                 int selected=selector.selectNow();
 
+                // selectNow clears any wakeup, so changes added from here on need a new wakeup
+                _wakeupPending.set(false);
+
                 long now=System.currentTimeMillis();
 
                 // if no immediate things to do
@@ -552,12 +830,16 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                     long wait = _changes.size()==0?__IDLE_TICK:0L;
                     if (wait > 0 && to_next_timeout >= 0 && wait > to_next_timeout)
                         wait = to_next_timeout;
+                    if (wait > 0 && _acceptRetry > 0 && wait > _acceptRetry-now)
+                        wait = Math.max(1,_acceptRetry-now);
 
                     // If we should wait with a select
                     if (wait>0)
                     {
                         long before=now;
+                        long nanos=System.nanoTime();
                         selected=selector.select(wait);
+                        waited=System.nanoTime()-nanos;
                         now = System.currentTimeMillis();
                         _timeout.setNow(now);
 
@@ -609,6 +891,33 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                             if (key.isReadable()||key.isWritable())
                                 ((SelectChannelEndPoint)att).schedule();
                         }
+                        else if (key.isAcceptable())
+                        {
+                            // Accept connections and register them directly with this set
+                            ServerSocketChannel server = (ServerSocketChannel)key.channel();
+                            for (int i=__MAX_ACCEPTS;i-->0;)
+                            {
+                                try
+                                {
+                                    channel=accept(server);
+                                }
+                                catch (IOException e)
+                                {
+                                    acceptFailed(key,e);
+                                    break;
+                                }
+                                if (channel==null)
+                                    break;
+                                _acceptFailing=false;
+                                channel.configureBlocking(false);
+                                accepted(channel);
+                                SelectionKey cKey = channel.register(selector,SelectionKey.OP_READ,null);
+                                SelectChannelEndPoint endpoint = createEndPoint(channel,cKey);
+                                cKey.attach(endpoint);
+                                endpoint.schedule();
+                                channel=null;
+                            }
+                        }
                         else if (key.isConnectable())
                         {
                             // Complete a connection of a registered channel
@@ -687,12 +996,19 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                     task = _timeout.expired();
                 }
 
+                // Retry accepting after an accept failure
+                if (_acceptRetry>0 && now>=_acceptRetry)
+                {
+                    _acceptRetry=0;
+                    updateAcceptKeys();
+                }
+
                 // Idle tick
                 if (now-_idleTick>__IDLE_TICK)
                 {
                     _idleTick=now;
 
-                    final long idle_now=((_lowResourcesConnections>0 && selector.keys().size()>_lowResourcesConnections))
+                    final long idle_now=((_lowResources && _lowResourcesMaxIdleTime>0) || (_lowResourcesConnections>0 && selector.keys().size()>_lowResourcesConnections))
                         ?(now+_maxIdleTime-_lowResourcesMaxIdleTime)
                         :now;
 
@@ -733,6 +1049,11 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
             finally
             {
                 _selecting=null;
+                long loopTime=TimeUnit.NANOSECONDS.toMicros(System.nanoTime()-start-waited);
+                _selectLoopTime.set(loopTime);
+                long peak=_selectLoopTimePeak.get();
+                while (loopTime>peak && !_selectLoopTimePeak.compareAndSet(peak,loopTime))
+                    peak=_selectLoopTimePeak.get();
             }
         }
 
@@ -804,13 +1125,27 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         }
 
         /* ------------------------------------------------------------ */
+        /**
+         * Wakeup the selector so that it processes any added changes.
+         * <p>
+         * Wakeups are coalesced, so that the selector is woken at most once per call to
+         * {@link #doSelect()}, and no wakeup is done from the selecting thread, as any
+         * changes it adds are processed without waiting in the next call to {@link #doSelect()}.
+         */
         public void wakeup()
         {
+            _wakeupRequests.incrementAndGet();
+            if (Thread.currentThread()==_selecting || !_wakeupPending.compareAndSet(false,true))
+                return;
+
             try
             {
                 Selector selector = _selector;
                 if (selector!=null)
+                {
+                    _wakeups.incrementAndGet();
                     selector.wakeup();
+                }
             }
             catch(Exception e)
             {
@@ -826,6 +1161,110 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
             }
         }
 
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The endpoints registered with this set
+         */
+        public Collection<SelectChannelEndPoint> getEndPoints()
+        {
+            return Collections.unmodifiableSet(_endPoints.keySet());
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The number of calls to {@link #wakeup()}
+         */
+        public long getWakeupRequests()
+        {
+            return _wakeupRequests.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The number of times the selector was woken up
+         */
+        public long getWakeups()
+        {
+            return _wakeups.get();
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The statistic of the changes processed per call to {@link #doSelect()}
+         */
+        public SampleStatistic getChangesPerSelect()
+        {
+            return _changesPerSelect;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The statistic of the time in microseconds taken by each call to
+         * {@link #doSelect()}, not including time waiting in select
+         */
+        public SampleStatistic getSelectLoopTime()
+        {
+            return _selectLoopTime;
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Select the server channels of this set for accept, unless accepting is paused.
+         * Must be called by the select thread.
+         */
+        private void updateAcceptKeys()
+        {
+            Selector selector=_selector;
+            if (selector==null)
+                return;
+            for (SelectionKey key : selector.keys())
+            {
+                if (key.isValid() && key.channel() instanceof ServerSocketChannel)
+                    key.interestOps(acceptOps());
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        private int acceptOps()
+        {
+            return _acceptPaused || _acceptRetry>0?0:SelectionKey.OP_ACCEPT;
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Stop selecting a server channel for accept after an accept failure,
+         * otherwise the selector would return immediately while the failure
+         * persists (eg too many open files) and the select loop would spin.
+         * Accepting is retried after a short delay, and the failure is only
+         * logged once until a connection is accepted again.
+         */
+        private void acceptFailed(SelectionKey key, IOException e)
+        {
+            if (key.isValid())
+                key.interestOps(0);
+            _acceptRetry=System.currentTimeMillis()+__ACCEPT_RETRY;
+
+            if (_acceptFailing)
+                LOG.debug(e);
+            else
+            {
+                _acceptFailing=true;
+                if (isRunning())
+                    LOG.warn("Accept failed, retrying every {}ms: {}",__ACCEPT_RETRY,e);
+                LOG.debug(e);
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Reset the select statistics.
+         */
+        public void statsReset()
+        {
+            _wakeupRequests.set(0);
+            _wakeups.set(0);
+            _changesPerSelect.reset();
+            _selectLoopTime.reset();
+            _selectLoopTimePeak.set(0);
+        }
+
         /* ------------------------------------------------------------ */
         private SelectChannelEndPoint createEndPoint(SocketChannel channel, SelectionKey sKey) throws IOException
         {
@@ -979,11 +1418,13 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         public String toString()
         {
             Selector selector=_selector;
-            return String.format("%s %s keys=%d selected=%d",
+            return String.format("%s %s keys=%d selected=%d wakeups=%d/%d",
                     super.toString(),
                     SelectorManager.this.getState(),
                     selector != null && selector.isOpen() ? selector.keys().size() : -1,
-                    selector != null && selector.isOpen() ? selector.selectedKeys().size() : -1);
+                    selector != null && selector.isOpen() ? selector.selectedKeys().size() : -1,
+                    _wakeups.get(),
+                    _wakeupRequests.get());
         }
     }
 
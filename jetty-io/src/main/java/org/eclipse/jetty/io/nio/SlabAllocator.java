@@ -0,0 +1,277 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.BufferPool;
+
+/* ------------------------------------------------------------ */
+/** An allocator of {@link DirectNIOBuffer}s carved from large direct slabs.
+ * <p>
+ * Allocating a direct buffer is slow, zeroes the memory and leaves freeing
+ * the native memory to the garbage collector. This allocator instead
+ * allocates direct slabs of {@link #getSlabSize()} bytes, up to a budget of
+ * {@link #getMaxBytes()}, and divides each slab into chunks of a single
+ * {@link BufferPool#sizeClass(int) size class}. A buffer is a slice of a
+ * chunk and must be {@link #release(Buffer) released} to return the chunk to
+ * its slab. Slabs are never freed, so once the budget has been reserved,
+ * chunks are only reused within their size class.
+ * <p>
+ * Requests larger than a slab, or that cannot be met within the budget,
+ * are allocated as ordinary {@link DirectNIOBuffer}s.
+ * @see BufferPool#setSlabAllocator(SlabAllocator)
+ */
+public class SlabAllocator
+{
+    private final ConcurrentMap<Integer,Queue<ByteBuffer>> _chunks = new ConcurrentHashMap<Integer,Queue<ByteBuffer>>();
+    private final int _slabSize;
+    private final long _maxBytes;
+    private final AtomicInteger _slabs = new AtomicInteger();
+    private final AtomicLong _usedBytes = new AtomicLong();
+    private final AtomicLong _requestedBytes = new AtomicLong();
+    private final AtomicLong _fallbacks = new AtomicLong();
+
+    /* ------------------------------------------------------------ */
+    public SlabAllocator()
+    {
+        this(1024*1024,Runtime.getRuntime().maxMemory()/16);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param slabSize The size in bytes of each slab
+     * @param maxBytes The maximum number of bytes allocated for slabs
+     */
+    public SlabAllocator(int slabSize, long maxBytes)
+    {
+        if (slabSize<BufferPool.sizeClass(1))
+            throw new IllegalArgumentException("slabSize "+slabSize);
+        _slabSize=slabSize;
+        _maxBytes=maxBytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The size in bytes of each slab.
+     */
+    public int getSlabSize()
+    {
+        return _slabSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of bytes allocated for slabs.
+     */
+    public long getMaxBytes()
+    {
+        return _maxBytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of slabs allocated.
+     */
+    public int getSlabs()
+    {
+        return _slabs.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes allocated for slabs.
+     */
+    public long getReservedBytes()
+    {
+        return (long)_slabs.get()*_slabSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes of the chunks in use.
+     */
+    public long getUsedBytes()
+    {
+        return _usedBytes.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The fraction of the slab bytes in use.
+     */
+    public double getUtilisation()
+    {
+        long reserved=getReservedBytes();
+        return reserved==0?0.0:((double)_usedBytes.get())/reserved;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The fraction of the bytes of the chunks in use that were not requested,
+     * because the request was rounded up to a size class.
+     */
+    public double getFragmentation()
+    {
+        long used=_usedBytes.get();
+        return used==0?0.0:((double)(used-_requestedBytes.get()))/used;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of buffers that could not be allocated from a slab.
+     */
+    public long getFallbacks()
+    {
+        return _fallbacks.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param capacity The capacity of the buffer
+     * @return A buffer carved from a slab, or a new {@link DirectNIOBuffer}
+     * if the request cannot be met from a slab.
+     */
+    public DirectNIOBuffer allocate(int capacity)
+    {
+        int size=BufferPool.sizeClass(capacity);
+        if (size<=_slabSize)
+        {
+            Queue<ByteBuffer> chunks=getChunks(size);
+            ByteBuffer chunk=chunks.poll();
+            if (chunk==null && reserve())
+            {
+                ByteBuffer slab=ByteBuffer.allocateDirect(_slabSize);
+                for (int offset=0;offset+size<=_slabSize;offset+=size)
+                {
+                    slab.limit(offset+size);
+                    slab.position(offset);
+                    chunks.offer(slab.slice());
+                }
+                chunk=chunks.poll();
+            }
+
+            if (chunk!=null)
+            {
+                _usedBytes.addAndGet(size);
+                _requestedBytes.addAndGet(capacity);
+                return new SlabBuffer(chunk,capacity);
+            }
+        }
+
+        _fallbacks.incrementAndGet();
+        return new DirectNIOBuffer(capacity);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Release a buffer to its slab.
+     * The buffer must not be used after it has been released.
+     * @param buffer The buffer to release
+     * @return true if the buffer was allocated from a slab of this allocator and
+     * had not already been released.
+     */
+    public boolean release(Buffer buffer)
+    {
+        if (!(buffer instanceof SlabBuffer))
+            return false;
+        SlabBuffer slabBuffer=(SlabBuffer)buffer;
+        if (slabBuffer.getAllocator()!=this || !slabBuffer._released.compareAndSet(false,true))
+            return false;
+
+        ByteBuffer chunk=slabBuffer._chunk;
+        chunk.clear();
+        _usedBytes.addAndGet(-chunk.capacity());
+        _requestedBytes.addAndGet(-slabBuffer.capacity());
+        getChunks(chunk.capacity()).offer(chunk);
+        return true;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean reserve()
+    {
+        while (true)
+        {
+            int slabs=_slabs.get();
+            if ((long)(slabs+1)*_slabSize>_maxBytes)
+                return false;
+            if (_slabs.compareAndSet(slabs,slabs+1))
+                return true;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private Queue<ByteBuffer> getChunks(int size)
+    {
+        Integer key=Integer.valueOf(size);
+        Queue<ByteBuffer> chunks=_chunks.get(key);
+        if (chunks==null)
+        {
+            chunks=new ConcurrentLinkedQueue<ByteBuffer>();
+            Queue<ByteBuffer> c=_chunks.putIfAbsent(key,chunks);
+            if (c!=null)
+                chunks=c;
+        }
+        return chunks;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{slabs=%d,used=%d/%d}",getClass().getSimpleName(),hashCode(),getSlabs(),getUsedBytes(),getReservedBytes());
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A {@link DirectNIOBuffer} that is a slice of a slab chunk.
+     */
+    public class SlabBuffer extends DirectNIOBuffer
+    {
+        private final ByteBuffer _chunk;
+        private final AtomicBoolean _released = new AtomicBoolean();
+
+        /* ------------------------------------------------------------ */
+        SlabBuffer(ByteBuffer chunk, int capacity)
+        {
+            super(sliceOf(chunk,capacity),false);
+            _chunk=chunk;
+            clear();
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The allocator of the slab
+         */
+        public SlabAllocator getAllocator()
+        {
+            return SlabAllocator.this;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private static ByteBuffer sliceOf(ByteBuffer chunk, int capacity)
+    {
+        ByteBuffer slice=chunk.duplicate();
+        slice.limit(capacity);
+        return slice.slice();
+    }
+}
@@ -15,6 +15,8 @@ package org.eclipse.jetty.io.nio;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLEngine;
@@ -26,6 +28,8 @@ import javax.net.ssl.SSLSession;
 import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.AsyncEndPoint;
 import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.BufferPool;
+import org.eclipse.jetty.io.Buffers;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.log.Log;
@@ -40,6 +44,13 @@ import org.eclipse.jetty.util.thread.Timeout.Task;
  * The connector uses an {@link AsyncEndPoint} (like {@link SelectChannelEndPoint}) as
  * it's source/sink of encrypted data.   It then provides {@link #getSslEndPoint()} to
  * expose a source/sink of unencrypted data to another connection (eg HttpConnection).
+ * <p>
+ * By default the delegated tasks of the {@link SSLEngine} are run by the thread handling
+ * the connection and the buffers are cached per thread. If a {@link #setTaskExecutor(Executor) task executor}
+ * is set, the delegated tasks of the initial handshake are instead run by the executor and the
+ * connection is dispatched again once they are complete, so that the handling thread is not held
+ * while certificates are verified or keys are exchanged. If a {@link #setBufferPool(BufferPool) buffer pool}
+ * is set, the buffers are obtained from the pool, with direct buffers for the encrypted data.
  */
 public class SslConnection extends AbstractConnection implements AsyncConnection
 {
@@ -63,6 +74,36 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
     private boolean _ishut;
     private boolean _oshut;
     private final AtomicBoolean _progressed = new AtomicBoolean();
+    private Executor _taskExecutor;
+    private BufferPool _bufferPool;
+    private SslStatistics _statistics;
+    private boolean _tasksPending;
+    private final Runnable _runTasks = new Runnable()
+    {
+        public void run()
+        {
+            try
+            {
+                Runnable task;
+                while ((task=_engine.getDelegatedTask())!=null)
+                    runTask(task);
+            }
+            catch(Throwable e)
+            {
+                LOG.warn(_endp+":",e);
+                try{_endp.close();}
+                catch(IOException e2){LOG.ignore(e2);}
+            }
+            finally
+            {
+                synchronized (SslConnection.this)
+                {
+                    _tasksPending=false;
+                }
+                _aEndp.asyncDispatch();
+            }
+        }
+    };
 
     /* ------------------------------------------------------------ */
     /* this is a half baked buffer pool
@@ -121,6 +162,62 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
         _allowRenegotiate = allowRenegotiate;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The executor of the delegated tasks of the initial handshake, or null if they are run by the handling thread
+     */
+    public Executor getTaskExecutor()
+    {
+        return _taskExecutor;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param executor The executor of the delegated tasks of the initial handshake, or null
+     * if they are run by the handling thread
+     */
+    public void setTaskExecutor(Executor executor)
+    {
+        _taskExecutor = executor;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The pool of the buffers, or null if the buffers are cached per thread
+     */
+    public BufferPool getBufferPool()
+    {
+        return _bufferPool;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pool The pool of the buffers, or null if the buffers are cached per thread.
+     * Direct buffers are obtained from the pool for the encrypted data.
+     */
+    public void setBufferPool(BufferPool pool)
+    {
+        _bufferPool = pool;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The statistics updated by this connection, or null
+     */
+    public SslStatistics getStatistics()
+    {
+        return _statistics;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param statistics The statistics to be updated by this connection, or null
+     */
+    public void setStatistics(SslStatistics statistics)
+    {
+        _statistics = statistics;
+    }
+
     /* ------------------------------------------------------------ */
     private void allocateBuffers()
     {
@@ -128,15 +225,25 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
         {
             if (_allocations++==0)
             {
-                if (_buffers==null)
+                if (_inbound==null)
                 {
-                    _buffers=__buffers.get();
-                    if (_buffers==null)
-                        _buffers=new SslBuffers(_session.getPacketBufferSize()*2,_session.getApplicationBufferSize()*2);
-                    _inbound=_buffers._in;
-                    _outbound=_buffers._out;
-                    _unwrapBuf=_buffers._unwrap;
-                    __buffers.set(null);
+                    BufferPool pool=_bufferPool;
+                    if (pool!=null)
+                    {
+                        _inbound=(NIOBuffer)pool.acquire(Buffers.Type.DIRECT,_session.getPacketBufferSize()*2);
+                        _outbound=(NIOBuffer)pool.acquire(Buffers.Type.DIRECT,_session.getPacketBufferSize()*2);
+                        _unwrapBuf=(NIOBuffer)pool.acquire(Buffers.Type.INDIRECT,_session.getApplicationBufferSize()*2);
+                    }
+                    else
+                    {
+                        _buffers=__buffers.get();
+                        if (_buffers==null)
+                            _buffers=new SslBuffers(_session.getPacketBufferSize()*2,_session.getApplicationBufferSize()*2);
+                        _inbound=_buffers._in;
+                        _outbound=_buffers._out;
+                        _unwrapBuf=_buffers._unwrap;
+                        __buffers.set(null);
+                    }
                 }
             }
         }
@@ -149,16 +256,25 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
         {
             if (--_allocations==0)
             {
-                if (_buffers!=null &&
+                if (_inbound!=null &&
                     _inbound.length()==0 &&
                     _outbound.length()==0 &&
                     _unwrapBuf.length()==0)
                 {
+                    if (_buffers!=null)
+                    {
+                        __buffers.set(_buffers);
+                        _buffers=null;
+                    }
+                    else
+                    {
+                        _bufferPool.release(_inbound);
+                        _bufferPool.release(_outbound);
+                        _bufferPool.release(_unwrapBuf);
+                    }
                     _inbound=null;
                     _outbound=null;
                     _unwrapBuf=null;
-                    __buffers.set(_buffers);
-                    _buffers=null;
                 }
             }
         }
@@ -334,12 +450,38 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
 
                     case NEED_TASK:
                     {
+                        if (_taskExecutor!=null && !_handshook)
+                        {
+                            // Run the tasks in the executor, which will dispatch the
+                            // connection again when they are complete
+                            if (!_tasksPending)
+                            {
+                                _tasksPending=true;
+                                try
+                                {
+                                    _taskExecutor.execute(_runTasks);
+                                }
+                                catch(RejectedExecutionException e)
+                                {
+                                    LOG.debug(e);
+                                    _tasksPending=false;
+                                    Runnable task;
+                                    while ((task=_engine.getDelegatedTask())!=null)
+                                    {
+                                        progress=true;
+                                        runTask(task);
+                                    }
+                                }
+                            }
+                            break;
+                        }
+
                         // A task needs to be run, so run it!
                         Runnable task;
                         while ((task=_engine.getDelegatedTask())!=null)
                         {
                             progress=true;
-                            task.run();
+                            runTask(task);
                         }
 
                         // Detect SUN JVM Bug!!!
@@ -415,7 +557,10 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
                     bbuf.limit(buffer.putIndex());
                     out_buffer.position(_outbound.putIndex());
                     out_buffer.limit(out_buffer.capacity());
+                    long start=_statistics==null?0:System.nanoTime();
                     result=_engine.wrap(bbuf,out_buffer);
+                    if (_statistics!=null)
+                        _statistics.wrapped(result.bytesConsumed(),System.nanoTime()-start);
                     if (LOG.isDebugEnabled())
                         LOG.debug("{} wrap {} {} consumed={} produced={}",
                             _session,
@@ -454,7 +599,7 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
 
             case OK:
                 if (result.getHandshakeStatus()==HandshakeStatus.FINISHED)
-                    _handshook=true;
+                    handshook();
                 break;
 
             case CLOSED:
@@ -491,7 +636,10 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
                     in_buffer.position(_inbound.getIndex());
                     in_buffer.limit(_inbound.putIndex());
 
+                    long start=_statistics==null?0:System.nanoTime();
                     result=_engine.unwrap(in_buffer,bbuf);
+                    if (_statistics!=null)
+                        _statistics.unwrapped(result.bytesProduced(),System.nanoTime()-start);
                     if (LOG.isDebugEnabled())
                         LOG.debug("{} unwrap {} {} consumed={} produced={}",
                             _session,
@@ -533,7 +681,7 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
 
             case OK:
                 if (result.getHandshakeStatus()==HandshakeStatus.FINISHED)
-                    _handshook=true;
+                    handshook();
                 break;
 
             case CLOSED:
@@ -554,6 +702,35 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
     }
 
 
+    /* ------------------------------------------------------------ */
+    private void handshook()
+    {
+        if (!_handshook)
+        {
+            _handshook=true;
+            if (_statistics!=null)
+            {
+                // A session created before this connection was resumed from the cache.
+                // TLS 1.3 resumption creates a new session, so is not detected.
+                long created=_engine.getSession().getCreationTime();
+                _statistics.handshook(System.currentTimeMillis()-getTimeStamp(),created<getTimeStamp());
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void runTask(Runnable task)
+    {
+        if (_statistics==null)
+            task.run();
+        else
+        {
+            long start=System.nanoTime();
+            task.run();
+            _statistics.task(System.nanoTime()-start);
+        }
+    }
+
     /* ------------------------------------------------------------ */
     private ByteBuffer extractByteBuffer(Buffer buffer)
     {
@@ -658,6 +835,14 @@ public class SslConnection extends AbstractConnection implements AsyncConnection
             return 0;
         }
 
+        public int flush(Buffer... buffers) throws IOException
+        {
+            for (Buffer buffer : buffers)
+                if (buffer!=null && buffer.hasContent())
+                    return flush(buffer);
+            return 0;
+        }
+
         public boolean blockReadable(long millisecs) throws IOException
         {
             long now = System.currentTimeMillis();
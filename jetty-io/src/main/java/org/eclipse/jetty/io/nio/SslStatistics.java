@@ -0,0 +1,215 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io.nio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+
+/* ------------------------------------------------------------ */
+/** Statistics of the {@link SslConnection}s of a connector.
+ * <p>
+ * Handshake latency is measured from the creation of the connection until the
+ * initial handshake is finished, so it includes network round trips and the time
+ * taken by the delegated tasks. The throughput of wrap and unwrap is measured as the
+ * application bytes wrapped or unwrapped per second spent in the {@link javax.net.ssl.SSLEngine}.
+ * <p>
+ * An initial handshake is counted as resumed (abbreviated) if it negotiated a session
+ * that was created before the connection, i.e. one found in the session cache of the
+ * {@link javax.net.ssl.SSLContext}.
+ * This only detects TLS 1.2 and earlier session resumption. With TLS 1.3, a connection
+ * resumed with a pre-shared key gets a new {@link javax.net.ssl.SSLSession}, created
+ * during the handshake, so it is counted as a full handshake, and the resumed count and
+ * {@link #getSessionCacheHitRatio() hit ratio} stay near zero when TLS 1.3 is negotiated.
+ */
+public class SslStatistics
+{
+    private final SampleStatistic _handshakeTime = new SampleStatistic();
+    private final AtomicLong _resumed = new AtomicLong();
+    private final AtomicLong _tasks = new AtomicLong();
+    private final AtomicLong _taskNanos = new AtomicLong();
+    private final AtomicLong _wrapBytes = new AtomicLong();
+    private final AtomicLong _wrapNanos = new AtomicLong();
+    private final AtomicLong _unwrapBytes = new AtomicLong();
+    private final AtomicLong _unwrapNanos = new AtomicLong();
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of initial handshakes completed
+     */
+    public long getHandshakes()
+    {
+        return _handshakeTime.getCount();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean time in ms of an initial handshake
+     */
+    public double getHandshakeTimeMean()
+    {
+        return _handshakeTime.getMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum time in ms of an initial handshake
+     */
+    public long getHandshakeTimeMax()
+    {
+        return _handshakeTime.getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of initial handshakes that created a new session
+     */
+    public long getFullHandshakes()
+    {
+        return getHandshakes()-_resumed.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of initial handshakes that resumed a cached session,
+     * not including TLS 1.3 resumptions
+     */
+    public long getResumedHandshakes()
+    {
+        return _resumed.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The fraction of initial handshakes that resumed a cached session,
+     * not including TLS 1.3 resumptions
+     */
+    public double getSessionCacheHitRatio()
+    {
+        long handshakes=getHandshakes();
+        return handshakes==0?0.0:((double)_resumed.get())/handshakes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of delegated tasks run
+     */
+    public long getTasks()
+    {
+        return _tasks.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The total time in ms taken by delegated tasks
+     */
+    public long getTaskTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_taskNanos.get());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of application bytes wrapped
+     */
+    public long getWrapBytes()
+    {
+        return _wrapBytes.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The application bytes wrapped per second of wrap time
+     */
+    public long getWrapThroughput()
+    {
+        return throughput(_wrapBytes.get(),_wrapNanos.get());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of application bytes unwrapped
+     */
+    public long getUnwrapBytes()
+    {
+        return _unwrapBytes.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The application bytes unwrapped per second of unwrap time
+     */
+    public long getUnwrapThroughput()
+    {
+        return throughput(_unwrapBytes.get(),_unwrapNanos.get());
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Reset the statistics.
+     */
+    public void reset()
+    {
+        _handshakeTime.reset();
+        _resumed.set(0);
+        _tasks.set(0);
+        _taskNanos.set(0);
+        _wrapBytes.set(0);
+        _wrapNanos.set(0);
+        _unwrapBytes.set(0);
+        _unwrapNanos.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    void handshook(long millis, boolean resumed)
+    {
+        if (resumed)
+            _resumed.incrementAndGet();
+        _handshakeTime.set(millis);
+    }
+
+    /* ------------------------------------------------------------ */
+    void task(long nanos)
+    {
+        _tasks.incrementAndGet();
+        _taskNanos.addAndGet(nanos);
+    }
+
+    /* ------------------------------------------------------------ */
+    void wrapped(int bytes, long nanos)
+    {
+        _wrapBytes.addAndGet(bytes);
+        _wrapNanos.addAndGet(nanos);
+    }
+
+    /* ------------------------------------------------------------ */
+    void unwrapped(int bytes, long nanos)
+    {
+        _unwrapBytes.addAndGet(bytes);
+        _unwrapNanos.addAndGet(nanos);
+    }
+
+    /* ------------------------------------------------------------ */
+    private static long throughput(long bytes, long nanos)
+    {
+        return nanos==0?0:(long)(bytes*1000000000.0/nanos);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{handshakes=%d,resumed=%d,wrap=%dB/s,unwrap=%dB/s}",getClass().getSimpleName(),hashCode(),getHandshakes(),getResumedHandshakes(),getWrapThroughput(),getUnwrapThroughput());
+    }
+}
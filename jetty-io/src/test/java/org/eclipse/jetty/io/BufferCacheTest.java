@@ -15,9 +15,11 @@ package org.eclipse.jetty.io;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -130,6 +132,34 @@ public class BufferCacheTest
         }
     }
 
+    @Test
+    public void testGetBest()
+    {
+        cache.add("Accept",5);
+        cache.add("Accept-Charset",6);
+        cache.add("HTTP/1.1",7);
+        cache.add("text/html; charset=utf-8",8);
+
+        Buffer[] buffers = {new ByteArrayBuffer(64),new DirectNIOBuffer(64)};
+        for (Buffer buf : buffers)
+        {
+            buf.clear();
+            buf.put("xACCEPT-CHARSET: utf-8".getBytes());
+            assertNull(cache.getBest(buf,0,buf.length()));
+            assertEquals(6,cache.getBest(buf,1,buf.length()-1).getOrdinal());
+            assertEquals(5,cache.getBest(buf,1,10).getOrdinal());
+            assertNull(cache.getBest(buf,1,5));
+            assertEquals(6,cache.get(buf,1,14).getOrdinal());
+            assertNull(cache.get(buf,1,13));
+
+            buf.clear();
+            buf.put("http/1.1TEXT/HTML; Charset=UTF-8".getBytes());
+            assertEquals(7,cache.get(buf,0,8).getOrdinal());
+            assertEquals(8,cache.get(buf,8,24).getOrdinal());
+            assertNull(cache.get(buf,8,23));
+        }
+    }
+
     @Test
     public void testToString()
     {
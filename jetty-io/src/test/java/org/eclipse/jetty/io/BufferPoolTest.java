@@ -0,0 +1,181 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.io.nio.IndirectNIOBuffer;
+import org.eclipse.jetty.io.nio.SlabAllocator;
+import org.junit.Test;
+
+public class BufferPoolTest
+{
+    @Test
+    public void testSizeClass()
+    {
+        assertEquals(256,BufferPool.sizeClass(1));
+        assertEquals(256,BufferPool.sizeClass(256));
+        assertEquals(512,BufferPool.sizeClass(257));
+        assertEquals(8192,BufferPool.sizeClass(6144));
+        assertEquals(16384,BufferPool.sizeClass(16384));
+    }
+
+    @Test
+    public void testTypes()
+    {
+        BufferPool pool = new BufferPool();
+        assertTrue(pool.acquire(Buffers.Type.DIRECT,1024) instanceof DirectNIOBuffer);
+        assertTrue(pool.acquire(Buffers.Type.INDIRECT,1024) instanceof IndirectNIOBuffer);
+        Buffer buffer=pool.acquire(Buffers.Type.BYTE_ARRAY,1024);
+        assertEquals(ByteArrayBuffer.class,buffer.getClass());
+        assertEquals(1024,buffer.capacity());
+        assertEquals(3,pool.getBuckets());
+    }
+
+    @Test
+    public void testMagazine()
+    {
+        BufferPool pool = new BufferPool();
+        pool.setMagazineSize(2);
+
+        Buffer b1=pool.acquire(Buffers.Type.INDIRECT,1024);
+        Buffer b2=pool.acquire(Buffers.Type.INDIRECT,1024);
+        b1.put((byte)'x');
+        pool.release(b1);
+        pool.release(b2);
+        assertEquals(0,pool.getRetainedBytes());
+
+        assertSame(b2,pool.acquire(Buffers.Type.INDIRECT,1024));
+        Buffer b=pool.acquire(Buffers.Type.INDIRECT,1024);
+        assertSame(b1,b);
+        assertEquals(0,b.length());
+        assertNotSame(b1,pool.acquire(Buffers.Type.DIRECT,1024));
+        assertNotSame(b1,pool.acquire(Buffers.Type.INDIRECT,2048));
+
+        assertEquals(2,pool.getHits());
+        assertEquals(4,pool.getMisses());
+    }
+
+    @Test
+    public void testDepot() throws Exception
+    {
+        final BufferPool pool = new BufferPool();
+        pool.setMagazineSize(1);
+        pool.setMaxRetainedBytes(2048);
+
+        final Buffer[] buffers = new Buffer[4];
+        for (int i=0;i<buffers.length;i++)
+            buffers[i]=pool.acquire(Buffers.Type.DIRECT,1024);
+        for (Buffer buffer : buffers)
+            pool.release(buffer);
+
+        // one in the magazine, two in the depot and one discarded
+        assertEquals(2048,pool.getRetainedBytes());
+        assertEquals(1,pool.getDiscards());
+
+        // Another thread gets buffers from the depot
+        final AtomicReference<Buffer> other = new AtomicReference<Buffer>();
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                other.set(pool.acquire(Buffers.Type.DIRECT,1024));
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(buffers[1],other.get());
+        assertEquals(1024,pool.getRetainedBytes());
+    }
+
+    @Test
+    public void testNotPooled()
+    {
+        BufferPool pool = new BufferPool();
+        pool.setMaxCapacity(4096);
+
+        Buffer big=pool.acquire(Buffers.Type.INDIRECT,8192);
+        pool.release(big);
+        assertNotSame(big,pool.acquire(Buffers.Type.INDIRECT,8192));
+
+        Buffer foreign=new IndirectNIOBuffer(1024);
+        pool.release(foreign);
+        assertNotSame(foreign,pool.acquire(Buffers.Type.INDIRECT,1024));
+
+        Buffer direct=new DirectNIOBuffer(1024)
+        {
+        };
+        pool.acquire(Buffers.Type.DIRECT,1024);
+        pool.release(direct);
+        assertNotSame(direct,pool.acquire(Buffers.Type.DIRECT,1024));
+        assertEquals(3,pool.getDiscards());
+    }
+
+    @Test
+    public void testSharedBuffers()
+    {
+        BufferPool pool = new BufferPool();
+        Buffers buffers = new SharedBuffers(pool,Buffers.Type.BYTE_ARRAY,6144,Buffers.Type.DIRECT,16384,Buffers.Type.DIRECT);
+
+        Buffer header=buffers.getHeader();
+        assertEquals(6144,header.capacity());
+        Buffer buffer=buffers.getBuffer();
+        assertEquals(16384,buffer.capacity());
+        Buffer other=buffers.getBuffer(5000);
+        assertEquals(8192,other.capacity());
+
+        buffers.returnBuffer(header);
+        buffers.returnBuffer(buffer);
+        buffers.returnBuffer(other);
+
+        assertSame(header,buffers.getHeader());
+        assertSame(buffer,buffers.getBuffer(16384));
+        assertSame(other,buffers.getBuffer(6000));
+
+        // Another buffers with the same sizes shares the pool
+        Buffers shared = new SharedBuffers(pool,Buffers.Type.INDIRECT,1024,Buffers.Type.DIRECT,16384,Buffers.Type.DIRECT);
+        buffers.returnBuffer(buffer);
+        assertSame(buffer,shared.getBuffer());
+    }
+
+    @Test
+    public void testSlabAllocator()
+    {
+        BufferPool pool = new BufferPool();
+        pool.setMagazineSize(1);
+        pool.setMaxRetainedBytes(0);
+        SlabAllocator slabs = new SlabAllocator(8192,8192);
+        pool.setSlabAllocator(slabs);
+
+        Buffer b1=pool.acquire(Buffers.Type.DIRECT,4096);
+        Buffer b2=pool.acquire(Buffers.Type.DIRECT,4096);
+        assertTrue(b1 instanceof SlabAllocator.SlabBuffer);
+        assertEquals(8192,slabs.getUsedBytes());
+
+        // One is pooled in the magazine and the other released to the slab
+        pool.release(b1);
+        pool.release(b2);
+        assertEquals(1,pool.getDiscards());
+        assertEquals(4096,slabs.getUsedBytes());
+        assertSame(b1,pool.acquire(Buffers.Type.DIRECT,4096));
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
 import org.eclipse.jetty.io.nio.IndirectNIOBuffer;
 import org.junit.Test;
 
@@ -154,4 +155,34 @@ public abstract class EndPointTest<T extends EndPoint>
         assertTrue(c.server.isOutputShutdown());  
     }   
     
+    @Test
+    public void testFlushBuffers() throws Exception
+    {
+        EndPointPair<T> c = newConnection();
+
+        Buffer direct = new DirectNIOBuffer(64);
+        direct.put(new ByteArrayBuffer(" direct"));
+        Buffer indirect = new IndirectNIOBuffer(64);
+        indirect.put(new ByteArrayBuffer(" indirect"));
+        Buffer view = new View(new ByteArrayBuffer("xx view xx".getBytes()));
+        view.setGetIndex(2);
+        view.setPutIndex(8);
+
+        // Client sends buffers of several types, skipping null and empty buffers
+        int len = c.client.flush(new ByteArrayBuffer("array"),null,direct,new ByteArrayBuffer(0),indirect,view);
+        assertEquals(27,len);
+        assertEquals(0,direct.length());
+        assertEquals(0,indirect.length());
+        assertEquals(0,view.length());
+
+        // Server receives the buffers in order
+        Buffer buffer = new IndirectNIOBuffer(4096);
+        while (buffer.length()<27)
+            assertTrue(c.server.fill(buffer)>0);
+        assertEquals("array direct indirect view ",buffer.toString());
+
+        c.client.close();
+        c.server.close();
+    }
+
 }
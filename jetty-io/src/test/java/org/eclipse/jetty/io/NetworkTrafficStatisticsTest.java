@@ -0,0 +1,67 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetAddress;
+
+import org.junit.Test;
+
+public class NetworkTrafficStatisticsTest
+{
+    @Test
+    public void testSubnetOf() throws Exception
+    {
+        NetworkTrafficStatistics statistics = new NetworkTrafficStatistics();
+        assertEquals("192.168.7.0/24",statistics.subnetOf(InetAddress.getByName("192.168.7.200")));
+        statistics.setIpv4PrefixLength(20);
+        assertEquals("192.168.0.0/20",statistics.subnetOf(InetAddress.getByName("192.168.15.200")));
+        assertEquals("2001:db8:0:1:0:0:0:0/64",statistics.subnetOf(InetAddress.getByName("2001:db8:0:1:2:3:4:5")));
+    }
+
+    @Test
+    public void testTraffic() throws Exception
+    {
+        NetworkTrafficStatistics statistics = new NetworkTrafficStatistics();
+        NetworkTrafficStatistics.Traffic slow = new NetworkTrafficStatistics.Traffic("10.0.0.0/24");
+        NetworkTrafficStatistics.Traffic fast = new NetworkTrafficStatistics.Traffic("10.0.1.0/24");
+
+        statistics.opened(slow);
+        statistics.opened(fast);
+        statistics.read(slow,100);
+        statistics.read(slow,0);
+        statistics.read(slow,-1);
+        statistics.written(fast,1000);
+        statistics.written(slow,300);
+        statistics.written(slow,100);
+        statistics.written(slow,0);
+        statistics.blocked(slow,5000000);
+
+        assertEquals(2,statistics.getConnections());
+        assertEquals(100,statistics.getBytesIn());
+        assertEquals(1,statistics.getReads());
+        assertEquals(100.0,statistics.getBytesPerRead(),0.0);
+        assertEquals(1400,statistics.getBytesOut());
+        assertEquals(3,statistics.getWrites());
+        assertEquals(1,statistics.getWriteBlocks());
+        assertEquals(5,statistics.getWriteBlockedTime());
+        assertEquals(200.0,slow.getBytesPerWrite(),0.0);
+        assertEquals(5,slow.getWriteBlockedTime());
+        assertEquals(0,fast.getWriteBlocks());
+
+        statistics.statsReset();
+        assertEquals(0,statistics.getBytesOut());
+    }
+}
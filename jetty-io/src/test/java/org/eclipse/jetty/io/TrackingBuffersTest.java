@@ -0,0 +1,93 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.StdErrLog;
+import org.junit.Test;
+
+public class TrackingBuffersTest
+{
+    @Test
+    public void testOutstanding()
+    {
+        Buffers buffers = new SharedBuffers(new BufferPool(),Buffers.Type.INDIRECT,1024,Buffers.Type.INDIRECT,4096,Buffers.Type.INDIRECT);
+        TrackingBuffers tracking = new TrackingBuffers(buffers,0);
+        assertSame(buffers,tracking.getBuffers());
+        assertTrue(TrackingBuffers.newBuffers(tracking,null) instanceof TrackingBuffers.EndPointBuffers);
+        assertSame(buffers,TrackingBuffers.newBuffers(buffers,null));
+
+        Buffer header=tracking.getHeader();
+        Buffer buffer=tracking.getBuffer();
+        tracking.getBuffer(100);
+        assertEquals(3,tracking.getAcquired());
+        assertEquals(3,tracking.getOutstanding());
+
+        tracking.returnBuffer(header);
+        tracking.returnBuffer(buffer);
+        assertEquals(1,tracking.getOutstanding());
+        assertEquals(0,tracking.getLeaked());
+        assertEquals(0,tracking.getSampled());
+    }
+
+    @Test
+    public void testLeaked()
+    {
+        Buffers buffers = new SharedBuffers(new BufferPool(),Buffers.Type.INDIRECT,1024,Buffers.Type.INDIRECT,4096,Buffers.Type.INDIRECT);
+        TrackingBuffers tracking = new TrackingBuffers(buffers,0.5);
+        assertEquals(0.5,tracking.getSampleRatio(),0.0);
+
+        EndPoint endp = new ByteArrayEndPoint();
+        TrackingBuffers.EndPointBuffers owned = tracking.newBuffers(endp);
+        assertSame(endp,owned.getEndPoint());
+
+        Buffer header=owned.getHeader();
+        Buffer buffer=owned.getBuffer();
+        owned.getBuffer(100);
+        owned.getBuffer(200);
+        assertEquals(4,owned.getOutstanding());
+        assertEquals(4,tracking.getOutstanding());
+        assertEquals(2,tracking.getSampled());
+
+        owned.returnBuffer(header);
+        assertEquals(3,owned.getOutstanding());
+        assertEquals(3,tracking.getOutstanding());
+
+        StdErrLog log = (StdErrLog)Log.getLogger(TrackingBuffers.class);
+        boolean hide=log.isHideStacks();
+        log.setHideStacks(true);
+        try
+        {
+            TrackingBuffers.close(owned);
+        }
+        finally
+        {
+            log.setHideStacks(hide);
+        }
+        assertEquals(3,tracking.getLeaked());
+        assertEquals(3,tracking.getOutstanding());
+        assertTrue(tracking.toString().contains("leaked=3"));
+
+        // A late return is no longer counted as leaked
+        owned.returnBuffer(buffer);
+        TrackingBuffers.close(owned);
+        assertEquals(2,owned.getOutstanding());
+        assertEquals(2,tracking.getLeaked());
+        assertEquals(2,tracking.getOutstanding());
+    }
+}
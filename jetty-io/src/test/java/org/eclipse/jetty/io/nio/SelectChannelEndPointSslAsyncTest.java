@@ -0,0 +1,93 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.jetty.io.BufferPool;
+import org.eclipse.jetty.io.EndPoint;
+import org.junit.Test;
+
+/**
+ * SSL endpoint tests with delegated tasks run by the thread pool and pooled direct buffers.
+ */
+public class SelectChannelEndPointSslAsyncTest extends SelectChannelEndPointSslTest
+{
+    private final BufferPool _pool = new BufferPool();
+    private final SslStatistics _statistics = new SslStatistics();
+
+    @Override
+    protected AsyncConnection newConnection(SocketChannel channel, EndPoint endpoint)
+    {
+        SslConnection connection = (SslConnection)super.newConnection(channel,endpoint);
+        connection.setTaskExecutor(_threadPool);
+        connection.setBufferPool(_pool);
+        connection.setStatistics(_statistics);
+        return connection;
+    }
+
+    @Test
+    public void testHandshakeStatistics() throws Exception
+    {
+        Socket client = newClient();
+        client.setSoTimeout(5000);
+
+        SocketChannel server = _connector.accept();
+        server.configureBlocking(false);
+        _manager.register(server);
+
+        client.getOutputStream().write("HelloWorld".getBytes("UTF-8"));
+        for (char c : "HelloWorld".toCharArray())
+            assertEquals(c,(char)client.getInputStream().read());
+        client.close();
+
+        assertEquals(1,_statistics.getHandshakes());
+        assertTrue(_statistics.getTasks()>0);
+        assertTrue(_statistics.getUnwrapBytes()>=10);
+        assertTrue(_statistics.getWrapBytes()>=10);
+        assertTrue(_statistics.getWrapThroughput()>0);
+
+        // The direct buffers were obtained from the pool
+        assertTrue(_pool.getAllocations()>=2);
+    }
+
+    @Test
+    public void testResumedHandshake() throws Exception
+    {
+        for (int i=0;i<2;i++)
+        {
+            Socket client = newClient();
+            client.setSoTimeout(5000);
+
+            SocketChannel server = _connector.accept();
+            server.configureBlocking(false);
+            _manager.register(server);
+
+            client.getOutputStream().write("Hello".getBytes("UTF-8"));
+            for (char c : "Hello".toCharArray())
+                assertEquals(c,(char)client.getInputStream().read());
+            client.close();
+        }
+
+        // The client resumed the session of the first connection
+        assertEquals(2,_statistics.getHandshakes());
+        assertEquals(1,_statistics.getFullHandshakes());
+        assertEquals(1,_statistics.getResumedHandshakes());
+        assertEquals(0.5,_statistics.getSessionCacheHitRatio(),0.0);
+    }
+}
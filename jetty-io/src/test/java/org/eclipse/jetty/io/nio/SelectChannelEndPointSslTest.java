@@ -21,11 +21,12 @@ import org.junit.Test;
 
 public class SelectChannelEndPointSslTest extends SelectChannelEndPointTest
 {
-    static SslContextFactory __sslCtxFactory=new SslContextFactory();
+    static SslContextFactory __sslCtxFactory;
     
     @BeforeClass
     public static void initSslEngine() throws Exception
     {
+        __sslCtxFactory=new SslContextFactory();
         File keystore = MavenTestingUtils.getTestResourceFile("keystore");
         __sslCtxFactory.setKeyStorePath(keystore.getAbsolutePath());
         __sslCtxFactory.setKeyStorePassword("storepwd");
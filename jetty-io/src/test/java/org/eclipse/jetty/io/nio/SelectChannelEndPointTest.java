@@ -3,6 +3,7 @@ package org.eclipse.jetty.io.nio;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
@@ -16,6 +17,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.AsyncEndPoint;
@@ -32,8 +34,19 @@ public class SelectChannelEndPointTest
     protected SelectChannelEndPoint _lastEndp;
     protected ServerSocketChannel _connector;
     protected QueuedThreadPool _threadPool = new QueuedThreadPool();
+    protected final AtomicInteger _accepts = new AtomicInteger();
+    protected volatile boolean _acceptFail;
     protected SelectorManager _manager = new SelectorManager()
     {
+        @Override
+        protected SocketChannel accept(ServerSocketChannel server) throws IOException
+        {
+            _accepts.incrementAndGet();
+            if (_acceptFail)
+                throw new IOException("Too many open files");
+            return super.accept(server);
+        }
+
         @Override
         public boolean dispatch(Runnable task)
         {
@@ -164,6 +177,35 @@ public class SelectChannelEndPointTest
 
     }
 
+    @Test
+    public void testAcceptFailure() throws Exception
+    {
+        _connector.configureBlocking(false);
+        _acceptFail=true;
+        _manager.register(_connector);
+
+        Socket client = newClient();
+        try
+        {
+            // A failing accept is retried after a delay, rather than in a busy select loop
+            Thread.sleep(500);
+            int accepts=_accepts.get();
+            assertThat(accepts,greaterThanOrEqualTo(1));
+            assertTrue("accepts "+accepts,accepts<=10);
+            assertTrue(_lastEndp==null);
+
+            _acceptFail=false;
+            long end=System.currentTimeMillis()+5000;
+            while (_lastEndp==null && System.currentTimeMillis()<end)
+                Thread.sleep(10);
+            assertTrue(_lastEndp!=null);
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
     @Test
     public void testEcho() throws Exception
     {
@@ -220,6 +262,40 @@ public class SelectChannelEndPointTest
 
     }
 
+    @Test
+    public void testSelectStatistics() throws Exception
+    {
+        Socket client = newClient();
+        client.setSoTimeout(5000);
+
+        SocketChannel server = _connector.accept();
+        server.configureBlocking(false);
+
+        _manager.statsReset();
+        _manager.register(server);
+
+        for (int i=0;i<10;i++)
+        {
+            client.getOutputStream().write("HelloWorld".getBytes("UTF-8"));
+            for (char c : "HelloWorld".toCharArray())
+                assertEquals(c,(char)client.getInputStream().read());
+        }
+        client.close();
+
+        // Every wakeup was requested, but requests are coalesced
+        assertTrue(_manager.getWakeups()>0);
+        assertThat(_manager.getWakeupRequests(),greaterThanOrEqualTo(_manager.getWakeups()));
+
+        // The registration and interest changes were processed
+        assertThat(_manager.getChangesPerSelectMax(),greaterThanOrEqualTo(1L));
+        assertTrue(_manager.getChangesPerSelectMean()>0);
+        assertThat(_manager.getSelectSet(0).getSelectLoopTime().getCount(),greaterThanOrEqualTo(1L));
+
+        _manager.statsReset();
+        assertEquals(0,_manager.getWakeupRequests());
+        assertEquals(0,_manager.getChangesPerSelectMax());
+    }
+
 
     @Test
     public void testShutdown() throws Exception
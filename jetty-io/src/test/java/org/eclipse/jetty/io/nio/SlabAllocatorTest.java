@@ -0,0 +1,85 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.io.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jetty.io.Buffer;
+import org.junit.Test;
+
+public class SlabAllocatorTest
+{
+    @Test
+    public void testAllocate()
+    {
+        SlabAllocator slabs = new SlabAllocator(4096,8192);
+
+        DirectNIOBuffer buffer=slabs.allocate(1000);
+        assertTrue(buffer instanceof SlabAllocator.SlabBuffer);
+        assertEquals(1000,buffer.capacity());
+        assertEquals(0,buffer.length());
+        assertEquals(1000,buffer.space());
+        assertEquals(1,slabs.getSlabs());
+        assertEquals(1024,slabs.getUsedBytes());
+        assertEquals(0.25,slabs.getUtilisation(),0.001);
+        assertEquals(24.0/1024,slabs.getFragmentation(),0.001);
+
+        buffer.put("Hello".getBytes(),0,5);
+        assertEquals("Hello",buffer.toString());
+
+        // The rest of the slab is used for the same size class
+        for (int i=0;i<3;i++)
+            slabs.allocate(1024);
+        assertEquals(1,slabs.getSlabs());
+        assertEquals(1.0,slabs.getUtilisation(),0.001);
+
+        // A second size class needs a second slab
+        slabs.allocate(2048);
+        assertEquals(2,slabs.getSlabs());
+        assertEquals(0,slabs.getFallbacks());
+    }
+
+    @Test
+    public void testRelease()
+    {
+        SlabAllocator slabs = new SlabAllocator(1024,1024);
+
+        DirectNIOBuffer b1=slabs.allocate(512);
+        DirectNIOBuffer b2=slabs.allocate(512);
+        b1.put((byte)'x');
+
+        // The budget is exhausted
+        Buffer b3=slabs.allocate(512);
+        assertFalse(b3 instanceof SlabAllocator.SlabBuffer);
+        assertEquals(1,slabs.getFallbacks());
+        assertFalse(slabs.release(b3));
+
+        assertTrue(slabs.release(b1));
+        assertFalse(slabs.release(b1));
+        assertEquals(512,slabs.getUsedBytes());
+
+        // The chunk is reused
+        DirectNIOBuffer b4=slabs.allocate(512);
+        assertTrue(b4 instanceof SlabAllocator.SlabBuffer);
+        assertEquals(0,b4.length());
+        assertEquals(1,slabs.getSlabs());
+        assertEquals(1024,slabs.getUsedBytes());
+
+        // Buffers larger than a slab are not carved from slabs
+        assertFalse(slabs.allocate(2048) instanceof SlabAllocator.SlabBuffer);
+        assertTrue(slabs.release(b2));
+    }
+}
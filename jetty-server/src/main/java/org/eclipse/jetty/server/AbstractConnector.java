@@ -83,6 +83,9 @@ public abstract class AbstractConnector extends HttpBuffers implements Connector
     protected int _maxIdleTime = 200000;
     protected int _lowResourceMaxIdleTime = -1;
     protected int _soLingerTime = -1;
+    private volatile boolean _lowResources;
+    private volatile boolean _acceptPaused;
+    private final Object _acceptPauseLock = new Object();
 
     private transient Thread[] _acceptorThread;
 
@@ -309,7 +312,7 @@ public abstract class AbstractConnector extends HttpBuffers implements Connector
         // Start selector thread
         synchronized (this)
         {
-            _acceptorThread = new Thread[getAcceptors()];
+            _acceptorThread = new Thread[getAcceptorThreads()];
 
             for (int i = 0; i < _acceptorThread.length; i++)
                 _threadPool.dispatch(new Acceptor(i));
@@ -355,6 +358,17 @@ public abstract class AbstractConnector extends HttpBuffers implements Connector
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of acceptor threads to dispatch when started, which by default
+     * is {@link #getAcceptors()}. Connectors that accept connections without dedicated
+     * acceptor threads may return 0.
+     */
+    protected int getAcceptorThreads()
+    {
+        return getAcceptors();
+    }
+
     /* ------------------------------------------------------------ */
     public void join() throws InterruptedException
     {
@@ -834,6 +848,15 @@ public abstract class AbstractConnector extends HttpBuffers implements Connector
                 {
                     try
                     {
+                        if (_acceptPaused)
+                        {
+                            synchronized (_acceptPauseLock)
+                            {
+                                while (_acceptPaused && isRunning())
+                                    _acceptPauseLock.wait(1000);
+                            }
+                            continue;
+                        }
                         accept(_acceptor);
                     }
                     catch (EofException e)
@@ -1102,11 +1125,51 @@ public abstract class AbstractConnector extends HttpBuffers implements Connector
     /* ------------------------------------------------------------ */
     public boolean isLowResources()
     {
+        if (_lowResources)
+            return true;
         if (_threadPool != null)
             return _threadPool.isLowOnThreads();
         return _server.getThreadPool().isLowOnThreads();
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Place this connector in low resources state, for example by a {@link LowResourcesMonitor},
+     * so that {@link #getLowResourcesMaxIdleTime()} is used for idle connections.
+     * The connector is also low on resources if its thread pool is low on threads.
+     * @param lowResources True if resources are low
+     */
+    public void setLowResources(boolean lowResources)
+    {
+        _lowResources = lowResources;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if accepting new connections is paused
+     * @see #setAcceptPaused(boolean)
+     */
+    public boolean isAcceptPaused()
+    {
+        return _acceptPaused;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Pause or resume accepting new connections, for example by a {@link LowResourcesMonitor}.
+     * While paused, the acceptor threads wait and new connections wait in the accept queue
+     * of the operating system.
+     * @param paused True to pause accepting new connections
+     */
+    public void setAcceptPaused(boolean paused)
+    {
+        synchronized (_acceptPauseLock)
+        {
+            _acceptPaused = paused;
+            _acceptPauseLock.notifyAll();
+        }
+    }
+
     /* ------------------------------------------------------------ */
     private void updateNotEqual(AtomicLong valueHolder, long compare, long value)
     {
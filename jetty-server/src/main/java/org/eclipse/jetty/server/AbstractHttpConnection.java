@@ -13,6 +13,7 @@
 
 package org.eclipse.jetty.server;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -22,6 +23,7 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.continuation.ContinuationThrowable;
+import org.eclipse.jetty.http.AbstractGenerator;
 import org.eclipse.jetty.http.EncodedHttpURI;
 import org.eclipse.jetty.http.Generator;
 import org.eclipse.jetty.http.HttpBuffers;
@@ -46,7 +48,10 @@ import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.io.RuntimeIOException;
+import org.eclipse.jetty.io.TrackingBuffers;
 import org.eclipse.jetty.io.UncheckedPrintWriter;
+import org.eclipse.jetty.io.nio.ChannelEndPoint;
+import org.eclipse.jetty.io.nio.RandomAccessFileBuffer;
 import org.eclipse.jetty.server.nio.NIOConnector;
 import org.eclipse.jetty.server.ssl.SslConnector;
 import org.eclipse.jetty.util.QuotedStringTokenizer;
@@ -108,6 +113,9 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
     protected final Generator _generator;
     protected final HttpFields _responseFields;
     protected final Response _response;
+    private final Buffers _requestBuffers;
+    private final Buffers _responseBuffers;
+    private RandomAccessFileBuffer _fileBuffer;
     protected Output _out;
     protected OutputWriter _writer;
     protected PrintWriter _printWriter;
@@ -147,12 +155,16 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
         _uri = StringUtil.__UTF8.equals(URIUtil.__CHARSET)?new HttpURI():new EncodedHttpURI(URIUtil.__CHARSET);
         _connector = connector;
         HttpBuffers ab = (HttpBuffers)_connector;
-        _parser = newHttpParser(ab.getRequestBuffers(), endpoint, new RequestHandler());
+        _requestBuffers = TrackingBuffers.newBuffers(ab.getRequestBuffers(),endpoint);
+        _responseBuffers = TrackingBuffers.newBuffers(ab.getResponseBuffers(),endpoint);
+        _parser = newHttpParser(_requestBuffers, endpoint, new RequestHandler());
+        if (ab.getRequestHeaderInitialSize()>0 && _parser instanceof HttpParser)
+            ((HttpParser)_parser).setMaxHeaderSize(ab.getRequestHeaderSize());
         _requestFields = new HttpFields();
         _responseFields = new HttpFields(server.getMaxCookieVersion());
         _request = new Request(this);
         _response = new Response(this);
-        _generator = new HttpGenerator(ab.getResponseBuffers(), _endp);
+        _generator = new HttpGenerator(_responseBuffers, _endp);
         _generator.setSendServerVersion(server.getSendServerVersion());
         _server = server;
     }
@@ -165,6 +177,8 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
 
         _uri = URIUtil.__CHARSET.equals(StringUtil.__UTF8)?new HttpURI():new EncodedHttpURI(URIUtil.__CHARSET);
         _connector = connector;
+        _requestBuffers = null;
+        _responseBuffers = null;
         _parser = parser;
         _requestFields = new HttpFields();
         _responseFields = new HttpFields(server.getMaxCookieVersion());
@@ -198,6 +212,20 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
         return _requests;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the total capacity of the request and response buffers currently held by this connection
+     */
+    public int getBuffersCapacity()
+    {
+        int capacity=0;
+        if (_parser instanceof HttpParser)
+            capacity+=((HttpParser)_parser).getBuffersCapacity();
+        if (_generator instanceof AbstractGenerator)
+            capacity+=((AbstractGenerator)_generator).getBuffersCapacity();
+        return capacity;
+    }
+
     /* ------------------------------------------------------------ */
     public Server getServer()
     {
@@ -380,6 +408,24 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
         _responseFields.clear();
         _response.recycle();
         _uri.clear();
+        closeFileBuffer();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void closeFileBuffer()
+    {
+        if (_fileBuffer!=null)
+        {
+            try
+            {
+                _fileBuffer.close();
+            }
+            catch(IOException e)
+            {
+                LOG.ignore(e);
+            }
+            _fileBuffer=null;
+        }
     }
 
     /* ------------------------------------------------------------ */
@@ -648,6 +694,9 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
     public void onClose()
     {
         LOG.debug("closed {}",this);
+        TrackingBuffers.close(_requestBuffers);
+        TrackingBuffers.close(_responseBuffers);
+        closeFileBuffer();
     }
 
     /* ------------------------------------------------------------ */
@@ -1000,6 +1049,44 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
             ((HttpGenerator)super._generator).sendResponse(response);
         }
 
+        /* ------------------------------------------------------------ */
+        /** Send a region of a file as the last content of the response.
+         * <p>
+         * If the endpoint is a non SSL {@link ChannelEndPoint}, the region is written by
+         * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+         * from the file to the channel without being copied into a buffer. The transfer is
+         * flushed by the generator after the header, so partial writes are continued
+         * as the endpoint becomes writable.
+         * The response headers, including the content length, must be set before calling.
+         * @param resource The resource of the file
+         * @param first The offset of the first byte of the region
+         * @param length The length of the region
+         * @return true if the region is being sent, false if the resource, endpoint or response
+         * does not allow a file transfer, in which case the content should be written normally.
+         * @throws IOException
+         */
+        public boolean sendFile(Resource resource, long first, long length) throws IOException
+        {
+            if (isClosed())
+                throw new IOException("Closed");
+
+            if (!(_endp instanceof ChannelEndPoint) || _connector instanceof SslConnector || super._generator.isWritten() || isIncluding())
+                return false;
+
+            File file=resource.getFile();
+            if (file==null || length<=0 || first<0 || first+length>file.length() || file.length()>Integer.MAX_VALUE)
+                return false;
+
+            closeFileBuffer();
+            _fileBuffer=new RandomAccessFileBuffer(file,(int)file.length(),Buffer.READONLY);
+            _fileBuffer.setGetIndex((int)first);
+            _fileBuffer.setPutIndex((int)(first+length));
+
+            super._generator.addContent(_fileBuffer,Generator.LAST);
+            commitResponse(Generator.LAST);
+            return true;
+        }
+
         /* ------------------------------------------------------------ */
         public void sendContent(Object content) throws IOException
         {
@@ -1016,7 +1103,12 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
             {
                 HttpContent httpContent = (HttpContent) content;
                 Buffer contentType = httpContent.getContentType();
-                if (contentType != null && !_responseFields.containsKey(HttpHeaders.CONTENT_TYPE_BUFFER))
+                HttpFields.Block headers = httpContent.getHeaderBlock();
+                boolean blocked = headers != null && _response.getSetCharacterEncoding() == null &&
+                    (contentType == null || !_responseFields.containsKey(HttpHeaders.CONTENT_TYPE_BUFFER));
+                if (blocked)
+                    _responseFields.put(headers);
+                else if (contentType != null && !_responseFields.containsKey(HttpHeaders.CONTENT_TYPE_BUFFER))
                 {
                     String enc = _response.getSetCharacterEncoding();
                     if(enc==null)
@@ -1043,18 +1135,29 @@ public abstract class AbstractHttpConnection  extends AbstractConnection
                 }
                 if (httpContent.getContentLength() > 0)
                     _responseFields.putLongField(HttpHeaders.CONTENT_LENGTH_BUFFER, httpContent.getContentLength());
-                Buffer lm = httpContent.getLastModified();
-                long lml=httpContent.getResource().lastModified();
-                if (lm != null)
-                    _responseFields.put(HttpHeaders.LAST_MODIFIED_BUFFER, lm);
-                else if (httpContent.getResource()!=null)
+                if (!blocked)
                 {
-                    if (lml!=-1)
-                        _responseFields.putDateField(HttpHeaders.LAST_MODIFIED_BUFFER, lml);
+                    Buffer lm = httpContent.getLastModified();
+                    long lml=httpContent.getResource().lastModified();
+                    if (lm != null)
+                        _responseFields.put(HttpHeaders.LAST_MODIFIED_BUFFER, lm);
+                    else if (httpContent.getResource()!=null)
+                    {
+                        if (lml!=-1)
+                            _responseFields.putDateField(HttpHeaders.LAST_MODIFIED_BUFFER, lml);
+                    }
                 }
 
+                // Content held by the ResourceCache is sent from memory, so only uncached
+                // or oversized content is sent from the file. The resource of a gzip variant
+                // is the uncompressed file, so a variant is never sent from it.
                 boolean direct=_connector instanceof NIOConnector && ((NIOConnector)_connector).getUseDirectBuffers() && !(_connector instanceof SslConnector);
-                content = direct?httpContent.getDirectBuffer():httpContent.getIndirectBuffer();
+                boolean cached=httpContent instanceof ResourceCache.Content || httpContent instanceof ResourceCache.GzipContent;
+                Buffer buffer = direct?httpContent.getDirectBuffer():(cached?httpContent.getIndirectBuffer():null);
+                if (buffer==null && !(httpContent instanceof ResourceCache.GzipContent) &&
+                    httpContent.getResource()!=null && sendFile(httpContent.getResource(),0,httpContent.getContentLength()))
+                    return;
+                content = buffer!=null?buffer:httpContent.getIndirectBuffer();
                 if (content==null)
                     content=httpContent.getInputStream();
             }
@@ -22,6 +22,7 @@ import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.nio.AsyncConnection;
 import org.eclipse.jetty.io.nio.SelectChannelEndPoint;
+import org.eclipse.jetty.io.nio.SslConnection;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -34,9 +35,11 @@ public class AsyncHttpConnection extends AbstractHttpConnection implements Async
 {
     private final static int NO_PROGRESS_INFO = Integer.getInteger("org.mortbay.jetty.NO_PROGRESS_INFO",100);
     private final static int NO_PROGRESS_CLOSE = Integer.getInteger("org.mortbay.jetty.NO_PROGRESS_CLOSE",200);
+    private final static int MAX_REQUESTS_PER_DISPATCH = Integer.getInteger("org.eclipse.jetty.server.AsyncHttpConnection.MAX_REQUESTS_PER_DISPATCH",0);
 
     private static final Logger LOG = Log.getLogger(AsyncHttpConnection.class);
     private int _total_no_progress;
+    private int _maxRequestsPerDispatch=MAX_REQUESTS_PER_DISPATCH;
     private final AsyncEndPoint _asyncEndp;
 
     public AsyncHttpConnection(Connector connector, EndPoint endpoint, Server server)
@@ -45,18 +48,48 @@ public class AsyncHttpConnection extends AbstractHttpConnection implements Async
         _asyncEndp=(AsyncEndPoint)endpoint;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of requests handled before the thread is yielded
+     * @see #setMaxRequestsPerDispatch(int)
+     */
+    public int getMaxRequestsPerDispatch()
+    {
+        return _maxRequestsPerDispatch;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the fairness budget of a dispatch.
+     * <p>
+     * A dispatched thread handles requests until no more can be read without blocking,
+     * so a busy connection with pipelined requests can be handled by a single dispatch.
+     * Once this many requests have been handled, the thread is yielded and the connection is
+     * dispatched again, behind any other connections waiting for a thread. For an SSL
+     * connection, the channel endpoint beneath the SSL endpoint is dispatched again.
+     * @param maxRequestsPerDispatch The maximum number of requests handled before the
+     * thread is yielded, or 0 for no maximum. The default is taken from the
+     * <code>org.eclipse.jetty.server.AsyncHttpConnection.MAX_REQUESTS_PER_DISPATCH</code> system property.
+     */
+    public void setMaxRequestsPerDispatch(int maxRequestsPerDispatch)
+    {
+        _maxRequestsPerDispatch=maxRequestsPerDispatch;
+    }
+
     public Connection handle() throws IOException
     {
         Connection connection = this;
         boolean some_progress=false;
         boolean progress=true;
+        boolean yield=false;
+        int requests=0;
 
         try
         {
             setCurrentConnection(this);
 
             // While progress and the connection has not changed
-            while (progress && connection==this)
+            while (progress && connection==this && !yield)
             {
                 progress=false;
                 try
@@ -116,6 +149,20 @@ public class AsyncHttpConnection extends AbstractHttpConnection implements Async
                             LOG.warn("Safety net oshut!!!  IF YOU SEE THIS, PLEASE RAISE BUGZILLA");
                             _endp.shutdownOutput();
                         }
+
+                        // Yield to other connections if this dispatch has handled its share of
+                        // (eg pipelined) requests, so the next request is handled by a new dispatch
+                        if (_maxRequestsPerDispatch>0 && ++requests>=_maxRequestsPerDispatch && connection==this && _endp.isOpen())
+                        {
+                            LOG.debug("yield {} after {} requests",this,requests);
+                            yield=true;
+                            // The transport of an SSL endpoint is the endpoint of the channel
+                            Object endp=_endp instanceof SslConnection.SslEndPoint?_endp.getTransport():_endp;
+                            if (endp instanceof SelectChannelEndPoint)
+                                ((SelectChannelEndPoint)endp).redispatch();
+                            else
+                                _asyncEndp.asyncDispatch();
+                        }
                     }
                     else if (_request.getAsyncContinuation().isAsyncStarted())
                     {
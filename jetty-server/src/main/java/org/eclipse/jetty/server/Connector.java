@@ -375,6 +375,9 @@ public interface Connector extends LifeCycle
      * For all connectors, low resources is used to trigger the 
      * usage of {@link #getLowResourceMaxIdleTime()} for read and 
      * write operations.
+     * <p>
+     * A {@link LowResourcesMonitor} may also place connectors in low
+     * resources state, based on measured latencies.
      * 
      * @return true if this connector is low on resources.
      */
@@ -0,0 +1,385 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.server;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/* ------------------------------------------------------------ */
+/** A monitor that places the connectors of a server in low resources state
+ * based on measured latencies.
+ * <p>
+ * Every {@link #getPeriod() period}, the monitor dispatches a probe job to the
+ * server thread pool to measure how long jobs wait in its queue, and reads the
+ * peak time taken by the select loops of each {@link SelectChannelConnector}.
+ * If either exceeds its threshold, the connectors are placed in low resources
+ * state, so that {@link AbstractConnector#getLowResourcesMaxIdleTime()} is used
+ * for idle connections, and accepting new connections is paused if
+ * {@link #isPauseAccepts()}. The connectors leave low resources state once both
+ * latencies are below their threshold multiplied by the {@link #getRecoveryRatio() recovery ratio},
+ * so that the state does not flap around a threshold.
+ * <p>
+ * The monitor is started with the server if it is added as a bean:
+ * <pre>
+ * server.addBean(new LowResourcesMonitor(server));
+ * </pre>
+ */
+public class LowResourcesMonitor extends AbstractLifeCycle
+{
+    private static final Logger LOG = Log.getLogger(LowResourcesMonitor.class);
+
+    private final Server _server;
+    private Timer _timer;
+    private int _period=1000;
+    private int _maxQueueLatency=100;
+    private int _maxSelectLoopTime=50;
+    private double _recoveryRatio=0.5;
+    private boolean _pauseAccepts=true;
+
+    private volatile boolean _lowResources;
+    private volatile String _reason;
+    private volatile long _lowResourcesStarted;
+    private volatile long _lowResourcesTime;
+    private volatile long _transitions;
+    private volatile long _queueLatency;
+    private volatile long _selectLoopTime;
+
+    private volatile long _probeQueued;
+    private volatile long _probeLatency;
+    private final Runnable _probe = new Runnable()
+    {
+        public void run()
+        {
+            _probeLatency=System.nanoTime()-_probeQueued;
+            _probeQueued=0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "LowResourcesProbe@"+Integer.toHexString(hashCode());
+        }
+    };
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param server The server whose thread pool and connectors are monitored
+     */
+    public LowResourcesMonitor(Server server)
+    {
+        _server=server;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The period in ms between checks of the latencies
+     */
+    public int getPeriod()
+    {
+        return _period;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param period The period in ms between checks of the latencies
+     */
+    public void setPeriod(int period)
+    {
+        if (period<=0)
+            throw new IllegalArgumentException("period "+period);
+        _period=period;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The time in ms that a job may wait in the thread pool queue before resources are low, or 0 to ignore
+     */
+    public int getMaxQueueLatency()
+    {
+        return _maxQueueLatency;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxQueueLatency The time in ms that a job may wait in the thread pool queue before resources are low, or 0 to ignore
+     */
+    public void setMaxQueueLatency(int maxQueueLatency)
+    {
+        _maxQueueLatency=maxQueueLatency;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The time in ms that a select loop may take before resources are low, or 0 to ignore
+     */
+    public int getMaxSelectLoopTime()
+    {
+        return _maxSelectLoopTime;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxSelectLoopTime The time in ms that a select loop may take before resources are low, or 0 to ignore
+     */
+    public void setMaxSelectLoopTime(int maxSelectLoopTime)
+    {
+        _maxSelectLoopTime=maxSelectLoopTime;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The fraction of the thresholds that the latencies must fall below to leave low resources state
+     */
+    public double getRecoveryRatio()
+    {
+        return _recoveryRatio;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param recoveryRatio The fraction of the thresholds that the latencies must fall below to leave low resources state
+     */
+    public void setRecoveryRatio(double recoveryRatio)
+    {
+        if (recoveryRatio<0 || recoveryRatio>1)
+            throw new IllegalArgumentException("recoveryRatio "+recoveryRatio);
+        _recoveryRatio=recoveryRatio;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if accepting new connections is paused while resources are low
+     */
+    public boolean isPauseAccepts()
+    {
+        return _pauseAccepts;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pauseAccepts True if accepting new connections is paused while resources are low
+     */
+    public void setPauseAccepts(boolean pauseAccepts)
+    {
+        _pauseAccepts=pauseAccepts;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the connectors are in low resources state
+     */
+    public boolean isLowResources()
+    {
+        return _lowResources;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The reason that resources were last found to be low, or null
+     */
+    public String getLowResourcesReason()
+    {
+        return _reason;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of times that the connectors were placed in low resources state
+     */
+    public long getLowResourcesTransitions()
+    {
+        return _transitions;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The total time in ms that the connectors have been in low resources state
+     */
+    public long getLowResourcesTime()
+    {
+        long time=_lowResourcesTime;
+        if (_lowResources)
+            time+=System.currentTimeMillis()-_lowResourcesStarted;
+        return time;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The time in ms that the last probe job waited in the thread pool queue,
+     * or has been waiting if it has not yet run
+     */
+    public long getQueueLatency()
+    {
+        return _queueLatency;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The peak time in ms of a select loop in the last period
+     */
+    public long getSelectLoopTime()
+    {
+        return _selectLoopTime;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStart() throws Exception
+    {
+        _probeQueued=0;
+        _probeLatency=0;
+        _timer=new Timer("LowResourcesMonitor@"+Integer.toHexString(hashCode()),true);
+        _timer.schedule(new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    check();
+                }
+                catch (Exception e)
+                {
+                    LOG.warn(e);
+                }
+            }
+        },_period,_period);
+        super.doStart();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        _timer.cancel();
+        _timer=null;
+        synchronized (this)
+        {
+            if (_lowResources)
+                setLowResources(false,null);
+        }
+        super.doStop();
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Measure the latencies and update the low resources state of the connectors.
+     */
+    protected synchronized void check()
+    {
+        String reason=null;
+
+        // Queue latency of the probe job, which may still be waiting
+        long now=System.nanoTime();
+        long queued=_probeQueued;
+        long queueLatency=TimeUnit.NANOSECONDS.toMillis(queued!=0?now-queued:_probeLatency);
+        ThreadPool pool=_server.getThreadPool();
+        if (queued==0 && pool!=null)
+        {
+            _probeQueued=now;
+            if (!pool.dispatch(_probe))
+            {
+                _probeQueued=0;
+                reason="Probe rejected by "+pool;
+            }
+        }
+        _queueLatency=queueLatency;
+
+        long selectLoopTime=resetSelectLoopTimePeak();
+        _selectLoopTime=selectLoopTime;
+
+        if (reason==null && _maxQueueLatency>0 && queueLatency>_maxQueueLatency)
+            reason="Queue latency "+queueLatency+"ms > "+_maxQueueLatency+"ms";
+        if (reason==null && _maxSelectLoopTime>0 && selectLoopTime>_maxSelectLoopTime)
+            reason="Select loop time "+selectLoopTime+"ms > "+_maxSelectLoopTime+"ms";
+
+        if (reason!=null)
+        {
+            if (!_lowResources)
+                setLowResources(true,reason);
+        }
+        else if (_lowResources &&
+                (_maxQueueLatency<=0 || queueLatency<=_maxQueueLatency*_recoveryRatio) &&
+                (_maxSelectLoopTime<=0 || selectLoopTime<=_maxSelectLoopTime*_recoveryRatio))
+        {
+            setLowResources(false,null);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The longest time in ms taken by a select loop of the {@link SelectChannelConnector}s
+     * since the last call.
+     */
+    protected long resetSelectLoopTimePeak()
+    {
+        long selectLoopTime=0;
+        Connector[] connectors=_server.getConnectors();
+        if (connectors!=null)
+        {
+            for (Connector connector : connectors)
+                if (connector instanceof SelectChannelConnector)
+                    selectLoopTime=Math.max(selectLoopTime,((SelectChannelConnector)connector).getSelectorManager().resetSelectLoopTimePeak());
+        }
+        return TimeUnit.MICROSECONDS.toMillis(selectLoopTime);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void setLowResources(boolean lowResources, String reason)
+    {
+        long now=System.currentTimeMillis();
+        if (lowResources)
+        {
+            _reason=reason;
+            _lowResourcesStarted=now;
+            _transitions++;
+            LOG.warn("Low resources: {}",reason);
+        }
+        else
+        {
+            _lowResourcesTime+=now-_lowResourcesStarted;
+            LOG.info("Recovered from low resources after {}ms",now-_lowResourcesStarted);
+        }
+        _lowResources=lowResources;
+
+        Connector[] connectors=_server.getConnectors();
+        if (connectors!=null)
+        {
+            for (Connector connector : connectors)
+            {
+                if (connector instanceof AbstractConnector)
+                {
+                    AbstractConnector c=(AbstractConnector)connector;
+                    c.setLowResources(lowResources);
+                    if (_pauseAccepts || !lowResources)
+                        c.setAcceptPaused(lowResources && _pauseAccepts);
+                }
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{low=%b,queue=%dms,select=%dms}",getClass().getSimpleName(),hashCode(),isLowResources(),getQueueLatency(),getSelectLoopTime());
+    }
+}
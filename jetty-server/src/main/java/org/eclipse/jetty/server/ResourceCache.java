@@ -23,15 +23,21 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+
 
 import org.eclipse.jetty.http.HttpContent;
 import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.gzip.DeflaterPool;
+import org.eclipse.jetty.http.gzip.PooledGzipOutputStream;
 import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.io.ByteArrayBuffer;
 import org.eclipse.jetty.io.View;
 import org.eclipse.jetty.io.nio.DirectNIOBuffer;
 import org.eclipse.jetty.io.nio.IndirectNIOBuffer;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
@@ -40,7 +46,13 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
 
 /* ------------------------------------------------------------ */
 /** 
- * 
+ * A cache of the content of resources.
+ * <p>
+ * If {@link #setGzipVariants(boolean) gzip variants} are enabled, then a gzip variant
+ * of {@link #isCompressible(Buffer) compressible} cached content is compressed on first
+ * request and retained with the content. The compressed bytes count towards the
+ * {@link #getMaxCacheSize() maximum cache size}, and the variant is discarded with the
+ * content when the resource is modified.
  */
 public class ResourceCache
 {
@@ -57,6 +69,8 @@ public class ResourceCache
     private int _maxCachedFileSize =4*1024*1024;
     private int _maxCachedFiles=2048;
     private int _maxCacheSize =32*1024*1024;
+    private boolean _gzipVariants;
+    private final DeflaterPool _deflaterPool=new DeflaterPool(1,Deflater.BEST_COMPRESSION,Deflater.DEFAULT_STRATEGY);
 
     /* ------------------------------------------------------------ */
     public ResourceCache(ResourceCache parent, ResourceFactory factory, MimeTypes mimeTypes,boolean useFileMappedBuffer)
@@ -148,6 +162,22 @@ public class ResourceCache
         _useFileMappedBuffer = useFileMappedBuffer;
     }
 
+    /* ------------------------------------------------------------ */
+    public boolean isGzipVariants()
+    {
+        return _gzipVariants;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param gzipVariants True if gzip variants of compressible content are cached
+     * @see Content#getGzipContent()
+     */
+    public void setGzipVariants(boolean gzipVariants)
+    {
+        _gzipVariants = gzipVariants;
+    }
+
     /* ------------------------------------------------------------ */
     public void flushCache()
     {
@@ -214,6 +244,18 @@ public class ResourceCache
         return  (len>0 && len<_maxCachedFileSize && len<_maxCacheSize);
     }
     
+    /* ------------------------------------------------------------ */
+    /**
+     * @param contentType The content type of cached content
+     * @return True if content of the type is worth compressing. The default implementation
+     * accepts text, javascript, json and xml types.
+     */
+    protected boolean isCompressible(Buffer contentType)
+    {
+        String type=contentType.toString();
+        return type.startsWith("text/") || type.indexOf("javascript")>=0 || type.indexOf("json")>=0 || type.indexOf("xml")>=0;
+    }
+    
     /* ------------------------------------------------------------ */
     private HttpContent load(String pathInContext, Resource resource)
         throws IOException
@@ -354,10 +396,15 @@ public class ResourceCache
         final long _lastModified;
         final Buffer _lastModifiedBytes;
         final Buffer _contentType;
+        final HttpFields.Block _headerBlock;
+        final boolean _compressible;
         
         volatile long _lastAccessed;
+        volatile boolean _invalid;
+        volatile boolean _incompressible;
         AtomicReference<Buffer> _indirectBuffer=new AtomicReference<Buffer>();
         AtomicReference<Buffer> _directBuffer=new AtomicReference<Buffer>();
+        AtomicReference<GzipContent> _gzipContent=new AtomicReference<GzipContent>();
 
         /* ------------------------------------------------------------ */
         Content(String pathInContext,Resource resource)
@@ -369,6 +416,14 @@ public class ResourceCache
             boolean exists=resource.exists();
             _lastModified=exists?resource.lastModified():-1;
             _lastModifiedBytes=_lastModified<0?null:new ByteArrayBuffer(HttpFields.formatDate(_lastModified));
+
+            HttpFields fields=new HttpFields();
+            if (_contentType!=null)
+                fields.put(HttpHeaders.CONTENT_TYPE_BUFFER,_contentType);
+            if (_lastModifiedBytes!=null)
+                fields.put(HttpHeaders.LAST_MODIFIED_BUFFER,_lastModifiedBytes);
+            _headerBlock=fields.size()==0?null:new HttpFields.Block(fields);
+            _compressible=_gzipVariants && _contentType!=null && ResourceCache.this.isCompressible(_contentType);
             
             _length=exists?(int)resource.length():0;
             _cachedSize.addAndGet(_length);
@@ -419,11 +474,88 @@ public class ResourceCache
         protected void invalidate()
         {
             // Invalidate it
+            _invalid=true;
             _cachedSize.addAndGet(-_length);
             _cachedFiles.decrementAndGet();
+            GzipContent gzip=_gzipContent.getAndSet(null);
+            if (gzip!=null)
+                _cachedSize.addAndGet(-(int)gzip.getContentLength());
             _resource.release(); 
         }
 
+        /* ------------------------------------------------------------ */
+        /**
+         * @return True if a gzip variant of the content may be cached
+         */
+        public boolean isCompressible()
+        {
+            return _compressible;
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Get the gzip variant of the content.
+         * The variant is compressed on the first call and retained with the content.
+         * @return The gzip variant, or null if gzip variants are not cached, the content
+         * is not compressible or the compressed content is not smaller.
+         */
+        public HttpContent getGzipContent()
+        {
+            if (!_compressible || _incompressible)
+                return null;
+
+            GzipContent gzip=_gzipContent.get();
+            if (gzip==null)
+            {
+                Buffer gzipped=compress();
+                if (gzipped==null)
+                {
+                    _incompressible=true;
+                    return null;
+                }
+
+                gzip=new GzipContent(this,gzipped);
+                if (_gzipContent.compareAndSet(null,gzip))
+                {
+                    _cachedSize.addAndGet(gzipped.length());
+                    // don't retain the variant if the content was invalidated meanwhile
+                    if (_invalid && _gzipContent.compareAndSet(gzip,null))
+                        _cachedSize.addAndGet(-gzipped.length());
+                    else
+                        shrinkCache();
+                }
+                else
+                {
+                    GzipContent added=_gzipContent.get();
+                    if (added!=null)
+                        gzip=added;
+                }
+            }
+            return gzip;
+        }
+
+        /* ------------------------------------------------------------ */
+        private Buffer compress()
+        {
+            Buffer buffer=getIndirectBuffer();
+            if (buffer==null)
+                return null;
+            try
+            {
+                ByteArrayOutputStream2 out=new ByteArrayOutputStream2(_length/2);
+                PooledGzipOutputStream gzip=new PooledGzipOutputStream(out,_deflaterPool,8192);
+                buffer.writeTo(gzip);
+                gzip.close();
+                if (out.getCount()>=_length)
+                    return null;
+                return new ByteArrayBuffer(out.toByteArray(),0,out.getCount(),Buffer.READONLY);
+            }
+            catch(IOException e)
+            {
+                LOG.warn(e);
+                return null;
+            }
+        }
+
         /* ------------------------------------------------------------ */
         public Buffer getLastModified()
         {
@@ -436,6 +568,15 @@ public class ResourceCache
             return _contentType;
         }
 
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The Content-Type and Last-Modified fields, pre-encoded, or null if there are neither
+         */
+        public HttpFields.Block getHeaderBlock()
+        {
+            return _headerBlock;
+        }
+
         /* ------------------------------------------------------------ */
         public void release()
         {
@@ -507,4 +648,87 @@ public class ResourceCache
             return String.format("%s %s %d %s %s",_resource,_resource.exists(),_resource.lastModified(),_contentType,_lastModifiedBytes);
         }   
     }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** The gzip variant of cached content.
+     * The compressed content is held in a heap buffer, that is returned as both the
+     * direct and indirect buffer.
+     */
+    public class GzipContent implements HttpContent
+    {
+        final Content _content;
+        final Buffer _gzipped;
+
+        /* ------------------------------------------------------------ */
+        GzipContent(Content content, Buffer gzipped)
+        {
+            _content=content;
+            _gzipped=gzipped;
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getContentType()
+        {
+            return _content.getContentType();
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getLastModified()
+        {
+            return _content.getLastModified();
+        }
+
+        /* ------------------------------------------------------------ */
+        public HttpFields.Block getHeaderBlock()
+        {
+            return _content.getHeaderBlock();
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getIndirectBuffer()
+        {
+            return new View(_gzipped);
+        }
+
+        /* ------------------------------------------------------------ */
+        public Buffer getDirectBuffer()
+        {
+            return new View(_gzipped);
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The uncompressed resource, for its meta data only. The compressed
+         * content must be sent from the buffers or the input stream of the variant.
+         */
+        public Resource getResource()
+        {
+            return _content.getResource();
+        }
+
+        /* ------------------------------------------------------------ */
+        public long getContentLength()
+        {
+            return _gzipped.length();
+        }
+
+        /* ------------------------------------------------------------ */
+        public InputStream getInputStream() throws IOException
+        {
+            return new ByteArrayInputStream(_gzipped.array(),_gzipped.getIndex(),_gzipped.length());
+        }
+
+        /* ------------------------------------------------------------ */
+        public void release()
+        {
+        }
+
+        /* ------------------------------------------------------------ */
+        @Override
+        public String toString()
+        {
+            return String.format("%s gzip %d",_content,_gzipped.length());
+        }
+    }
 }
@@ -21,6 +21,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +31,7 @@ import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationListener;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.gzip.DeflaterPool;
 import org.eclipse.jetty.http.gzip.GzipResponseWrapper;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.util.log.Log;
@@ -51,6 +53,10 @@ import org.eclipse.jetty.util.log.Logger;
  * Compressing the content can greatly improve the network bandwidth usage, but at a cost of memory and CPU cycles. If this handler is used for static content,
  * then use of efficient direct NIO may be prevented, thus use of the gzip mechanism of the <code>org.eclipse.jetty.servlet.DefaultServlet</code> is advised instead.
  * </p>
+ * <p>
+ * The {@link Deflater}s are pooled, so that responses do not each allocate the native memory of a new deflater.
+ * The compression level and strategy and the number of idle deflaters kept may be set.
+ * </p>
  */
 public class GzipHandler extends HandlerWrapper
 {
@@ -60,6 +66,10 @@ public class GzipHandler extends HandlerWrapper
     protected Set<String> _excluded;
     protected int _bufferSize = 8192;
     protected int _minGzipSize = 256;
+    protected int _compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    protected int _compressionStrategy = Deflater.DEFAULT_STRATEGY;
+    protected int _deflaterPoolCapacity = 64;
+    protected DeflaterPool _deflaterPool;
 
     /* ------------------------------------------------------------ */
     /**
@@ -199,6 +209,91 @@ public class GzipHandler extends HandlerWrapper
         _minGzipSize = minGzipSize;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Get the compression level.
+     * 
+     * @return the compression level of the deflaters
+     */
+    public int getCompressionLevel()
+    {
+        return _compressionLevel;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the compression level.
+     * 
+     * @param compressionLevel
+     *            the compression level, from 0 to 9, or -1 for the default
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        _compressionLevel = compressionLevel;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Get the compression strategy.
+     * 
+     * @return the compression strategy of the deflaters
+     */
+    public int getCompressionStrategy()
+    {
+        return _compressionStrategy;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the compression strategy.
+     * 
+     * @param compressionStrategy
+     *            the {@link Deflater} strategy: 0 for the default, 1 for filtered or 2 for huffman only
+     */
+    public void setCompressionStrategy(int compressionStrategy)
+    {
+        _compressionStrategy = compressionStrategy;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Get the deflater pool capacity.
+     * 
+     * @return the maximum number of idle deflaters kept
+     */
+    public int getDeflaterPoolCapacity()
+    {
+        return _deflaterPoolCapacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the deflater pool capacity.
+     * 
+     * @param deflaterPoolCapacity
+     *            the maximum number of idle deflaters kept
+     */
+    public void setDeflaterPoolCapacity(int deflaterPoolCapacity)
+    {
+        _deflaterPoolCapacity = deflaterPoolCapacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStart() throws Exception
+    {
+        _deflaterPool = new DeflaterPool(_deflaterPoolCapacity,_compressionLevel,_compressionStrategy);
+        super.doStart();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        _deflaterPool.clear();
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @see org.eclipse.jetty.server.handler.HandlerWrapper#handle(java.lang.String, org.eclipse.jetty.server.Request, javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
@@ -284,6 +379,7 @@ public class GzipHandler extends HandlerWrapper
                 super.setMimeTypes(GzipHandler.this._mimeTypes);
                 super.setBufferSize(GzipHandler.this._bufferSize);
                 super.setMinGzipSize(GzipHandler.this._minGzipSize);
+                super.setDeflaterPool(GzipHandler.this._deflaterPool);
             }
             
             @Override
@@ -258,6 +258,17 @@ public class BlockingChannelConnector extends AbstractNIOConnector
             return super.flush(header,buffer,trailer);
         }
 
+        /* ------------------------------------------------------------ */
+        /**
+         * @see org.eclipse.jetty.io.nio.ChannelEndPoint#flush(org.eclipse.jetty.io.Buffer[])
+         */
+        @Override
+        public int flush(Buffer... buffers) throws IOException
+        {
+            _idleTimestamp=System.currentTimeMillis();
+            return super.flush(buffers);
+        }
+
         /* ------------------------------------------------------------ */
         public void run()
         {
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jetty.io.NetworkTrafficListener;
+import org.eclipse.jetty.io.NetworkTrafficStatistics;
 import org.eclipse.jetty.io.nio.NetworkTrafficSelectChannelEndPoint;
 import org.eclipse.jetty.io.nio.SelectChannelEndPoint;
 import org.eclipse.jetty.io.nio.SelectorManager;
@@ -29,10 +30,13 @@ import org.eclipse.jetty.io.nio.SelectorManager;
  * <p>A specialized version of {@link SelectChannelConnector} that supports {@link NetworkTrafficListener}s.</p>
  * <p>{@link NetworkTrafficListener}s can be added and removed dynamically before and after this connector has
  * been started without causing {@link ConcurrentModificationException}s.</p>
+ * <p>The traffic of the connections may also be aggregated by {@link NetworkTrafficStatistics}, which
+ * count the bytes, reads, writes and time blocked on writes without the overhead of listener callbacks.</p>
  */
 public class NetworkTrafficSelectChannelConnector extends SelectChannelConnector
 {
     private final List<NetworkTrafficListener> listeners = new CopyOnWriteArrayList<NetworkTrafficListener>();
+    private volatile NetworkTrafficStatistics trafficStatistics;
 
     /**
      * @param listener the listener to add
@@ -50,10 +54,27 @@ public class NetworkTrafficSelectChannelConnector extends SelectChannelConnector
         listeners.remove(listener);
     }
 
+    /**
+     * @return the statistics of the traffic of the connections, or null if not counted
+     */
+    public NetworkTrafficStatistics getTrafficStatistics()
+    {
+        return trafficStatistics;
+    }
+
+    /**
+     * @param statistics the statistics of the traffic of the connections, or null to not count the traffic.
+     * Applies to connections opened after it is set.
+     */
+    public void setTrafficStatistics(NetworkTrafficStatistics statistics)
+    {
+        trafficStatistics = statistics;
+    }
+
     @Override
     protected SelectChannelEndPoint newEndPoint(SocketChannel channel, SelectorManager.SelectSet selectSet, SelectionKey key) throws IOException
     {
-        NetworkTrafficSelectChannelEndPoint endPoint = new NetworkTrafficSelectChannelEndPoint(channel, selectSet, key, _maxIdleTime, listeners);
+        NetworkTrafficSelectChannelEndPoint endPoint = new NetworkTrafficSelectChannelEndPoint(channel, selectSet, key, _maxIdleTime, listeners, trafficStatistics);
         endPoint.setConnection(selectSet.getManager().newConnection(channel,endPoint, key.attachment()));
         endPoint.notifyOpened();
         return endPoint;
@@ -19,7 +19,10 @@ import java.net.Socket;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.io.AsyncEndPoint;
@@ -30,11 +33,14 @@ import org.eclipse.jetty.io.nio.AsyncConnection;
 import org.eclipse.jetty.io.nio.SelectChannelEndPoint;
 import org.eclipse.jetty.io.nio.SelectorManager;
 import org.eclipse.jetty.io.nio.SelectorManager.SelectSet;
+import org.eclipse.jetty.io.nio.SslConnection;
+import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.eclipse.jetty.server.AsyncHttpConnection;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.util.component.AggregateLifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
 import org.eclipse.jetty.util.thread.ThreadPool;
 
 /* ------------------------------------------------------------------------------- */
@@ -60,6 +66,12 @@ import org.eclipse.jetty.util.thread.ThreadPool;
  * thus if possible it should be read after the continuation or saved as a request attribute or as the
  * associated object of the Continuation instance.
  * </p>
+ * <p>
+ * If {@link #setAcceptInSelector(boolean)} is true, then no acceptor threads are used and each select set
+ * accepts connections itself, so that accept, registration and IO for a connection are handled by the
+ * same selecting thread. If the JVM supports SO_REUSEPORT, each select set is given its own server
+ * channel bound to the same port, otherwise a single server channel is selected by all the select sets.
+ * </p>
  *
  * @org.apache.xbean.XBean element="nioConnector" description="Creates an NIO based socket connector"
  */
@@ -68,11 +80,16 @@ public class SelectChannelConnector extends AbstractNIOConnector
     private static final Logger LOG = Log.getLogger(SelectChannelConnector.class);
 
     protected ServerSocketChannel _acceptChannel;
+    private ServerSocketChannel[] _acceptChannels;
+    private boolean _acceptInSelector;
     private int _lowResourcesConnections;
     private int _lowResourcesMaxIdleTime;
     private int _localPort=-1;
+    private int _minWriteRate;
+    private long _minWriteRatePeriod=5000;
 
     private final SelectorManager _manager = new ConnectorSelectorManager();
+    private final SampleStatistic _dispatchStats = new SampleStatistic();
 
     /* ------------------------------------------------------------------------------- */
     /**
@@ -110,6 +127,13 @@ public class SelectChannelConnector extends AbstractNIOConnector
     {
         synchronized(this)
         {
+            if (_acceptChannels != null)
+            {
+                for (ServerSocketChannel channel : _acceptChannels)
+                    if (channel != _acceptChannel)
+                        channel.close();
+            }
+            _acceptChannels = null;
             if (_acceptChannel != null)
                 _acceptChannel.close();
             _acceptChannel = null;
@@ -158,6 +182,29 @@ public class SelectChannelConnector extends AbstractNIOConnector
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if connections are accepted by the select sets rather than by acceptor threads.
+     */
+    public boolean isAcceptInSelector()
+    {
+        return _acceptInSelector;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set whether connections are accepted by the select sets rather than by acceptor threads.
+     * In this mode, there is a select set for each of the {@link #getAcceptors()} and if the JVM
+     * supports SO_REUSEPORT, each select set has its own server channel bound to the port.
+     * @param acceptInSelector True if connections are accepted by the select sets.
+     */
+    public void setAcceptInSelector(boolean acceptInSelector)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _acceptInSelector=acceptInSelector;
+    }
+
     /* ------------------------------------------------------------ */
     public void open() throws IOException
     {
@@ -165,24 +212,87 @@ public class SelectChannelConnector extends AbstractNIOConnector
         {
             if (_acceptChannel == null)
             {
-                // Create a new server socket
-                _acceptChannel = ServerSocketChannel.open();
-                // Set to blocking mode
-                _acceptChannel.configureBlocking(true);
+                if (_acceptInSelector)
+                {
+                    // Try to bind a channel per select set to the same port
+                    List<ServerSocketChannel> channels = new ArrayList<ServerSocketChannel>();
+                    _acceptChannel = openChannel(getPort(),true);
+                    channels.add(_acceptChannel);
+                    if (getAcceptors()>1 && isReusePort(_acceptChannel))
+                    {
+                        for (int i=1;i<getAcceptors();i++)
+                            channels.add(openChannel(_localPort,true));
+                    }
+                    _acceptChannels = channels.toArray(new ServerSocketChannel[channels.size()]);
+                }
+                else
+                    _acceptChannel = openChannel(getPort(),false);
+            }
+        }
+    }
 
-                // Bind the server socket to the local host and port
-                _acceptChannel.socket().setReuseAddress(getReuseAddress());
-                InetSocketAddress addr = getHost()==null?new InetSocketAddress(getPort()):new InetSocketAddress(getHost(),getPort());
-                _acceptChannel.socket().bind(addr,getAcceptQueueSize());
+    /* ------------------------------------------------------------ */
+    private ServerSocketChannel openChannel(int port, boolean reusePort) throws IOException
+    {
+        // Create a new server socket
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        // Set to blocking mode unless the select sets accept
+        channel.configureBlocking(!_acceptInSelector);
+
+        // Bind the server socket to the local host and port
+        channel.socket().setReuseAddress(getReuseAddress());
+        if (reusePort)
+            setReusePort(channel);
+        InetSocketAddress addr = getHost()==null?new InetSocketAddress(port):new InetSocketAddress(getHost(),port);
+        channel.socket().bind(addr,getAcceptQueueSize());
+
+        _localPort=channel.socket().getLocalPort();
+        if (_localPort<=0)
+            throw new IOException("Server channel not bound");
+        return channel;
+    }
 
-                _localPort=_acceptChannel.socket().getLocalPort();
-                if (_localPort<=0)
-                    throw new IOException("Server channel not bound");
+    /* ------------------------------------------------------------ */
+    /** Set SO_REUSEPORT on a channel if the JVM supports it.
+     * The option is set by reflection, as it is only available from java 9.
+     */
+    private static void setReusePort(ServerSocketChannel channel)
+    {
+        try
+        {
+            Object option = Class.forName("java.net.StandardSocketOptions").getField("SO_REUSEPORT").get(null);
+            Set<?> supported = (Set<?>)ServerSocketChannel.class.getMethod("supportedOptions").invoke(channel);
+            if (supported.contains(option))
+                ServerSocketChannel.class.getMethod("setOption",Class.forName("java.net.SocketOption"),Object.class).invoke(channel,option,Boolean.TRUE);
+        }
+        catch (Exception e)
+        {
+            LOG.ignore(e);
+        }
+    }
 
-            }
+    /* ------------------------------------------------------------ */
+    private static boolean isReusePort(ServerSocketChannel channel)
+    {
+        try
+        {
+            Object option = Class.forName("java.net.StandardSocketOptions").getField("SO_REUSEPORT").get(null);
+            return Boolean.TRUE.equals(ServerSocketChannel.class.getMethod("getOption",Class.forName("java.net.SocketOption")).invoke(channel,option));
+        }
+        catch (Exception e)
+        {
+            LOG.ignore(e);
+            return false;
         }
     }
 
+    /* ------------------------------------------------------------ */
+    @Override
+    protected int getAcceptorThreads()
+    {
+        return _acceptInSelector?0:super.getAcceptorThreads();
+    }
+
     /* ------------------------------------------------------------ */
     @Override
     public void setMaxIdleTime(int maxIdleTime)
@@ -212,6 +322,22 @@ public class SelectChannelConnector extends AbstractNIOConnector
         _lowResourcesConnections=lowResourcesConnections;
     }
 
+    /* ------------------------------------------------------------ */
+    @Override
+    public void setLowResources(boolean lowResources)
+    {
+        super.setLowResources(lowResources);
+        _manager.setLowResources(lowResources);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void setAcceptPaused(boolean paused)
+    {
+        super.setAcceptPaused(paused);
+        _manager.setAcceptPaused(paused);
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @return the lowResourcesMaxIdleTime
@@ -237,6 +363,184 @@ public class SelectChannelConnector extends AbstractNIOConnector
         super.setLowResourcesMaxIdleTime(lowResourcesMaxIdleTime);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The minimum rate in bytes per second at which a response must be written
+     * to a client, or 0 if the rate is not checked.
+     */
+    public int getMinWriteRate()
+    {
+        return _minWriteRate;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the minimum rate at which a response must be written to a client.
+     * A thread that blocks writing to a client that reads more slowly than this rate,
+     * measured over each {@link #getMinWriteRatePeriod()}, gives up as if the write had timed out
+     * and the connection is closed, so that slow clients cannot hold threads.
+     * This applies to connections opened after it is set.
+     * @param minWriteRate the rate in bytes per second, or 0 to not check the rate.
+     * @see SelectChannelEndPoint#setMinWriteRate(int)
+     */
+    public void setMinWriteRate(int minWriteRate)
+    {
+        _minWriteRate=minWriteRate;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the period in ms over which the write rate is measured
+     */
+    public long getMinWriteRatePeriod()
+    {
+        return _minWriteRatePeriod;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param period the period in ms over which the write rate is measured
+     * @see #setMinWriteRate(int)
+     */
+    public void setMinWriteRatePeriod(long period)
+    {
+        _minWriteRatePeriod=period;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of slow clients evicted because they could not be written to at the minimum write rate
+     * @see SelectorManager#getSlowClientEvictions()
+     */
+    public long getSlowClientEvictions()
+    {
+        return _manager.getSlowClientEvictions();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of selector wakeups requested
+     * @see SelectorManager#getWakeupRequests()
+     */
+    public long getSelectorWakeupRequests()
+    {
+        return _manager.getWakeupRequests();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of selector wakeups done
+     * @see SelectorManager#getWakeups()
+     */
+    public long getSelectorWakeups()
+    {
+        return _manager.getWakeups();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean number of changes processed per select
+     * @see SelectorManager#getChangesPerSelectMean()
+     */
+    public double getSelectorChangesMean()
+    {
+        return _manager.getChangesPerSelectMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of changes processed by a select
+     * @see SelectorManager#getChangesPerSelectMax()
+     */
+    public long getSelectorChangesMax()
+    {
+        return _manager.getChangesPerSelectMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean time in microseconds of a select loop, not including time waiting in select
+     * @see SelectorManager#getSelectLoopTimeMean()
+     */
+    public double getSelectorLoopTimeMean()
+    {
+        return _manager.getSelectLoopTimeMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum time in microseconds of a select loop, not including time waiting in select
+     * @see SelectorManager#getSelectLoopTimeMax()
+     */
+    public long getSelectorLoopTimeMax()
+    {
+        return _manager.getSelectLoopTimeMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Mean number of dispatches of a thread per connection since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public double getConnectionsDispatchesMean()
+    {
+        return _dispatchStats.getMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Maximum number of dispatches of a thread per connection since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getConnectionsDispatchesMax()
+    {
+        return _dispatchStats.getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Mean number of requests handled per dispatch of a thread to a connection, for the
+     * connections closed since statsReset() called. Undefined if setStatsOn(false).
+     * A value above 1 indicates connections with pipelined requests handled in a single dispatch.
+     */
+    public double getRequestsPerDispatch()
+    {
+        long dispatches=_dispatchStats.getTotal();
+        return dispatches==0?0.0:((double)getRequests())/dispatches;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The capacity in bytes of the buffers held by connections that are idle between requests.
+     * The connections are iterated, so this should not be called too frequently.
+     */
+    public long getIdleConnectionsBuffersCapacity()
+    {
+        long capacity=0;
+        for (int i=0;i<_manager.getSelectSets();i++)
+        {
+            SelectSet set=_manager.getSelectSet(i);
+            if (set==null)
+                continue;
+            for (SelectChannelEndPoint endp : set.getEndPoints())
+            {
+                Connection connection=endp.getConnection();
+                if (connection instanceof SslConnection)
+                    connection=((SslConnection)connection).getSslEndPoint().getConnection();
+                if (connection instanceof AbstractHttpConnection && connection.isIdle())
+                    capacity+=((AbstractHttpConnection)connection).getBuffersCapacity();
+            }
+        }
+        return capacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void statsReset()
+    {
+        super.statsReset();
+        _dispatchStats.reset();
+        _manager.statsReset();
+    }
+
 
     /* ------------------------------------------------------------ */
     /*
@@ -252,6 +556,26 @@ public class SelectChannelConnector extends AbstractNIOConnector
 
         super.doStart();
         _manager.start();
+
+        if (_acceptInSelector)
+        {
+            ServerSocketChannel[] channels;
+            synchronized(this)
+            {
+                // A channel opened elsewhere (eg inherited) is shared by all the select sets
+                if (_acceptChannels==null && _acceptChannel!=null)
+                {
+                    _acceptChannel.configureBlocking(false);
+                    _acceptChannels=new ServerSocketChannel[]{_acceptChannel};
+                }
+                channels=_acceptChannels;
+            }
+            if (channels!=null)
+            {
+                for (int i=0;i<_manager.getSelectSets();i++)
+                    _manager.register(channels[i%channels.length],i);
+            }
+        }
     }
 
     /* ------------------------------------------------------------ */
@@ -289,6 +613,8 @@ public class SelectChannelConnector extends AbstractNIOConnector
     /* ------------------------------------------------------------------------------- */
     protected void endPointClosed(SelectChannelEndPoint endpoint)
     {
+        if (getStatsOn())
+            _dispatchStats.set(endpoint.getDispatches());
         connectionClosed(endpoint.getConnection());
     }
 
@@ -310,7 +636,7 @@ public class SelectChannelConnector extends AbstractNIOConnector
         if (channel==null)
             AggregateLifeCycle.dump(out,indent,Arrays.asList(null,"CLOSED",_manager));
         else
-            AggregateLifeCycle.dump(out,indent,Arrays.asList(channel,channel.isOpen()?"OPEN":"CLOSED",_manager));
+            AggregateLifeCycle.dump(out,indent,Arrays.asList(channel,channel.isOpen()?"OPEN":"CLOSED",_acceptInSelector?"ACCEPT_IN_SELECTOR":"ACCEPTORS",_manager));
     }
 
     /* ------------------------------------------------------------ */
@@ -327,6 +653,12 @@ public class SelectChannelConnector extends AbstractNIOConnector
             return pool.dispatch(task);
         }
 
+        @Override
+        protected void accepted(SocketChannel channel) throws IOException
+        {
+            configure(channel.socket());
+        }
+
         @Override
         protected void endPointClosed(final SelectChannelEndPoint endpoint)
         {
@@ -355,7 +687,13 @@ public class SelectChannelConnector extends AbstractNIOConnector
         @Override
         protected SelectChannelEndPoint newEndPoint(SocketChannel channel, SelectSet selectSet, SelectionKey sKey) throws IOException
         {
-            return SelectChannelConnector.this.newEndPoint(channel,selectSet,sKey);
+            SelectChannelEndPoint endp=SelectChannelConnector.this.newEndPoint(channel,selectSet,sKey);
+            if (_minWriteRate>0)
+            {
+                endp.setMinWriteRatePeriod(_minWriteRatePeriod);
+                endp.setMinWriteRate(_minWriteRate);
+            }
+            return endp;
         }
     }
 
@@ -15,6 +15,8 @@ package org.eclipse.jetty.server.ssl;
 
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -23,6 +25,7 @@ import javax.net.ssl.SSLSocket;
 
 import org.eclipse.jetty.http.HttpSchemes;
 import org.eclipse.jetty.io.AsyncEndPoint;
+import org.eclipse.jetty.io.BufferPool;
 import org.eclipse.jetty.io.Buffers;
 import org.eclipse.jetty.io.Buffers.Type;
 import org.eclipse.jetty.io.BuffersFactory;
@@ -31,6 +34,7 @@ import org.eclipse.jetty.io.RuntimeIOException;
 import org.eclipse.jetty.io.bio.SocketEndPoint;
 import org.eclipse.jetty.io.nio.AsyncConnection;
 import org.eclipse.jetty.io.nio.SslConnection;
+import org.eclipse.jetty.io.nio.SslStatistics;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -45,6 +49,18 @@ public class SslSelectChannelConnector extends SelectChannelConnector implements
 {
     private final SslContextFactory _sslContextFactory;
     private Buffers _sslBuffers;
+    private boolean _asyncDelegatedTasks;
+    private boolean _sslDirectBuffers;
+    private BufferPool _sslBufferPool;
+    private final SslStatistics _sslStatistics = new SslStatistics();
+    private final Executor _taskExecutor = new Executor()
+    {
+        public void execute(Runnable task)
+        {
+            if (!getThreadPool().dispatch(task))
+                throw new RejectedExecutionException();
+        }
+    };
 
     /* ------------------------------------------------------------ */
     public SslSelectChannelConnector()
@@ -546,6 +562,12 @@ public class SslSelectChannelConnector extends SelectChannelConnector implements
             AsyncConnection delegate = newPlainConnection(channel, connection.getSslEndPoint());
             connection.getSslEndPoint().setConnection(delegate);
             connection.setAllowRenegotiate(_sslContextFactory.isAllowRenegotiate());
+            if (_asyncDelegatedTasks)
+                connection.setTaskExecutor(_taskExecutor);
+            if (_sslDirectBuffers)
+                connection.setBufferPool(_sslBufferPool);
+            if (getStatsOn())
+                connection.setStatistics(_sslStatistics);
             return connection;
         }
         catch (IOException e)
@@ -564,6 +586,151 @@ public class SslSelectChannelConnector extends SelectChannelConnector implements
         return new SslConnection(engine, endpoint);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the delegated tasks of the initial SSL handshake are run asynchronously
+     * @see #setAsyncDelegatedTasks(boolean)
+     */
+    public boolean isAsyncDelegatedTasks()
+    {
+        return _asyncDelegatedTasks;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set if the delegated tasks of the initial SSL handshake (eg certificate verification and key
+     * exchange) are run asynchronously. If true, the tasks are dispatched to the thread pool and the
+     * thread handling the connection is released until they are complete, rather than being held
+     * while the tasks are run.
+     * @param asyncDelegatedTasks True if the delegated tasks are run asynchronously
+     * @see SslConnection#setTaskExecutor(Executor)
+     */
+    public void setAsyncDelegatedTasks(boolean asyncDelegatedTasks)
+    {
+        _asyncDelegatedTasks = asyncDelegatedTasks;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if pooled direct buffers are used for the encrypted data
+     */
+    public boolean isSslDirectBuffers()
+    {
+        return _sslDirectBuffers;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set if pooled direct buffers are used for the encrypted data. If true, the buffers of the
+     * connections are obtained from the shared {@link BuffersFactory#getBufferPool()}, or a pool of
+     * this connector if there is no shared pool, rather than being cached per thread.
+     * @param sslDirectBuffers True if pooled direct buffers are used for the encrypted data
+     * @see SslConnection#setBufferPool(BufferPool)
+     */
+    public void setSslDirectBuffers(boolean sslDirectBuffers)
+    {
+        _sslDirectBuffers = sslDirectBuffers;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The SSL statistics of the connections opened since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public SslStatistics getSslStatistics()
+    {
+        return _sslStatistics;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Number of SSL handshakes since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getSslHandshakes()
+    {
+        return _sslStatistics.getHandshakes();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Mean time in ms of an SSL handshake since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public double getSslHandshakeTimeMean()
+    {
+        return _sslStatistics.getHandshakeTimeMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Maximum time in ms of an SSL handshake since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getSslHandshakeTimeMax()
+    {
+        return _sslStatistics.getHandshakeTimeMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Number of SSL handshakes that created a new session since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getSslFullHandshakes()
+    {
+        return _sslStatistics.getFullHandshakes();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Number of SSL handshakes that resumed a cached session since statsReset() called, not including TLS 1.3 resumptions. Undefined if setStatsOn(false).
+     */
+    public long getSslResumedHandshakes()
+    {
+        return _sslStatistics.getResumedHandshakes();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Fraction of SSL handshakes that resumed a cached session since statsReset() called, not including TLS 1.3 resumptions. Undefined if setStatsOn(false).
+     */
+    public double getSslSessionCacheHitRatio()
+    {
+        return _sslStatistics.getSessionCacheHitRatio();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Number of sessions in the server session cache of the {@link SslContextFactory}
+     * @see SslContextFactory#getSslSessionCacheEntries()
+     */
+    public int getSslSessionCacheEntries()
+    {
+        return _sslContextFactory.getSslSessionCacheEntries();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Bytes per second wrapped by the SSL engines since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getSslWrapThroughput()
+    {
+        return _sslStatistics.getWrapThroughput();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return Bytes per second unwrapped by the SSL engines since statsReset() called. Undefined if setStatsOn(false).
+     */
+    public long getSslUnwrapThroughput()
+    {
+        return _sslStatistics.getUnwrapThroughput();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void statsReset()
+    {
+        super.statsReset();
+        _sslStatistics.reset();
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @param channel A channel which if passed is used as to extract remote
@@ -612,6 +779,10 @@ public class SslSelectChannelConnector extends SelectChannelConnector implements
                 getUseDirectBuffers()?Type.DIRECT:Type.INDIRECT,getMaxBuffers()
         );
 
+        _sslBufferPool=BuffersFactory.getBufferPool();
+        if (_sslBufferPool==null)
+            _sslBufferPool=new BufferPool();
+
         if (getRequestHeaderSize()<sslSession.getApplicationBufferSize())
             setRequestHeaderSize(sslSession.getApplicationBufferSize());
         if (getRequestBufferSize()<sslSession.getApplicationBufferSize())
@@ -629,6 +800,7 @@ public class SslSelectChannelConnector extends SelectChannelConnector implements
     {
         _sslContextFactory.stop();
         _sslBuffers=null;
+        _sslBufferPool=null;
         super.doStop();
     }
 
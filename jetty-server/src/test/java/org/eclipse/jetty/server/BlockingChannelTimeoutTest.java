@@ -13,7 +13,23 @@
 
 package org.eclipse.jetty.server;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.Assert;
+
+import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.nio.BlockingChannelConnector;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.junit.BeforeClass;
@@ -38,4 +54,54 @@ public class BlockingChannelTimeoutTest extends ConnectorTimeoutTest
         // TODO
         LOG.warn("skipped BlockingChannelTimeoutTest#testMaxIdleWithWait");
     }
+
+    @Test
+    public void testMaxIdleWithStreamingResponse() throws Exception
+    {
+        configureServer(new StreamingResponseHandler());
+        Socket client=newSocket(HOST,_connector.getLocalPort());
+        client.setSoTimeout(10000);
+
+        OutputStream os=client.getOutputStream();
+        InputStream is=client.getInputStream();
+
+        os.write((
+                "GET / HTTP/1.1\r\n"+
+                "host: "+HOST+":"+_connector.getLocalPort()+"\r\n"+
+                "\r\n").getBytes("utf-8"));
+        os.flush();
+
+        // The response takes several times the max idle time to stream
+        String in = IO.toString(is);
+        Assert.assertTrue(in.startsWith("HTTP/1.1 200 "));
+        int length=0;
+        for (int i=in.indexOf("\r\n\r\n");i<in.length();i++)
+            if (in.charAt(i)=='x')
+                length++;
+        assertEquals(StreamingResponseHandler.WRITES*StreamingResponseHandler.CHUNK,length);
+    }
+
+    protected static class StreamingResponseHandler extends AbstractHandler
+    {
+        static final int WRITES=12;
+        static final int CHUNK=4096;
+
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            baseRequest.setHandled(true);
+            response.setStatus(200);
+            OutputStream out = response.getOutputStream();
+            response.flushBuffer();
+
+            // Each chunk bypasses the response buffer and is flushed with its chunk header in a gathering flush
+            byte[] chunk=new byte[CHUNK];
+            Arrays.fill(chunk,(byte)'x');
+            for (int i=0;i<WRITES;i++)
+            {
+                out.write(chunk);
+                try{Thread.sleep(100);}catch(Exception e){e.printStackTrace();}
+            }
+            out.close();
+        }
+    }
 }
@@ -0,0 +1,237 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LowResourcesMonitorTest
+{
+    private Server _server;
+    private SelectChannelConnector _connector;
+    private QueuedThreadPool _threadPool;
+    private LowResourcesMonitor _monitor;
+    private volatile long _selectLoopTime=-1;
+
+    @Before
+    public void init() throws Exception
+    {
+        _server = new Server();
+        _threadPool = new QueuedThreadPool();
+        _threadPool.setMinThreads(4);
+        _threadPool.setMaxThreads(8);
+        _server.setThreadPool(_threadPool);
+
+        _connector = new SelectChannelConnector();
+        _connector.setAcceptInSelector(true);
+        _connector.setMaxIdleTime(30000);
+        _connector.setLowResourcesMaxIdleTime(1000);
+        _server.addConnector(_connector);
+        _server.setHandler(new AbstractHandler()
+        {
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setStatus(200);
+            }
+        });
+
+        _monitor = new LowResourcesMonitor(_server)
+        {
+            @Override
+            protected long resetSelectLoopTimePeak()
+            {
+                long selectLoopTime=super.resetSelectLoopTimePeak();
+                return _selectLoopTime<0?selectLoopTime:_selectLoopTime;
+            }
+        };
+        _monitor.setPeriod(3600000);
+        _monitor.setMaxQueueLatency(50);
+        _monitor.setMaxSelectLoopTime(0);
+        _server.addBean(_monitor);
+        _server.start();
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        _server.stop();
+        _server.join();
+    }
+
+    @Test
+    public void testQueueLatency() throws Exception
+    {
+        _monitor.check();
+        Thread.sleep(100);
+        _monitor.check();
+        assertTrue(_monitor.getQueueLatency()<50);
+        assertFalse(_monitor.isLowResources());
+        assertFalse(_connector.isLowResources());
+
+        // Occupy all the threads, so that the probe waits in the queue
+        final CountDownLatch blocked = new CountDownLatch(1);
+        for (int i=0;i<_threadPool.getMaxThreads();i++)
+        {
+            _threadPool.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        blocked.await(10,TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException e)
+                    {
+                    }
+                }
+            });
+        }
+        _monitor.check();
+        Thread.sleep(200);
+        _monitor.check();
+
+        assertTrue(_monitor.getQueueLatency()>=200);
+        assertTrue(_monitor.isLowResources());
+        assertEquals(1,_monitor.getLowResourcesTransitions());
+        assertTrue(_monitor.getLowResourcesReason().startsWith("Queue latency"));
+        assertTrue(_connector.isLowResources());
+        assertTrue(_connector.isAcceptPaused());
+        assertTrue(_connector.getSelectorManager().isLowResources());
+
+        // The probe has run late, so recovery waits for the next probe
+        blocked.countDown();
+        Thread.sleep(100);
+        _monitor.check();
+        assertTrue(_monitor.isLowResources());
+        Thread.sleep(100);
+        _monitor.check();
+
+        assertFalse(_monitor.isLowResources());
+        assertFalse(_connector.isLowResources());
+        assertFalse(_connector.isAcceptPaused());
+        assertEquals(1,_monitor.getLowResourcesTransitions());
+        assertTrue(_monitor.getLowResourcesTime()>=200);
+    }
+
+    @Test
+    public void testDisabledThreshold() throws Exception
+    {
+        // Select loops are slow, but the select loop time threshold is disabled
+        _selectLoopTime=20;
+        _monitor.check();
+        Thread.sleep(100);
+        _monitor.check();
+        assertEquals(20,_monitor.getSelectLoopTime());
+        assertFalse(_monitor.isLowResources());
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        for (int i=0;i<_threadPool.getMaxThreads();i++)
+        {
+            _threadPool.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        blocked.await(10,TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException e)
+                    {
+                    }
+                }
+            });
+        }
+        _monitor.check();
+        Thread.sleep(200);
+        _monitor.check();
+        assertTrue(_monitor.isLowResources());
+        assertTrue(_connector.isAcceptPaused());
+
+        // Recovery does not wait for the select loop time
+        blocked.countDown();
+        Thread.sleep(100);
+        _monitor.check();
+        Thread.sleep(100);
+        _monitor.check();
+        assertFalse(_monitor.isLowResources());
+        assertFalse(_connector.isAcceptPaused());
+    }
+
+    @Test
+    public void testAcceptPaused() throws Exception
+    {
+        _connector.setAcceptPaused(true);
+        Thread.sleep(100);
+
+        Socket client = new Socket("localhost",_connector.getLocalPort());
+        try
+        {
+            client.setSoTimeout(500);
+            OutputStream out = client.getOutputStream();
+            out.write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes("ISO-8859-1"));
+            out.flush();
+
+            InputStream in = client.getInputStream();
+            try
+            {
+                in.read();
+                fail("accepted while paused");
+            }
+            catch(SocketTimeoutException e)
+            {
+                // expected
+            }
+
+            _connector.setAcceptPaused(false);
+            client.setSoTimeout(5000);
+            byte[] buffer = new byte[12];
+            int len=0;
+            while (len<buffer.length)
+            {
+                int l=in.read(buffer,len,buffer.length-len);
+                if (l<0)
+                    break;
+                len+=l;
+            }
+            assertEquals("HTTP/1.1 200",new String(buffer,0,len,"ISO-8859-1"));
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+}
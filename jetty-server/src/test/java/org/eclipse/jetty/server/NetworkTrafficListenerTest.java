@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.io.NetworkTrafficListener;
+import org.eclipse.jetty.io.NetworkTrafficStatistics;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.nio.NetworkTrafficSelectChannelConnector;
 import org.junit.After;
@@ -225,6 +226,55 @@ public class NetworkTrafficListenerTest
         socket.close();
     }
 
+    @Test
+    public void testTrafficStatistics() throws Exception
+    {
+        final String responseContent = "response_content";
+        initConnector(new AbstractHandler()
+        {
+            public void handle(String uri, Request request, HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException, ServletException
+            {
+                request.setHandled(true);
+                ServletOutputStream output = servletResponse.getOutputStream();
+                output.write(responseContent.getBytes("UTF-8"));
+                output.write(END_OF_CONTENT);
+            }
+        });
+
+        NetworkTrafficStatistics statistics = new NetworkTrafficStatistics();
+        connector.setTrafficStatistics(statistics);
+        int port = connector.getLocalPort();
+
+        String request = "" +
+                "GET / HTTP/1.1\r\n" +
+                "Host: localhost:" + port + "\r\n" +
+                "\r\n";
+
+        Socket socket = new Socket("localhost", port);
+        OutputStream output = socket.getOutputStream();
+        output.write(request.getBytes("UTF-8"));
+        output.flush();
+
+        String response = new String(readResponse(socket), "UTF-8");
+        assertTrue(response.endsWith(responseContent + (char)END_OF_CONTENT));
+        socket.close();
+
+        // The response may be read before the write is counted
+        for (int i = 0; i < 100 && statistics.getBytesOut() < response.length(); i++)
+            Thread.sleep(10);
+
+        assertEquals(1, statistics.getConnections());
+        assertEquals(request.length(), statistics.getBytesIn());
+        assertTrue(statistics.getReads() >= 1);
+        assertEquals(response.length(), statistics.getBytesOut());
+        assertTrue(statistics.getWrites() >= 1);
+        assertTrue(statistics.getBytesPerWrite() > 0);
+
+        String[] subnets = statistics.getSubnets();
+        assertEquals(1, subnets.length);
+        assertTrue(subnets[0], subnets[0].startsWith("127.0.0.0/24{connections=1,"));
+    }
+
     @Test
     public void testTrafficWithResponseContentChunkedOnPersistentConnection() throws Exception
     {
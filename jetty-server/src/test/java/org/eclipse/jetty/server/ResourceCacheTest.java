@@ -14,15 +14,21 @@
 package org.eclipse.jetty.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
 
 import org.eclipse.jetty.http.HttpContent;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
 import org.junit.Test;
@@ -223,6 +229,60 @@ public class ResourceCacheTest
         cache.flushCache();
     }
 
+    @Test
+    public void testGzipVariants() throws Exception
+    {
+        File text=File.createTempFile("G-text-",".txt");
+        text.deleteOnExit();
+        File random=File.createTempFile("G-random-",".txt");
+        random.deleteOnExit();
+        File image=File.createTempFile("G-image-",".png");
+        image.deleteOnExit();
+
+        FileOutputStream out = new FileOutputStream(text);
+        for (int i=0;i<1000;i++)
+            out.write(("line "+i%10+"\n").getBytes());
+        out.close();
+        byte[] bytes=new byte[1000];
+        new Random(1).nextBytes(bytes);
+        out = new FileOutputStream(random);
+        out.write(bytes);
+        out.close();
+        out = new FileOutputStream(image);
+        out.write(new byte[1000]);
+        out.close();
+
+        Resource directory=Resource.newResource(text.getParentFile().getAbsolutePath());
+        ResourceCache cache=new ResourceCache(null,directory,new MimeTypes(),false);
+        cache.setGzipVariants(true);
+
+        ResourceCache.Content content=(ResourceCache.Content)cache.lookup(text.getName());
+        assertEquals(7000,cache.getCachedSize());
+        assertTrue(content.isCompressible());
+        HttpContent gzip=content.getGzipContent();
+        assertTrue(gzip==content.getGzipContent());
+        assertTrue(gzip.getContentLength()<7000);
+        assertEquals(7000+gzip.getContentLength(),cache.getCachedSize());
+        assertEquals(content.getContentType(),gzip.getContentType());
+
+        ByteArrayOutputStream gunzipped=new ByteArrayOutputStream();
+        IO.copy(new GZIPInputStream(gzip.getInputStream()),gunzipped);
+        assertEquals(content.getIndirectBuffer().toString(),gunzipped.toString());
+
+        // not smaller when compressed
+        content=(ResourceCache.Content)cache.lookup(random.getName());
+        assertTrue(content.isCompressible());
+        assertNull(content.getGzipContent());
+
+        // not a compressible type
+        content=(ResourceCache.Content)cache.lookup(image.getName());
+        assertFalse(content.isCompressible());
+        assertNull(content.getGzipContent());
+
+        cache.flushCache();
+        assertEquals(0,cache.getCachedSize());
+    }
+
     static String getContent(Resource r, String path) throws Exception
     {
         StringBuilder buffer = new StringBuilder();
@@ -0,0 +1,98 @@
+// ========================================================================
+// Copyright (c) 2010 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SelectChannelSlowClientTest extends HttpServerTestFixture
+{
+    @BeforeClass
+    public static void init() throws Exception
+    {
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setMaxIdleTime(30000);
+        connector.setMinWriteRate(64*1024);
+        connector.setMinWriteRatePeriod(500);
+        startServer(connector);
+    }
+
+    @Test
+    public void testSlowClientEvicted() throws Exception
+    {
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        configureServer(new AbstractHandler()
+        {
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setStatus(200);
+                byte[] data=new byte[64*1024];
+                OutputStream out=response.getOutputStream();
+                try
+                {
+                    for (int i=0;i<1024;i++)
+                        out.write(data);
+                }
+                catch(IOException e)
+                {
+                    failure.set(e);
+                    throw e;
+                }
+                finally
+                {
+                    latch.countDown();
+                }
+            }
+        });
+
+        SelectChannelConnector connector = (SelectChannelConnector)_connector;
+        long evictions=connector.getSlowClientEvictions();
+
+        Socket client=newSocket(HOST,_connector.getLocalPort());
+        try
+        {
+            OutputStream os=client.getOutputStream();
+            os.write(("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes("ISO-8859-1"));
+            os.flush();
+
+            // The client never reads, so the blocked writer gives up well before the idle timeout
+            assertTrue(latch.await(10,TimeUnit.SECONDS));
+            assertTrue(failure.get() instanceof EofException);
+            assertEquals(evictions+1,connector.getSlowClientEvictions());
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.server;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * HttpServer Tester for a connector with request header buffers that start small and grow.
+ */
+public class SelectChannelSmallHeaderServerTest extends HttpServerTestBase
+{
+    @BeforeClass
+    public static void init() throws Exception
+    {
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setRequestHeaderInitialSize(256);
+        startServer(connector);
+    }
+
+    @Test
+    public void testLargeHeaderIdle() throws Exception
+    {
+        configureServer(new HelloWorldHandler());
+        SelectChannelConnector connector = (SelectChannelConnector)_connector;
+
+        StringBuilder value=new StringBuilder();
+        for (int i=0;i<200;i++)
+            value.append("0123456789");
+
+        Socket client=newSocket(HOST,_connector.getLocalPort());
+        try
+        {
+            client.setSoTimeout(5000);
+            OutputStream os=client.getOutputStream();
+            os.write(("GET / HTTP/1.1\r\nHost: localhost\r\nX-Large: "+value+"\r\n\r\n").getBytes("ISO-8859-1"));
+            os.flush();
+
+            InputStream in=client.getInputStream();
+            StringBuilder response=new StringBuilder();
+            while (response.indexOf("Hello world")<0)
+                response.append((char)in.read());
+            assertTrue(response.toString().startsWith("HTTP/1.1 200 "));
+
+            // The persistent connection holds no buffers while idle
+            long capacity=connector.getIdleConnectionsBuffersCapacity();
+            for (int i=0;i<100 && capacity!=0;i++)
+            {
+                Thread.sleep(10);
+                capacity=connector.getIdleConnectionsBuffersCapacity();
+            }
+            assertEquals(0,capacity);
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+}
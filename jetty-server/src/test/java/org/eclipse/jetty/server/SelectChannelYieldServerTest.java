@@ -0,0 +1,84 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.server;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.jetty.io.AsyncEndPoint;
+import org.eclipse.jetty.io.nio.AsyncConnection;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.util.IO;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * HttpServer Tester for a connector that yields the thread after every request.
+ */
+public class SelectChannelYieldServerTest extends HttpServerTestBase
+{
+    @BeforeClass
+    public static void init() throws Exception
+    {
+        startServer(new SelectChannelConnector()
+        {
+            @Override
+            protected AsyncConnection newConnection(SocketChannel channel, AsyncEndPoint endpoint)
+            {
+                AsyncHttpConnection connection = (AsyncHttpConnection)super.newConnection(channel,endpoint);
+                connection.setMaxRequestsPerDispatch(1);
+                return connection;
+            }
+        });
+    }
+
+    @Test
+    public void testPipelineYields() throws Exception
+    {
+        configureServer(new HelloWorldHandler());
+        SelectChannelConnector connector = (SelectChannelConnector)_connector;
+        connector.setStatsOn(false);
+        connector.setStatsOn(true);
+
+        Socket client=newSocket(HOST,_connector.getLocalPort());
+        try
+        {
+            client.setSoTimeout(5000);
+            OutputStream os=client.getOutputStream();
+            String request="GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            os.write((request+request+"GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+            os.flush();
+
+            String response=IO.toString(client.getInputStream());
+            assertEquals(3,response.split("Hello world").length-1);
+        }
+        finally
+        {
+            client.close();
+        }
+
+        // Wait for the connection to be closed and counted
+        for (int i=0;i<100 && connector.getConnectionsOpen()>0;i++)
+            Thread.sleep(10);
+
+        // Each request was handled by its own dispatch
+        assertEquals(3,connector.getRequests());
+        assertTrue(connector.getConnectionsDispatchesMax()>=3);
+        assertTrue(connector.getRequestsPerDispatch()<=1.0);
+        connector.setStatsOn(false);
+    }
+}
@@ -0,0 +1,128 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.server.ssl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.net.ssl.SSLContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.AsyncEndPoint;
+import org.eclipse.jetty.io.nio.AsyncConnection;
+import org.eclipse.jetty.io.nio.SelectChannelEndPoint;
+import org.eclipse.jetty.server.AbstractHttpConnection;
+import org.eclipse.jetty.server.AsyncHttpConnection;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that an SSL connection yields the thread after every request.
+ */
+public class SslSelectChannelYieldTest
+{
+    private Server _server;
+    private SslSelectChannelConnector _connector;
+    private SSLContext _sslContext;
+    private final List<Integer> _dispatches = new CopyOnWriteArrayList<Integer>();
+
+    @Before
+    public void init() throws Exception
+    {
+        String keystorePath = System.getProperty("basedir",".") + "/src/test/resources/keystore";
+        SslContextFactory cf = new SslContextFactory();
+        cf.setKeyStorePath(keystorePath);
+        cf.setKeyStorePassword("storepwd");
+        cf.setKeyManagerPassword("keypwd");
+        cf.setTrustStore(keystorePath);
+        cf.setTrustStorePassword("storepwd");
+
+        _connector = new SslSelectChannelConnector(cf)
+        {
+            @Override
+            protected AsyncConnection newPlainConnection(SocketChannel channel, AsyncEndPoint endPoint)
+            {
+                AsyncHttpConnection connection = (AsyncHttpConnection)super.newPlainConnection(channel,endPoint);
+                connection.setMaxRequestsPerDispatch(1);
+                return connection;
+            }
+        };
+        _server = new Server();
+        _server.addConnector(_connector);
+        _server.setHandler(new AbstractHandler()
+        {
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                // the dispatches of the channel endpoint beneath the SSL endpoint
+                SelectChannelEndPoint endp=(SelectChannelEndPoint)AbstractHttpConnection.getCurrentConnection().getEndPoint().getTransport();
+                _dispatches.add(endp.getDispatches());
+                response.setStatus(200);
+                response.getOutputStream().print("Hello world\r\n");
+            }
+        });
+        _server.start();
+
+        cf.start();
+        _sslContext = cf.getSslContext();
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        _server.stop();
+        _server.join();
+    }
+
+    @Test
+    public void testPipelineYields() throws Exception
+    {
+        Socket client=_sslContext.getSocketFactory().createSocket("localhost",_connector.getLocalPort());
+        try
+        {
+            client.setSoTimeout(5000);
+            OutputStream os=client.getOutputStream();
+            String request="GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            os.write((request+request+"GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+            os.flush();
+
+            String response=IO.toString(client.getInputStream());
+            assertEquals(3,response.split("Hello world").length-1);
+        }
+        finally
+        {
+            client.close();
+        }
+
+        // Each request was handled by its own dispatch
+        assertEquals(3,_dispatches.size());
+        assertTrue(_dispatches.get(0)<_dispatches.get(1));
+        assertTrue(_dispatches.get(1)<_dispatches.get(2));
+    }
+}
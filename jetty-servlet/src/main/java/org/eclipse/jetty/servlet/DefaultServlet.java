@@ -93,6 +93,11 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
  *                    gzip content encoded if a matching resource is
  *                    found ending with ".gz"
  *
+ *  gzipVariants      If set to true and gzip is true, a gzip variant of cached
+ *                    text content is compressed on first request and kept in
+ *                    the cache, to be served when no ".gz" resource is found.
+ *                    The variant counts towards maxCacheSize.
+ *
  *  resourceBase      Set to replace the context resource base
  *
  *  resourceCache     If set, this is a context attribute name, which the servlet 
@@ -145,6 +150,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
     private boolean _welcomeExactServlets=false;
     private boolean _redirectWelcome=false;
     private boolean _gzip=true;
+    private boolean _gzipVariants=false;
     private boolean _pathInfoOnly=false;
 
     private Resource _resourceBase;
@@ -155,6 +161,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
     private Resource _stylesheet;
     private boolean _useFileMappedBuffer=false;
     private ByteArrayBuffer _cacheControl;
+    private HttpFields.Block _optionHeaders;
     private String _relativeResourceBase;
     private ServletHandler _servletHandler;
     private ServletHolder _defaultHolder;
@@ -178,6 +185,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
         _dirAllowed=getInitBoolean("dirAllowed",_dirAllowed);
         _redirectWelcome=getInitBoolean("redirectWelcome",_redirectWelcome);
         _gzip=getInitBoolean("gzip",_gzip);
+        _gzipVariants=getInitBoolean("gzipVariants",_gzipVariants);
         _pathInfoOnly=getInitBoolean("pathInfoOnly",_pathInfoOnly);
 
         if ("exact".equals(getInitParameter("welcomeServlets")))
@@ -241,6 +249,13 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
         if (t!=null)
             _cacheControl=new ByteArrayBuffer(t);
 
+        HttpFields options=new HttpFields();
+        if (_acceptRanges)
+            options.put(HttpHeaders.ACCEPT_RANGES_BUFFER,HttpHeaderValues.BYTES_BUFFER);
+        if (_cacheControl!=null)
+            options.put(HttpHeaders.CACHE_CONTROL_BUFFER,_cacheControl);
+        _optionHeaders=options.size()==0?null:new HttpFields.Block(options);
+
         String resourceCache = getInitParameter("resourceCache");
         int max_cache_size=getInitInt("maxCacheSize", -2);
         int max_cached_file_size=getInitInt("maxCachedFileSize", -2);
@@ -268,6 +283,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
                     _cache.setMaxCachedFileSize(max_cached_file_size);
                 if (max_cached_files>=-1)
                     _cache.setMaxCachedFiles(max_cached_files);
+                _cache.setGzipVariants(_gzip && _gzipVariants);
             }
         }
         catch (Exception e)
@@ -425,6 +441,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
             if (accept!=null && accept.indexOf("gzip")>=0)
                 gzip=true;
         }
+        boolean acceptGzip=gzip;
 
         // Find the resource and content
         Resource resource=null;
@@ -463,6 +480,17 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
                 {
                     content=_cache.lookup(pathInContext);
                     resource=content==null?null:content.getResource();
+
+                    // Try a cached gzip variant of the content
+                    if (acceptGzip && content instanceof ResourceCache.Content)
+                    {
+                        HttpContent variant=((ResourceCache.Content)content).getGzipContent();
+                        if (variant!=null)
+                        {
+                            content=variant;
+                            gzip=true;
+                        }
+                    }
                 }
             }
 
@@ -492,6 +520,10 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
                     if (content==null)
                         content=new HttpContent.ResourceAsHttpContent(resource,_mimeTypes.getMimeByExtension(resource.toString()),response.getBufferSize());
 
+                    // the response varies with the accepted encoding if it is, or could have been, gzipped
+                    if (gzip || !included.booleanValue() && content instanceof ResourceCache.Content && ((ResourceCache.Content)content).isCompressible())
+                        response.addHeader(HttpHeaders.VARY,HttpHeaders.ACCEPT_ENCODING);
+
                     if (included.booleanValue() || passConditionalHeaders(request,response, resource,content))
                     {
                         if (gzip)
@@ -824,7 +856,8 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
                         else
                         {
                             writeHeaders(response,content,content_length);
-                            resource.writeTo(out,0,content_length);
+                            if (!((AbstractHttpConnection.Output)out).sendFile(resource,0,content_length))
+                                resource.writeTo(out,0,content_length);
                         }
                     }
                 }
@@ -869,7 +902,10 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
                 response.setHeader(HttpHeaders.CONTENT_RANGE,
                         singleSatisfiableRange.toHeaderRangeString(content_length));
-                resource.writeTo(out,singleSatisfiableRange.getFirst(content_length),singleLength);
+                long first=singleSatisfiableRange.getFirst(content_length);
+                if (include || written || !(out instanceof AbstractHttpConnection.Output) ||
+                    !((AbstractHttpConnection.Output)out).sendFile(resource,first,singleLength))
+                    resource.writeTo(out,first,singleLength);
                 return;
             }
 
@@ -961,7 +997,11 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
             Response r=(Response)response;
             HttpFields fields = r.getHttpFields();
 
-            if (content.getLastModified()!=null)
+            // use the pre-encoded fields of the content, unless the content type has been changed 
+            HttpFields.Block headers=content.getHeaderBlock();
+            if (headers!=null && (content.getContentType()==null || content.getContentType().equals(fields.get(HttpHeaders.CONTENT_TYPE_BUFFER))))
+                fields.put(headers);
+            else if (content.getLastModified()!=null)
                 fields.put(HttpHeaders.LAST_MODIFIED_BUFFER,content.getLastModified());
             else if (content.getResource()!=null)
             {
@@ -996,11 +1036,8 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory
     /* ------------------------------------------------------------ */
     protected void writeOptionHeaders(HttpFields fields) throws IOException
     {
-        if (_acceptRanges)
-            fields.put(HttpHeaders.ACCEPT_RANGES_BUFFER,HttpHeaderValues.BYTES_BUFFER);
-
-        if (_cacheControl!=null)
-            fields.put(HttpHeaders.CACHE_CONTROL_BUFFER,_cacheControl);
+        if (_optionHeaders!=null)
+            fields.put(_optionHeaders);
     }
 
     /* ------------------------------------------------------------ */
@@ -2,9 +2,14 @@ package org.eclipse.jetty.servlet;
 
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -17,6 +22,7 @@ import junit.framework.AssertionFailedError;
 
 import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.toolchain.test.FS;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.toolchain.test.OS;
@@ -594,6 +600,163 @@ public class DefaultServletTest
         }
     }
 
+    @Test
+    public void testCachedHeaders() throws Exception
+    {
+        testdir.ensureEmpty();
+        File resBase = testdir.getFile("docroot");
+        FS.ensureDirExists(resBase);
+        File data = new File(resBase, "data.txt");
+        createFile(data, "Hello Cached");
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("acceptRanges", "true");
+        defholder.setInitParameter("cacheControl", "max-age=3600");
+        defholder.setInitParameter("maxCacheSize", "1024000");
+        defholder.setInitParameter("resourceBase", resBase.getAbsolutePath());
+
+        for (int i = 0; i < 2; i++)
+        {
+            String response = connector.getResponses("GET /context/data.txt HTTP/1.0\r\n\r\n");
+            assertResponseContains("200 OK", response);
+            assertResponseContains("Hello Cached", response);
+            String header = response.substring(0, response.indexOf("\r\n\r\n") + 2);
+            for (String field : new String[]{"Content-Type: text/plain\r\n", "Last-Modified: ", "Accept-Ranges: bytes\r\n", "Cache-Control: max-age=3600\r\n", "Content-Length: 12\r\n"})
+            {
+                int idx = assertResponseContains(field, header);
+                Assert.assertEquals(field, -1, header.indexOf(field, idx + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testGzipVariants() throws Exception
+    {
+        testdir.ensureEmpty();
+        File resBase = testdir.getFile("docroot");
+        FS.ensureDirExists(resBase);
+        File data = new File(resBase, "data.txt");
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 4096)
+            content.append("Hello Gzip Variants\n");
+        createFile(data, content.toString());
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("gzip", "true");
+        defholder.setInitParameter("gzipVariants", "true");
+        defholder.setInitParameter("maxCacheSize", "1024000");
+        defholder.setInitParameter("maxCachedFiles", "100");
+        defholder.setInitParameter("resourceBase", resBase.getAbsolutePath());
+
+        String response = connector.getResponses("GET /context/data.txt HTTP/1.0\r\nAccept-Encoding: gzip\r\n\r\n");
+        assertResponseContains("200 OK", response);
+        assertResponseContains("Content-Encoding: gzip", response);
+        assertResponseContains("Vary: Accept-Encoding", response);
+        assertResponseContains("Content-Type: text/plain", response);
+        assertResponseNotContains("Hello Gzip Variants", response);
+        int idx = assertResponseContains("Content-Length: ", response);
+        int length = Integer.parseInt(response.substring(idx + 16, response.indexOf("\r\n", idx)));
+        Assert.assertTrue(length < content.length());
+
+        response = connector.getResponses("GET /context/data.txt HTTP/1.0\r\n\r\n");
+        assertResponseContains("200 OK", response);
+        assertResponseNotContains("Content-Encoding", response);
+        assertResponseContains("Vary: Accept-Encoding", response);
+        assertResponseContains("Content-Length: " + content.length(), response);
+        assertResponseContains("Hello Gzip Variants", response);
+    }
+
+    @Test
+    public void testGzipVariantsIndirect() throws Exception
+    {
+        testdir.ensureEmpty();
+        File resBase = testdir.getFile("docroot");
+        FS.ensureDirExists(resBase);
+        File data = new File(resBase, "data.txt");
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 4096)
+            content.append("Hello Gzip Variants\n");
+        createFile(data, content.toString());
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("gzip", "true");
+        defholder.setInitParameter("gzipVariants", "true");
+        defholder.setInitParameter("maxCacheSize", "1024000");
+        defholder.setInitParameter("maxCachedFiles", "100");
+        defholder.setInitParameter("resourceBase", resBase.getAbsolutePath());
+
+        // The variant is sent from its heap buffer, not from the uncompressed file
+        SelectChannelConnector channel = new SelectChannelConnector();
+        channel.setUseDirectBuffers(false);
+        server.addConnector(channel);
+        channel.start();
+
+        for (int i = 0; i < 2; i++)
+        {
+            String response = getResponse(channel.getLocalPort(), "GET /context/data.txt HTTP/1.0\r\nAccept-Encoding: gzip\r\n\r\n");
+            assertResponseContains("200 OK", response);
+            assertResponseContains("Content-Encoding: gzip", response);
+            String body = response.substring(response.indexOf("\r\n\r\n") + 4);
+            assertResponseContains("Content-Length: " + body.length() + "\r\n", response);
+            GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.getBytes(StringUtil.__ISO_8859_1)));
+            Assert.assertEquals(content.toString(), IO.toString(in, StringUtil.__UTF8));
+        }
+
+        String response = getResponse(channel.getLocalPort(), "GET /context/data.txt HTTP/1.0\r\n\r\n");
+        assertResponseContains("200 OK", response);
+        assertResponseNotContains("Content-Encoding", response);
+        Assert.assertEquals(content.toString(), response.substring(response.indexOf("\r\n\r\n") + 4));
+    }
+
+    @Test
+    public void testFileTransfer() throws Exception
+    {
+        testdir.ensureEmpty();
+        File resBase = testdir.getFile("docroot");
+        FS.ensureDirExists(resBase);
+        File data = new File(resBase, "data.txt");
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 4 * 1024 * 1024)
+            content.append("0123456789abcdef");
+        createFile(data, content.toString());
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("acceptRanges", "true");
+        defholder.setInitParameter("maxCacheSize", "0");
+        defholder.setInitParameter("resourceBase", resBase.getAbsolutePath());
+
+        SelectChannelConnector channel = new SelectChannelConnector();
+        server.addConnector(channel);
+        channel.start();
+
+        String response = getResponse(channel.getLocalPort(), "GET /context/data.txt HTTP/1.0\r\n\r\n");
+        assertResponseContains("200 OK", response);
+        assertResponseContains("Content-Length: " + content.length(), response);
+        Assert.assertEquals(content.toString(), response.substring(response.indexOf("\r\n\r\n") + 4));
+
+        response = getResponse(channel.getLocalPort(), "GET /context/data.txt HTTP/1.0\r\nRange: bytes=100-2000099\r\n\r\n");
+        assertResponseContains("206 Partial Content", response);
+        assertResponseContains("Content-Range: bytes 100-2000099/" + content.length(), response);
+        Assert.assertEquals(content.substring(100, 2000100), response.substring(response.indexOf("\r\n\r\n") + 4));
+    }
+
+    private String getResponse(int port, String request) throws IOException
+    {
+        Socket socket = new Socket("localhost", port);
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StringUtil.__ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return IO.toString(in, StringUtil.__ISO_8859_1);
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
     private void createFile(File file, String str) throws IOException
     {
         FileOutputStream out = null;
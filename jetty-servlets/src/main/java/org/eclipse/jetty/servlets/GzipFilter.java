@@ -20,6 +20,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.zip.Deflater;
 
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -33,6 +34,7 @@ import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationListener;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.gzip.DeflaterPool;
 import org.eclipse.jetty.http.gzip.GzipResponseWrapper;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -58,6 +60,11 @@ import org.eclipse.jetty.util.log.Logger;
  * This filter extends {@link UserAgentFilter} and if the the initParameter <code>excludedAgents</code> 
  * is set to a comma separated list of user agents, then these agents will be excluded from gzip content.
  * </p>
+ * <p>
+ * The {@link Deflater}s are pooled. The initParameters <code>compressionLevel</code> (0 to 9, or -1 for
+ * the default), <code>compressionStrategy</code> (0 for the default, 1 for filtered or 2 for huffman only) and
+ * <code>deflaterPoolCapacity</code> (the maximum number of idle deflaters kept) configure the deflaters.
+ * </p>
  *
  */
 public class GzipFilter extends UserAgentFilter
@@ -68,6 +75,7 @@ public class GzipFilter extends UserAgentFilter
     protected int _bufferSize=8192;
     protected int _minGzipSize=256;
     protected Set<String> _excluded;
+    protected DeflaterPool _deflaterPool;
     
     /* ------------------------------------------------------------ */
     /**
@@ -102,6 +110,23 @@ public class GzipFilter extends UserAgentFilter
             while (tok.hasMoreTokens())
                 _excluded.add(tok.nextToken());
         }
+
+        int level=Deflater.DEFAULT_COMPRESSION;
+        tmp=filterConfig.getInitParameter("compressionLevel");
+        if (tmp!=null)
+            level=Integer.parseInt(tmp);
+
+        int strategy=Deflater.DEFAULT_STRATEGY;
+        tmp=filterConfig.getInitParameter("compressionStrategy");
+        if (tmp!=null)
+            strategy=Integer.parseInt(tmp);
+
+        int capacity=64;
+        tmp=filterConfig.getInitParameter("deflaterPoolCapacity");
+        if (tmp!=null)
+            capacity=Integer.parseInt(tmp);
+
+        _deflaterPool=new DeflaterPool(capacity,level,strategy);
     }
 
     /* ------------------------------------------------------------ */
@@ -110,6 +135,8 @@ public class GzipFilter extends UserAgentFilter
      */
     public void destroy()
     {
+        if (_deflaterPool!=null)
+            _deflaterPool.clear();
     }
 
     /* ------------------------------------------------------------ */
@@ -197,6 +224,7 @@ public class GzipFilter extends UserAgentFilter
                 setMimeTypes(GzipFilter.this._mimeTypes);
                 setBufferSize(GzipFilter.this._bufferSize);
                 setMinGzipSize(GzipFilter.this._minGzipSize);
+                setDeflaterPool(GzipFilter.this._deflaterPool);
             }
             
             @Override
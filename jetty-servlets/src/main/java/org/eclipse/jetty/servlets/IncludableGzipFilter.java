@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.gzip.GzipResponseWrapper;
+import org.eclipse.jetty.http.gzip.DeflaterPool;
 import org.eclipse.jetty.http.gzip.GzipStream;
 import org.eclipse.jetty.io.UncheckedPrintWriter;
 
@@ -71,12 +72,13 @@ public class IncludableGzipFilter extends GzipFilter
             _mimeTypes = IncludableGzipFilter.this._mimeTypes;
             _bufferSize = IncludableGzipFilter.this._bufferSize;
             _minGzipSize = IncludableGzipFilter.this._minGzipSize;
+            setDeflaterPool(IncludableGzipFilter.this._deflaterPool);
         }
 
         @Override
         protected GzipStream newGzipStream(HttpServletRequest request,HttpServletResponse response,long contentLength,int bufferSize, int minGzipSize) throws IOException
         {
-            return new IncludableGzipStream(request,response,contentLength,bufferSize,minGzipSize);
+            return new IncludableGzipStream(request,response,contentLength,bufferSize,minGzipSize,getDeflaterPool());
         }
 
         @Override
@@ -94,6 +96,12 @@ public class IncludableGzipFilter extends GzipFilter
             super(request,response,contentLength,bufferSize,minGzipSize);
         }
 
+        public IncludableGzipStream(HttpServletRequest request, HttpServletResponse response, long contentLength, int bufferSize, int minGzipSize, DeflaterPool deflaterPool)
+                throws IOException
+        {
+            super(request,response,contentLength,bufferSize,minGzipSize,deflaterPool);
+        }
+
         @Override
         protected boolean setContentEncodingGzip()
         {
@@ -0,0 +1,349 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ------------------------------------------------------------ */
+/** A bounded, lock free, multi producer and multi consumer queue backed by a ring of slots.
+ * <p>
+ * Each slot has a sequence number that tells producers and consumers whether
+ * it is ready to be written or read, so that {@link #offer(Object)} and {@link #poll()}
+ * only contend on a compare and set of the tail or head position. The sequence
+ * numbers and positions are spaced apart to avoid false sharing of cache lines.
+ * <p>
+ * The blocking methods spin for a while on multi core machines and then wait
+ * on a lock. Producers and consumers only take the lock to signal
+ * if there are waiting threads, so it is not used while the queue is busy.
+ * <p>
+ * Unlike {@link BlockingArrayQueue}, the capacity is fixed (rounded up to a power
+ * of two) and the iterator is a snapshot that does not support removal.
+ *
+ * @param <E> The element type
+ */
+public class BlockingRingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    private static final int __SPACING=8;
+    private static final int __HEAD=__SPACING;
+    private static final int __TAIL=2*__SPACING;
+    private static final int __SPINS=Runtime.getRuntime().availableProcessors()>1?128:0;
+
+    private final int _mask;
+    private final Object[] _elements;
+    private final AtomicLongArray _sequences;
+    private final AtomicLongArray _positions = new AtomicLongArray(3*__SPACING);
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+    private final Condition _notFull = _lock.newCondition();
+    private final AtomicInteger _waitingConsumers = new AtomicInteger();
+    private final AtomicInteger _waitingProducers = new AtomicInteger();
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param capacity The minimum capacity of the queue, which is rounded up to a power of two.
+     */
+    public BlockingRingQueue(int capacity)
+    {
+        if (capacity<=0 || capacity>(1<<30))
+            throw new IllegalArgumentException("capacity "+capacity);
+        int size=1;
+        while (size<capacity)
+            size<<=1;
+        _mask=size-1;
+        _elements=new Object[size];
+        _sequences=new AtomicLongArray(size*__SPACING);
+        for (int i=0;i<size;i++)
+            _sequences.set(i*__SPACING,i);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The capacity of the queue
+     */
+    public int getCapacity()
+    {
+        return _mask+1;
+    }
+
+    /* ------------------------------------------------------------ */
+    public boolean offer(E e)
+    {
+        if (e==null)
+            throw new NullPointerException();
+
+        long tail=_positions.get(__TAIL);
+        while (true)
+        {
+            int index=(int)tail&_mask;
+            long delta=_sequences.get(index*__SPACING)-tail;
+            if (delta==0)
+            {
+                if (_positions.compareAndSet(__TAIL,tail,tail+1))
+                {
+                    _elements[index]=e;
+                    _sequences.set(index*__SPACING,tail+1);
+                    if (_waitingConsumers.get()>0)
+                        signal(_notEmpty);
+                    return true;
+                }
+            }
+            else if (delta<0)
+                return false;
+            tail=_positions.get(__TAIL);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @SuppressWarnings("unchecked")
+    public E poll()
+    {
+        long head=_positions.get(__HEAD);
+        while (true)
+        {
+            int index=(int)head&_mask;
+            long delta=_sequences.get(index*__SPACING)-(head+1);
+            if (delta==0)
+            {
+                if (_positions.compareAndSet(__HEAD,head,head+1))
+                {
+                    E e=(E)_elements[index];
+                    _elements[index]=null;
+                    _sequences.set(index*__SPACING,head+_mask+1);
+                    if (_waitingProducers.get()>0)
+                        signal(_notFull);
+                    return e;
+                }
+            }
+            else if (delta<0)
+                return null;
+            head=_positions.get(__HEAD);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @SuppressWarnings("unchecked")
+    public E peek()
+    {
+        while (true)
+        {
+            long head=_positions.get(__HEAD);
+            int index=(int)head&_mask;
+            long delta=_sequences.get(index*__SPACING)-(head+1);
+            if (delta<0)
+                return null;
+            E e=(E)_elements[index];
+            if (delta==0 && e!=null && _positions.get(__HEAD)==head)
+                return e;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public int size()
+    {
+        long head=_positions.get(__HEAD);
+        long tail=_positions.get(__TAIL);
+        long size=tail-head;
+        return size<0?0:size>_mask+1?_mask+1:(int)size;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public boolean isEmpty()
+    {
+        return size()==0;
+    }
+
+    /* ------------------------------------------------------------ */
+    public int remainingCapacity()
+    {
+        return _mask+1-size();
+    }
+
+    /* ------------------------------------------------------------ */
+    public void put(E e) throws InterruptedException
+    {
+        if (offer(e))
+            return;
+        for (int i=__SPINS;i-->0;)
+            if (offer(e))
+                return;
+
+        _lock.lockInterruptibly();
+        try
+        {
+            _waitingProducers.incrementAndGet();
+            while (!offer(e))
+                _notFull.await();
+        }
+        finally
+        {
+            _waitingProducers.decrementAndGet();
+            _lock.unlock();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if (offer(e))
+            return true;
+        for (int i=__SPINS;i-->0;)
+            if (offer(e))
+                return true;
+
+        long nanos=unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            _waitingProducers.incrementAndGet();
+            while (!offer(e))
+            {
+                if (nanos<=0)
+                    return false;
+                nanos=_notFull.awaitNanos(nanos);
+            }
+            return true;
+        }
+        finally
+        {
+            _waitingProducers.decrementAndGet();
+            _lock.unlock();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public E take() throws InterruptedException
+    {
+        E e=poll();
+        for (int i=__SPINS;e==null && i-->0;)
+            e=poll();
+        if (e!=null)
+            return e;
+
+        _lock.lockInterruptibly();
+        try
+        {
+            _waitingConsumers.incrementAndGet();
+            while ((e=poll())==null)
+                _notEmpty.await();
+            return e;
+        }
+        finally
+        {
+            _waitingConsumers.decrementAndGet();
+            _lock.unlock();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        E e=poll();
+        for (int i=__SPINS;e==null && i-->0;)
+            e=poll();
+        if (e!=null)
+            return e;
+
+        long nanos=unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            _waitingConsumers.incrementAndGet();
+            while ((e=poll())==null)
+            {
+                if (nanos<=0)
+                    return null;
+                nanos=_notEmpty.awaitNanos(nanos);
+            }
+            return e;
+        }
+        finally
+        {
+            _waitingConsumers.decrementAndGet();
+            _lock.unlock();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c,Integer.MAX_VALUE);
+    }
+
+    /* ------------------------------------------------------------ */
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        if (c==this)
+            throw new IllegalArgumentException();
+        int n=0;
+        E e;
+        while (n<maxElements && (e=poll())!=null)
+        {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return An iterator over a snapshot of the elements in the queue, which does not support removal.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator()
+    {
+        List<E> snapshot=new ArrayList<E>(size());
+        long head=_positions.get(__HEAD);
+        long tail=_positions.get(__TAIL);
+        for (long p=head;p<tail;p++)
+        {
+            int index=(int)p&_mask;
+            if (_sequences.get(index*__SPACING)!=p+1)
+                continue;
+            E e=(E)_elements[index];
+            if (e!=null && _sequences.get(index*__SPACING)==p+1)
+                snapshot.add(e);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void signal(Condition condition)
+    {
+        _lock.lock();
+        try
+        {
+            condition.signal();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.security.cert.X509CertSelector;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -46,6 +47,7 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
@@ -299,6 +301,24 @@ public class SslContextFactory extends AbstractLifeCycle
                     LOG.debug("Enabled Ciphers   {} of {}",Arrays.asList(engine.getEnabledCipherSuites()),Arrays.asList(engine.getSupportedCipherSuites()));
             }
         }
+
+        configureSessionContext(_context.getServerSessionContext());
+        configureSessionContext(_context.getClientSessionContext());
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Apply the session cache size and timeout to a session context.
+     * Values that have not been set leave the JSSE defaults in place.
+     * @param sessionContext the session context to configure
+     */
+    protected void configureSessionContext(SSLSessionContext sessionContext)
+    {
+        if (sessionContext==null)
+            return;
+        if (_sslSessionCacheSize>0)
+            sessionContext.setSessionCacheSize(_sslSessionCacheSize);
+        if (_sslSessionTimeout>0)
+            sessionContext.setSessionTimeout(_sslSessionTimeout);
     }
 
     /* ------------------------------------------------------------ */
@@ -1418,8 +1438,11 @@ public class SslContextFactory extends AbstractLifeCycle
     }
 
     /* ------------------------------------------------------------ */
-    /** SEt SSL session cache size.
-     * @param sslSessionCacheSize SSL session cache size to set
+    /** Set SSL session cache size.
+     * The size bounds the server and client session caches of the
+     * {@link SSLContext} when it is started. Connectors that share this
+     * factory share its caches, so sessions may be resumed on any of them.
+     * @param sslSessionCacheSize SSL session cache size to set, or 0 for the JSSE default
      */
     public void setSslSessionCacheSize(int sslSessionCacheSize)
     {
@@ -1437,13 +1460,31 @@ public class SslContextFactory extends AbstractLifeCycle
 
     /* ------------------------------------------------------------ */
     /** Set SSL session timeout.
-     * @param sslSessionTimeout SSL session timeout to set
+     * The timeout applies to the server and client session caches of the
+     * {@link SSLContext} when it is started.
+     * @param sslSessionTimeout SSL session timeout in seconds to set, or 0 for the JSSE default
      */
     public void setSslSessionTimeout(int sslSessionTimeout)
     {
         _sslSessionTimeout = sslSessionTimeout;
     }
 
+    /* ------------------------------------------------------------ */
+    /** Get the number of sessions in the server session cache.
+     * The sessions are counted, so this should not be called too frequently.
+     * @return the number of cached server sessions, or 0 if not started
+     */
+    public int getSslSessionCacheEntries()
+    {
+        SSLSessionContext sessionContext=_context==null?null:_context.getServerSessionContext();
+        if (sessionContext==null)
+            return 0;
+        int entries=0;
+        for (Enumeration<byte[]> ids=sessionContext.getIds();ids.hasMoreElements();ids.nextElement())
+            entries++;
+        return entries;
+    }
+
 
     /* ------------------------------------------------------------ */
     public SSLServerSocket newSslServerSocket(String host,int port,int backlog) throws IOException
@@ -0,0 +1,157 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* ------------------------------------------------------------ */
+/** A histogram of non negative samples, from which percentiles are estimated.
+ * <p>
+ * Samples less than 8 are counted exactly. Larger samples are counted in
+ * one of 8 buckets per power of two, so a percentile is reported as the
+ * upper bound of its bucket, which is within 12.5% of the samples it counts.
+ * Recording a sample is lock free and does not allocate.
+ */
+public class HistogramStatistic
+{
+    private static final int __SUB_BITS=3;
+    private static final int __SUB=1<<__SUB_BITS;
+    private static final int __BUCKETS=bucket(Long.MAX_VALUE)+1;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(__BUCKETS);
+    private final AtomicLong _total = new AtomicLong();
+    private final AtomicLong _max = new AtomicLong();
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param sample the sample to record. Negative samples are recorded as 0.
+     */
+    public void set(long sample)
+    {
+        if (sample<0)
+            sample=0;
+        _buckets.incrementAndGet(bucket(sample));
+        _total.addAndGet(sample);
+
+        long max=_max.get();
+        while (sample>max)
+        {
+            if (_max.compareAndSet(max,sample))
+                break;
+            max=_max.get();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public void reset()
+    {
+        for (int i=0;i<__BUCKETS;i++)
+            _buckets.set(i,0);
+        _total.set(0);
+        _max.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of samples
+     */
+    public long getCount()
+    {
+        long count=0;
+        for (int i=0;i<__BUCKETS;i++)
+            count+=_buckets.get(i);
+        return count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max sample
+     */
+    public long getMax()
+    {
+        return _max.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    public long getTotal()
+    {
+        return _total.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    public double getMean()
+    {
+        long count=getCount();
+        return count==0?0.0:((double)_total.get())/count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound of the samples at the percentile, never more than
+     * the max sample, or 0 if there are no samples.
+     */
+    public long getPercentile(double percentile)
+    {
+        if (percentile<0 || percentile>100)
+            throw new IllegalArgumentException("percentile "+percentile);
+
+        long[] counts=new long[__BUCKETS];
+        long count=0;
+        for (int i=0;i<__BUCKETS;i++)
+            count+=counts[i]=_buckets.get(i);
+        if (count==0)
+            return 0;
+
+        long rank=Math.max(1,(long)Math.ceil(count*percentile/100.0));
+        long max=_max.get();
+        for (int i=0;i<__BUCKETS;i++)
+        {
+            rank-=counts[i];
+            if (rank<=0)
+                return Math.min(upperBound(i),max);
+        }
+        return max;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{count=%d,mean=%.1f,50%%=%d,90%%=%d,99%%=%d,max=%d}",getClass().getSimpleName(),hashCode(),
+                getCount(),getMean(),getPercentile(50),getPercentile(90),getPercentile(99),getMax());
+    }
+
+    /* ------------------------------------------------------------ */
+    static int bucket(long sample)
+    {
+        if (sample<__SUB)
+            return (int)sample;
+        int shift=63-Long.numberOfLeadingZeros(sample)-__SUB_BITS;
+        return (shift<<__SUB_BITS)+(int)(sample>>>shift);
+    }
+
+    /* ------------------------------------------------------------ */
+    static long upperBound(int bucket)
+    {
+        if (bucket<__SUB)
+            return bucket;
+        int shift=(bucket>>__SUB_BITS)-1;
+        long top=(bucket&(__SUB-1))+__SUB;
+        long bound=((top+1)<<shift)-1;
+        return bound<0?Long.MAX_VALUE:bound;
+    }
+}
@@ -0,0 +1,108 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* ------------------------------------------------------------ */
+/** A counter striped over several cells to reduce contention.
+ * <p>
+ * Threads add to a cell selected by their thread id, so that frequent
+ * updates from many threads do not contend on a single value, at
+ * the cost of summing the cells to {@link #get()} the count.
+ * The cells are spaced apart to avoid false sharing of cache lines.
+ * The count is not a snapshot if it is updated while being read.
+ * <p>
+ * By default there are twice as many cells as processors, each padded to
+ * a cache line. A counter with a single cell has no padding and is as
+ * small as an {@link java.util.concurrent.atomic.AtomicLong}.
+ */
+public class StripedCounter
+{
+    private static final int __SPACING=8;
+    private static final int __STRIPES;
+    static
+    {
+        int stripes=1;
+        while (stripes<Runtime.getRuntime().availableProcessors()*2)
+            stripes<<=1;
+        __STRIPES=stripes;
+    }
+
+    private final int _stripes;
+    private final int _spacing;
+    private final AtomicLongArray _cells;
+
+    /* ------------------------------------------------------------ */
+    public StripedCounter()
+    {
+        this(__STRIPES);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param stripes the number of cells, rounded up to a power of 2
+     */
+    public StripedCounter(int stripes)
+    {
+        int s=1;
+        while (s<stripes)
+            s<<=1;
+        _stripes=s;
+        _spacing=s==1?1:__SPACING;
+        _cells=new AtomicLongArray(_stripes*_spacing);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param delta the amount to add to the count
+     */
+    public void add(long delta)
+    {
+        int stripe=(int)Thread.currentThread().getId()&(_stripes-1);
+        _cells.addAndGet(stripe*_spacing,delta);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void increment()
+    {
+        add(1);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the sum of the cells
+     */
+    public long get()
+    {
+        long count=0;
+        for (int i=0;i<_stripes;i++)
+            count+=_cells.get(i*_spacing);
+        return count;
+    }
+
+    /* ------------------------------------------------------------ */
+    public void reset()
+    {
+        for (int i=0;i<_stripes;i++)
+            _cells.set(i*_spacing,0);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return Long.toString(get());
+    }
+}
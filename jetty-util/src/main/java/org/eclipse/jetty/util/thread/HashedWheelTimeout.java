@@ -0,0 +1,403 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.util.thread;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+
+/* ------------------------------------------------------------ */
+/** Hierarchical hashed timing wheel Timeout.
+ * <p>
+ * A {@link Timeout} for queues holding many tasks with non uniform delays.
+ * Tasks are hashed by their timestamp into one of several wheels of 256 slots,
+ * the lowest wheel having a slot per tick and each higher wheel having slots
+ * 256 times coarser than the wheel below it. As time advances, the tasks in a
+ * slot of a higher wheel are cascaded down into the lower wheels.
+ * Scheduling and cancelling a task are O(1) and expiring tasks is amortised
+ * O(1), as a task is moved at most once per wheel.
+ * <p>
+ * As with {@link Timeout}, the duration is shared by all the scheduled tasks
+ * and changing it affects all scheduled tasks. Tasks that expire within the
+ * same tick are not ordered by their timestamps.
+ */
+public class HashedWheelTimeout extends Timeout
+{
+    private static final Logger LOG = Log.getLogger(HashedWheelTimeout.class);
+
+    private static final int WHEEL_BITS=8;
+    private static final int WHEEL_SIZE=1<<WHEEL_BITS;
+    private static final int WHEEL_MASK=WHEEL_SIZE-1;
+    private static final int WHEELS=4;
+
+    private final long _tickMs;
+    private final Task[][] _wheels=new Task[WHEELS][WHEEL_SIZE];
+    private final Task _overflow=new Task();
+    private final int[] _counts=new int[WHEELS+1];
+    private int _size;
+    private long _tick;
+
+    /* ------------------------------------------------------------ */
+    public HashedWheelTimeout()
+    {
+        this(new Object(),1L);
+    }
+
+    /* ------------------------------------------------------------ */
+    public HashedWheelTimeout(Object lock)
+    {
+        this(lock,1L);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param lock The lock to synchronize on
+     * @param tickMs The resolution of the lowest wheel in ms
+     */
+    public HashedWheelTimeout(Object lock, long tickMs)
+    {
+        super(lock);
+        if (tickMs<=0)
+            throw new IllegalArgumentException("tickMs<=0");
+        _tickMs=tickMs;
+        for (int w=0;w<WHEELS;w++)
+            for (int s=0;s<WHEEL_SIZE;s++)
+                _wheels[w][s]=new Task();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The resolution of the lowest wheel in ms
+     */
+    public long getTickMs()
+    {
+        return _tickMs;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of scheduled tasks
+     */
+    public int getSize()
+    {
+        synchronized (_lock)
+        {
+            return _size;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public Task expired()
+    {
+        synchronized (_lock)
+        {
+            Task task=next(_now-_duration);
+            if (task!=null)
+                task._expired=true;
+            return task;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void tick()
+    {
+        final long expiry = _now-_duration;
+
+        Task task=null;
+        while (true)
+        {
+            try
+            {
+                synchronized (_lock)
+                {
+                    task=next(expiry);
+                    if (task==null)
+                        break;
+                    task._expired=true;
+                    task.expire();
+                }
+
+                task.expired();
+            }
+            catch(Throwable th)
+            {
+                LOG.warn(Log.EXCEPTION,th);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void schedule(Task task,long delay)
+    {
+        synchronized (_lock)
+        {
+            if (task._timestamp!=0)
+            {
+                if (task._timeout==this)
+                    remove(task);
+                else
+                    task.unlink();
+                task._timestamp=0;
+            }
+            task._timeout=this;
+            task._expired=false;
+            task._delay=delay;
+            task._timestamp = _now+delay;
+
+            if (_size==0)
+                _tick=toTick(_now-_duration);
+            place(task);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    void remove(Task task)
+    {
+        if (task.isScheduled())
+        {
+            _counts[task._level]--;
+            _size--;
+        }
+        super.remove(task);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void cancelAll()
+    {
+        synchronized (_lock)
+        {
+            for (int w=0;w<WHEELS;w++)
+                for (int s=0;s<WHEEL_SIZE;s++)
+                    _wheels[w][s]._next=_wheels[w][s]._prev=_wheels[w][s];
+            _overflow._next=_overflow._prev=_overflow;
+            for (int w=0;w<=WHEELS;w++)
+                _counts[w]=0;
+            _size=0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public boolean isEmpty()
+    {
+        synchronized (_lock)
+        {
+            return _size==0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The time to the next expiry. For tasks in the higher wheels this
+     * is the time to the start of their slot, which is never later than their expiry.
+     */
+    @Override
+    public long getTimeToNext()
+    {
+        synchronized (_lock)
+        {
+            if (_size==0)
+                return -1;
+            long to_next = _duration+earliest()-_now;
+            return to_next<0?0:to_next;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,tick=%d}",getClass().getSimpleName(),hashCode(),_size,_tick);
+    }
+
+    /* ------------------------------------------------------------ */
+    private long toTick(long time)
+    {
+        long tick=time/_tickMs;
+        if (time<0 && tick*_tickMs!=time)
+            tick--;
+        return tick;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Link a task into the slot for its timestamp relative to the current tick.
+     * Tasks that are already due are linked into the current slot.
+     */
+    private void place(Task task)
+    {
+        long tick=toTick(task._timestamp);
+        Task slot;
+        int level;
+        if (tick<=_tick)
+        {
+            level=0;
+            slot=_wheels[0][(int)_tick&WHEEL_MASK];
+        }
+        else
+        {
+            level=(63-Long.numberOfLeadingZeros(tick^_tick))/WHEEL_BITS;
+            if (level>=WHEELS)
+            {
+                level=WHEELS;
+                slot=_overflow;
+            }
+            else
+                slot=_wheels[level][(int)(tick>>>(level*WHEEL_BITS))&WHEEL_MASK];
+        }
+        task._level=level;
+        _counts[level]++;
+        _size++;
+        slot._prev.link(task);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Get and unlink the next expired task.
+     * The current slot is searched for a task with a timestamp before the
+     * expiry, and if none is found the wheels are advanced towards the tick
+     * of the expiry.
+     * @param expiry The time before which tasks are expired
+     * @return The next expired task or null
+     */
+    private Task next(long expiry)
+    {
+        if (_size==0)
+            return null;
+
+        final long target=toTick(expiry);
+        while (true)
+        {
+            final Task slot=_wheels[0][(int)_tick&WHEEL_MASK];
+            for (Task task=slot._next;task!=slot;task=task._next)
+            {
+                if (task._timestamp<=expiry)
+                {
+                    _counts[0]--;
+                    _size--;
+                    task.unlink();
+                    return task;
+                }
+            }
+
+            if (_tick>=target)
+                return null;
+            advance(target);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Advance the current tick towards the target.
+     * The tick is moved to the next boundary of the lowest non empty wheel
+     * (skipping ticks that can have no tasks) and the slots of the higher
+     * wheels that start at the new tick are cascaded down.
+     * @param target The tick to advance towards
+     */
+    private void advance(long target)
+    {
+        int level=0;
+        while (level<=WHEELS && _counts[level]==0)
+            level++;
+
+        if (level>WHEELS)
+        {
+            _tick=target;
+            return;
+        }
+
+        long next=level==0?(_tick+1):((_tick|((1L<<(level*WHEEL_BITS))-1))+1);
+        if (next>target)
+        {
+            _tick=target;
+            return;
+        }
+
+        _tick=next;
+        for (int w=WHEELS;w>0;w--)
+        {
+            if ((_tick&((1L<<(w*WHEEL_BITS))-1))==0)
+                cascade(w);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Relink the tasks in the current slot of a wheel into the lower wheels.
+     * @param wheel The wheel to cascade
+     */
+    private void cascade(int wheel)
+    {
+        final Task slot=wheel==WHEELS?_overflow:_wheels[wheel][(int)(_tick>>>(wheel*WHEEL_BITS))&WHEEL_MASK];
+        if (slot._next==slot)
+            return;
+
+        // Detach the tasks from the slot, as some may be relinked into it
+        Task task=slot._next;
+        final Task last=slot._prev;
+        slot._next=slot._prev=slot;
+
+        while (true)
+        {
+            final Task next=task._next;
+            task._next=task._prev=task;
+            _counts[wheel]--;
+            _size--;
+            place(task);
+            if (task==last)
+                break;
+            task=next;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The earliest timestamp of the tasks in the lowest wheel, or the start
+     * time of the first non empty slot in the higher wheels.
+     */
+    private long earliest()
+    {
+        if (_counts[0]>0)
+        {
+            for (int s=(int)_tick&WHEEL_MASK;s<WHEEL_SIZE;s++)
+            {
+                final Task slot=_wheels[0][s];
+                if (slot._next!=slot)
+                {
+                    long earliest=Long.MAX_VALUE;
+                    for (Task task=slot._next;task!=slot;task=task._next)
+                        if (task._timestamp<earliest)
+                            earliest=task._timestamp;
+                    return earliest;
+                }
+            }
+        }
+
+        for (int w=1;w<WHEELS;w++)
+        {
+            if (_counts[w]>0)
+            {
+                final int shift=w*WHEEL_BITS;
+                for (int s=((int)(_tick>>>shift)&WHEEL_MASK)+1;s<WHEEL_SIZE;s++)
+                {
+                    if (_wheels[w][s]._next!=_wheels[w][s])
+                        return (((_tick>>>(shift+WHEEL_BITS))<<(shift+WHEEL_BITS))+(((long)s)<<shift))*_tickMs;
+                }
+            }
+        }
+
+        return ((_tick|((1L<<(WHEELS*WHEEL_BITS))-1))+1)*_tickMs;
+    }
+}
@@ -24,28 +24,61 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.BlockingRingQueue;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.AggregateLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
 
+/* ------------------------------------------------------------ */
+/** A pool of threads that run jobs from a queue.
+ * <p>
+ * By default all jobs are dispatched to a single {@link BlockingQueue}.
+ * If {@link #setQueueStripes(int) queue stripes} are configured, each dispatching
+ * thread instead offers jobs to one of several striped queues, selected by its thread
+ * id, so that the threads of different select sets do not contend on one queue.
+ * Each pool thread polls its own stripe first and then steals jobs from the other
+ * stripes, parking when they are all empty.
+ * <p>
+ * If {@link #setStatsOn(boolean) statistics} are on, the time each job waits in the
+ * queue is recorded so that its percentiles can be compared between the two modes,
+ * together with the time each job runs for and the number of busy threads at each
+ * dispatch, so that a latency spike can be attributed to queueing or to the jobs.
+ * Rejected dispatches and the threads created and expired are always counted.
+ */
 public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPool, Executor, Dumpable
 {
     private static final Logger LOG = Log.getLogger(QueuedThreadPool.class);
+    private static final int __RING_CAPACITY=8192;
 
     private final AtomicInteger _threadsStarted = new AtomicInteger();
     private final AtomicInteger _threadsIdle = new AtomicInteger();
     private final AtomicLong _lastShrink = new AtomicLong();
     private final ConcurrentLinkedQueue<Thread> _threads=new ConcurrentLinkedQueue<Thread>();
     private final Object _joinLock = new Object();
+    private final AtomicInteger _nextStripe = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Waiter> _waiters=new ConcurrentLinkedQueue<Waiter>();
+    private final HistogramStatistic _queueLatency = new HistogramStatistic();
+    private final HistogramStatistic _jobTime = new HistogramStatistic();
+    private final HistogramStatistic _busyThreads = new HistogramStatistic();
+    private final AtomicLong _dispatchesRejected = new AtomicLong();
+    private final AtomicLong _threadsCreated = new AtomicLong();
+    private final AtomicLong _threadsExpired = new AtomicLong();
     private BlockingQueue<Runnable> _jobs;
+    private Stripe[] _stripes;
+    private int _queueStripes=0;
+    private boolean _ringQueue=false;
+    private volatile boolean _statsOn=false;
     private String _name;
     private int _maxIdleTimeMs=60000;
     private int _maxThreads=254;
@@ -91,10 +124,21 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         super.doStart();
         _threadsStarted.set(0);
 
-        if (_jobs==null)
+        _stripes=null;
+        if (_queueStripes>0)
         {
-            _jobs=_maxQueued>0 ?new ArrayBlockingQueue<Runnable>(_maxQueued)
-                :new BlockingArrayQueue<Runnable>(_minThreads,_minThreads);
+            int max=_maxQueued>0?(_maxQueued+_queueStripes-1)/_queueStripes:-1;
+            _stripes=new Stripe[_queueStripes];
+            for (int i=0;i<_stripes.length;i++)
+                _stripes[i]=new Stripe(max);
+        }
+        else if (_jobs==null)
+        {
+            if (_ringQueue)
+                _jobs=new BlockingRingQueue<Runnable>(_maxQueued>0?_maxQueued:__RING_CAPACITY);
+            else
+                _jobs=_maxQueued>0 ?new ArrayBlockingQueue<Runnable>(_maxQueued)
+                    :new BlockingArrayQueue<Runnable>(_minThreads,_minThreads);
         }
 
         int threads=_threadsStarted.get();
@@ -117,10 +161,20 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
             Thread.sleep(1);
 
         // kill queued jobs and flush out idle jobs
-        _jobs.clear();
-        Runnable noop = new Runnable(){public void run(){}};
-        for  (int i=_threadsIdle.get();i-->0;)
-            _jobs.offer(noop);
+        if (_stripes!=null)
+        {
+            for (Stripe stripe : _stripes)
+                stripe.clear();
+            while (wakeWaiter())
+                ;
+        }
+        else
+        {
+            _jobs.clear();
+            Runnable noop = new Runnable(){public void run(){}};
+            for  (int i=_threadsIdle.get();i-->0;)
+                _jobs.offer(noop);
+        }
         Thread.yield();
 
         // interrupt remaining threads
@@ -263,6 +317,60 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         _maxQueued=max;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if jobs are queued on a lock free {@link BlockingRingQueue}
+     * @see #setRingQueue(boolean)
+     */
+    public boolean isRingQueue()
+    {
+        return _ringQueue;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Set whether jobs are queued on a lock free {@link BlockingRingQueue}, so that
+     * dispatching threads do not contend on the locks of the default queue.
+     * The ring is bounded by {@link #setMaxQueued(int) maxQueued}, rounded up to a power
+     * of two, or holds 8192 jobs if maxQueued is not set.
+     * This has no effect if a queue was passed to the constructor or if
+     * {@link #setQueueStripes(int) queue stripes} are configured.
+     * @param ringQueue True to queue jobs on a {@link BlockingRingQueue}
+     */
+    public void setRingQueue(boolean ringQueue)
+    {
+        if (isRunning())
+            throw new IllegalStateException("started");
+        _ringQueue=ringQueue;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of striped job queues, or 0 if jobs are queued on a single queue
+     * @see #setQueueStripes(int)
+     */
+    public int getQueueStripes()
+    {
+        return _queueStripes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Set the number of striped job queues.
+     * A job is queued on the stripe selected by the id of the dispatching thread, and
+     * idle threads steal jobs from other stripes. A stripe per select set or per CPU
+     * avoids contention on a single queue at high dispatch rates.
+     * If {@link #setMaxQueued(int) maxQueued} is set, it is divided between the stripes.
+     * A queue passed to the constructor is not used if stripes are configured.
+     * @param stripes the number of striped job queues, or 0 to queue jobs on a single queue
+     */
+    public void setQueueStripes(int stripes)
+    {
+        if (isRunning())
+            throw new IllegalStateException("started");
+        if (stripes<0)
+            throw new IllegalArgumentException("stripes "+stripes);
+        _queueStripes=stripes;
+    }
+
     /* ------------------------------------------------------------ */
     /** Get the maximum thread idle time.
      * Delegated to the named or anonymous Pool.
@@ -344,11 +452,251 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         _detailedDump = detailedDump;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the time that jobs wait in the queue and run for is recorded.
+     */
+    public boolean getStatsOn()
+    {
+        return _statsOn;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Turn the recording of the time that jobs wait in the queue and run for on or off.
+     * While statistics are on, each dispatched job is wrapped with its queue time,
+     * so the {@link #getQueue() queue} contains wrappers rather than the jobs.
+     * @param on True to record queue latency and job time
+     */
+    public void setStatsOn(boolean on)
+    {
+        if (on && _statsOn)
+            return;
+        statsReset();
+        _statsOn=on;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Reset statistics.
+     */
+    public void statsReset()
+    {
+        _queueLatency.reset();
+        _jobTime.reset();
+        _busyThreads.reset();
+        _dispatchesRejected.set(0);
+        _threadsCreated.set(0);
+        _threadsExpired.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs whose queue latency was recorded
+     */
+    public long getQueueLatencyCount()
+    {
+        return _queueLatency.getCount();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean time in microseconds that a job waited in the queue
+     */
+    public double getQueueLatencyMean()
+    {
+        return _queueLatency.getMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum time in microseconds that a job waited in the queue
+     */
+    public long getQueueLatencyMax()
+    {
+        return _queueLatency.getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return The time in microseconds that the given percentage of jobs waited in
+     * the queue for at most, to within 12.5%
+     */
+    public long getQueueLatencyPercentile(double percentile)
+    {
+        return _queueLatency.getPercentile(percentile);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The median time in microseconds that a job waited in the queue
+     */
+    public long getQueueLatency50()
+    {
+        return _queueLatency.getPercentile(50);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The 99th percentile of the time in microseconds that a job waited in the queue
+     */
+    public long getQueueLatency99()
+    {
+        return _queueLatency.getPercentile(99);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs whose run time was recorded
+     */
+    public long getJobTimeCount()
+    {
+        return _jobTime.getCount();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean time in microseconds that a job ran for
+     */
+    public double getJobTimeMean()
+    {
+        return _jobTime.getMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum time in microseconds that a job ran for
+     */
+    public long getJobTimeMax()
+    {
+        return _jobTime.getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return The time in microseconds that the given percentage of jobs ran for
+     * at most, to within 12.5%
+     */
+    public long getJobTimePercentile(double percentile)
+    {
+        return _jobTime.getPercentile(percentile);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The median time in microseconds that a job ran for
+     */
+    public long getJobTime50()
+    {
+        return _jobTime.getPercentile(50);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The 99th percentile of the time in microseconds that a job ran for
+     */
+    public long getJobTime99()
+    {
+        return _jobTime.getPercentile(99);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The mean number of threads that were not idle when a job was dispatched
+     */
+    public double getBusyThreadsMean()
+    {
+        return _busyThreads.getMean();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of threads that were not idle when a job was dispatched
+     */
+    public long getBusyThreadsMax()
+    {
+        return _busyThreads.getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return The number of threads that were not idle when the given percentage of
+     * jobs were dispatched, at most, to within 12.5%
+     */
+    public long getBusyThreadsPercentile(double percentile)
+    {
+        return _busyThreads.getPercentile(percentile);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs that could not be dispatched, because the pool
+     * was not running or the queue was full
+     */
+    public long getDispatchesRejected()
+    {
+        return _dispatchesRejected.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of threads started by the pool
+     */
+    public long getThreadsCreated()
+    {
+        return _threadsCreated.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of threads that exited after being idle for longer than
+     * {@link #getMaxIdleTimeMs()}
+     */
+    public long getThreadsExpired()
+    {
+        return _threadsExpired.get();
+    }
+
     /* ------------------------------------------------------------ */
     public boolean dispatch(Runnable job)
+    {
+        if (offerJob(job))
+            return true;
+        _dispatchesRejected.incrementAndGet();
+        return false;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean offerJob(Runnable job)
     {
         if (isRunning())
         {
+            if (_statsOn)
+            {
+                _busyThreads.set(_threadsStarted.get()-_threadsIdle.get());
+                job=new QueuedJob(job);
+            }
+
+            Stripe[] stripes=_stripes;
+            if (stripes!=null)
+            {
+                Stripe stripe=stripes[(int)(Thread.currentThread().getId()%stripes.length)];
+                if (stripe.offer(job))
+                {
+                    // Wake a parked thread or start a new one
+                    if (!wakeWaiter())
+                    {
+                        int threads=_threadsStarted.get();
+                        if (threads<_maxThreads)
+                            startThread(threads);
+                    }
+                    return true;
+                }
+                return false;
+            }
+
             final int jobQ = _jobs.size();
             final int idle = getIdleThreads();
             if(_jobs.offer(job))
@@ -413,7 +761,25 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
      */
     public boolean isLowOnThreads()
     {
-        return _threadsStarted.get()==_maxThreads && _jobs.size()>=_threadsIdle.get();
+        return _threadsStarted.get()==_maxThreads && getQueueSize()>=_threadsIdle.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs waiting in the queue or queue stripes
+     */
+    public int getQueueSize()
+    {
+        Stripe[] stripes=_stripes;
+        if (stripes!=null)
+        {
+            int size=0;
+            for (Stripe stripe : stripes)
+                size+=stripe.size();
+            return size;
+        }
+        BlockingQueue<Runnable> jobs=_jobs;
+        return jobs==null?-1:jobs.size();
     }
 
     /* ------------------------------------------------------------ */
@@ -434,6 +800,7 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
 
             thread.start();
             started=true;
+            _threadsCreated.incrementAndGet();
         }
         finally
         {
@@ -460,6 +827,13 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
     public void dump(Appendable out, String indent) throws IOException
     {
         List<Object> dump = new ArrayList<Object>(getMaxThreads());
+        if (_statsOn)
+        {
+            dump.add("queueLatency(us) "+summary(_queueLatency));
+            dump.add("jobTime(us) "+summary(_jobTime));
+            dump.add("busyThreads "+summary(_busyThreads));
+        }
+        dump.add("dispatchesRejected="+getDispatchesRejected()+" threadsCreated="+getThreadsCreated()+" threadsExpired="+getThreadsExpired());
         for (final Thread thread: _threads)
         {
             final StackTraceElement[] trace=thread.getStackTrace();
@@ -502,18 +876,103 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
 
     }
 
+    /* ------------------------------------------------------------ */
+    private static String summary(HistogramStatistic histogram)
+    {
+        return String.format("count=%d mean=%.1f 50%%=%d 90%%=%d 99%%=%d max=%d",histogram.getCount(),histogram.getMean(),
+                histogram.getPercentile(50),histogram.getPercentile(90),histogram.getPercentile(99),histogram.getMax());
+    }
+
 
     /* ------------------------------------------------------------ */
     @Override
     public String toString()
     {
-        return _name+"{"+getMinThreads()+"<="+getIdleThreads()+"<="+getThreads()+"/"+getMaxThreads()+","+(_jobs==null?-1:_jobs.size())+"}#"+getState();
+        return _name+"{"+getMinThreads()+"<="+getIdleThreads()+"<="+getThreads()+"/"+getMaxThreads()+","+getQueueSize()+"}#"+getState();
+    }
+
+    /* ------------------------------------------------------------ */
+    private Runnable pollJob(int home)
+    {
+        Stripe[] stripes=_stripes;
+        if (stripes==null)
+            return _jobs.poll();
+
+        // Poll the home stripe, then steal from the others
+        for (int i=0;i<stripes.length;i++)
+        {
+            Runnable job=stripes[(home+i)%stripes.length].poll();
+            if (job!=null)
+                return job;
+        }
+        return null;
+    }
+
+    /* ------------------------------------------------------------ */
+    private Runnable idleJobPoll(int home, Waiter waiter) throws InterruptedException
+    {
+        if (_stripes==null)
+            return _maxIdleTimeMs<=0?_jobs.take():_jobs.poll(_maxIdleTimeMs,TimeUnit.MILLISECONDS);
+
+        // Register as a waiter before checking the stripes, so that
+        // a job dispatched after the check will wake this thread.
+        waiter._waiting.set(true);
+        _waiters.offer(waiter);
+        Runnable job=pollJob(home);
+        if (job==null)
+        {
+            long timeout=TimeUnit.MILLISECONDS.toNanos(_maxIdleTimeMs);
+            long end=System.nanoTime()+timeout;
+            while (waiter._waiting.get() && isRunning())
+            {
+                if (Thread.interrupted())
+                {
+                    if (waiter.cancel())
+                        _waiters.remove(waiter);
+                    throw new InterruptedException();
+                }
+                if (_maxIdleTimeMs<=0)
+                    LockSupport.park();
+                else
+                {
+                    long remaining=end-System.nanoTime();
+                    if (remaining<=0)
+                        break;
+                    LockSupport.parkNanos(remaining);
+                }
+            }
+            job=pollJob(home);
+        }
+
+        if (waiter.cancel())
+            _waiters.remove(waiter);
+        else if (job!=null)
+        {
+            // This thread was woken for a job, but took another one, so pass the wakeup on
+            if (!wakeWaiter())
+            {
+                int threads=_threadsStarted.get();
+                if (threads<_maxThreads && isRunning())
+                    startThread(threads);
+            }
+        }
+        return job;
     }
 
     /* ------------------------------------------------------------ */
-    private Runnable idleJobPoll() throws InterruptedException
+    private boolean wakeWaiter()
     {
-        return _jobs.poll(_maxIdleTimeMs,TimeUnit.MILLISECONDS);
+        Waiter waiter=_waiters.poll();
+        while (waiter!=null)
+        {
+            if (waiter.cancel())
+            {
+                LockSupport.unpark(waiter._thread);
+                return true;
+            }
+            waiter=_waiters.poll();
+        }
+        return false;
     }
 
     /* ------------------------------------------------------------ */
@@ -522,16 +981,34 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         public void run()
         {
             boolean shrink=false;
+            Stripe[] stripes=_stripes;
+            int home=stripes==null?0:(_nextStripe.getAndIncrement()&Integer.MAX_VALUE)%stripes.length;
+            Waiter waiter=stripes==null?null:new Waiter(Thread.currentThread());
             try
             {
-                Runnable job=_jobs.poll();
+                Runnable job=pollJob(home);
                 while (isRunning())
                 {
                     // Job loop
                     while (job!=null && isRunning())
                     {
-                        runJob(job);
-                        job=_jobs.poll();
+                        if (job instanceof QueuedJob)
+                        {
+                            QueuedJob queued=(QueuedJob)job;
+                            long start=System.nanoTime();
+                            _queueLatency.set(TimeUnit.NANOSECONDS.toMicros(start-queued._queued));
+                            try
+                            {
+                                runJob(queued._job);
+                            }
+                            finally
+                            {
+                                _jobTime.set(TimeUnit.NANOSECONDS.toMicros(System.nanoTime()-start));
+                            }
+                        }
+                        else
+                            runJob(job);
+                        job=pollJob(home);
                     }
 
                     // Idle loop
@@ -541,9 +1018,7 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
 
                         while (isRunning() && job==null)
                         {
-                            if (_maxIdleTimeMs<=0)
-                                job=_jobs.take();
-                            else
+                            if (_maxIdleTimeMs>0)
                             {
                                 // maybe we should shrink?
                                 final int size=_threadsStarted.get();
@@ -556,11 +1031,14 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
                                         shrink=_lastShrink.compareAndSet(last,now) &&
                                         _threadsStarted.compareAndSet(size,size-1);
                                         if (shrink)
+                                        {
+                                            _threadsExpired.incrementAndGet();
                                             return;
+                                        }
                                     }
                                 }
-                                job=idleJobPoll();
                             }
+                            job=idleJobPoll(home,waiter);
                         }
                     }
                     finally
@@ -600,7 +1078,7 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
 
     /* ------------------------------------------------------------ */
     /**
-     * @return the job queue
+     * @return the job queue, or null if {@link #setQueueStripes(int) queue stripes} are configured
      */
     protected BlockingQueue<Runnable> getQueue()
     {
@@ -665,4 +1143,99 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         }
         return null;
     }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A job wrapped with the time it was queued.
+     */
+    private static class QueuedJob implements Runnable
+    {
+        private final Runnable _job;
+        private final long _queued=System.nanoTime();
+
+        QueuedJob(Runnable job)
+        {
+            _job=job;
+        }
+
+        public void run()
+        {
+            _job.run();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A striped job queue that counts its jobs.
+     */
+    private static class Stripe
+    {
+        private final ConcurrentLinkedQueue<Runnable> _queue=new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicInteger _size=new AtomicInteger();
+        private final int _maxSize;
+
+        Stripe(int maxSize)
+        {
+            _maxSize=maxSize;
+        }
+
+        boolean offer(Runnable job)
+        {
+            if (_maxSize>0)
+            {
+                int size=_size.get();
+                while (true)
+                {
+                    if (size>=_maxSize)
+                        return false;
+                    if (_size.compareAndSet(size,size+1))
+                        break;
+                    size=_size.get();
+                }
+            }
+            else
+                _size.incrementAndGet();
+            _queue.offer(job);
+            return true;
+        }
+
+        Runnable poll()
+        {
+            Runnable job=_queue.poll();
+            if (job!=null)
+                _size.decrementAndGet();
+            return job;
+        }
+
+        int size()
+        {
+            return Math.max(0,_size.get());
+        }
+
+        void clear()
+        {
+            while (poll()!=null)
+                ;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A parked pool thread waiting for a striped job.
+     */
+    private static class Waiter
+    {
+        private final Thread _thread;
+        private final AtomicBoolean _waiting=new AtomicBoolean();
+
+        Waiter(Thread thread)
+        {
+            _thread=thread;
+        }
+
+        boolean cancel()
+        {
+            return _waiting.compareAndSet(true,false);
+        }
+    }
 }
@@ -29,9 +29,9 @@ import org.eclipse.jetty.util.log.Logger;
 public class Timeout
 {
     private static final Logger LOG = Log.getLogger(Timeout.class);
-    private Object _lock;
-    private long _duration;
-    private volatile long _now=System.currentTimeMillis();
+    final Object _lock;
+    long _duration;
+    volatile long _now=System.currentTimeMillis();
     private Task _head=new Task();
 
     /* ------------------------------------------------------------ */
@@ -194,6 +194,17 @@ public class Timeout
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /** Remove a scheduled task.
+     * Called with the lock held when a task is cancelled.
+     * @param task The task to remove
+     */
+    void remove(Task task)
+    {
+        task.unlink();
+        task._timestamp=0;
+    }
+
     /* ------------------------------------------------------------ */
     public boolean isEmpty()
     {
@@ -253,6 +264,7 @@ public class Timeout
         long _delay;
         long _timestamp=0;
         boolean _expired=false;
+        int _level;
 
         /* ------------------------------------------------------------ */
         protected Task()
@@ -280,7 +292,7 @@ public class Timeout
         }
 
         /* ------------------------------------------------------------ */
-        private void unlink()
+        void unlink()
         {
             _next._prev=_prev;
             _prev._next=_next;
@@ -289,7 +301,7 @@ public class Timeout
         }
 
         /* ------------------------------------------------------------ */
-        private void link(Task task)
+        void link(Task task)
         {
             Task next_next = _next;
             _next._prev=task;
@@ -341,8 +353,7 @@ public class Timeout
             {
                 synchronized (timeout._lock)
                 {
-                    unlink();
-                    _timestamp=0;
+                    timeout.remove(this);
                 }
             }
         }
@@ -0,0 +1,499 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.AggregateLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/* ------------------------------------------------------------ */
+/** A ThreadPool that runs each job on a new virtual thread.
+ * <p>
+ * Virtual threads are cheap to create and to block, so applications that block
+ * on JDBC or upstream calls may run thousands of concurrent jobs without the
+ * memory and context switches of as many platform threads. The number of jobs
+ * running at once is limited to {@link #getMaxConcurrency()}. Further jobs are
+ * started on virtual threads that wait for a permit, which counts them as queued.
+ * <p>
+ * Virtual threads are created by reflection, so that this class may be compiled
+ * and run on runtimes without them. If they are not supported (or
+ * {@link #setUseVirtualThreads(boolean) not used}), the pool falls back to a
+ * {@link QueuedThreadPool} of up to {@link #getMaxConcurrency()} platform threads.
+ * <p>
+ * A virtual thread that blocks while holding a monitor pins its carrier thread,
+ * so code that blocks within <code>synchronized</code> blocks may still need
+ * carrier threads in proportion to its concurrency.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, Executor, Dumpable
+{
+    private static final Logger LOG = Log.getLogger(VirtualThreadPool.class);
+
+    private final ConcurrentMap<Thread,Runnable> _running = new ConcurrentHashMap<Thread,Runnable>();
+    private final AtomicInteger _threads = new AtomicInteger();
+    private final AtomicInteger _queued = new AtomicInteger();
+    private final Object _joinLock = new Object();
+    private String _name;
+    private int _maxConcurrency=256;
+    private int _maxIdleTimeMs=60000;
+    private int _maxStopTime=100;
+    private boolean _useVirtualThreads=true;
+    private ThreadFactory _factory;
+    private Semaphore _permits;
+    private QueuedThreadPool _fallback;
+
+    /* ------------------------------------------------------------------- */
+    public VirtualThreadPool()
+    {
+        _name="vtp"+super.hashCode();
+    }
+
+    /* ------------------------------------------------------------------- */
+    /**
+     * @param maxConcurrency The maximum number of jobs that run at once
+     */
+    public VirtualThreadPool(int maxConcurrency)
+    {
+        this();
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of jobs that run at once
+     */
+    public int getMaxConcurrency()
+    {
+        return _maxConcurrency;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxConcurrency The maximum number of jobs that run at once. With virtual threads this may
+     * be in the thousands; with the fallback it is the maximum number of platform threads.
+     */
+    public void setMaxConcurrency(int maxConcurrency)
+    {
+        if (isRunning())
+            throw new IllegalStateException("started");
+        if (maxConcurrency<=0)
+            throw new IllegalArgumentException("maxConcurrency "+maxConcurrency);
+        _maxConcurrency=maxConcurrency;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The time in ms that a platform thread of the fallback pool may be idle before it is stopped.
+     */
+    public int getMaxIdleTimeMs()
+    {
+        return _maxIdleTimeMs;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxIdleTimeMs The time in ms that a platform thread of the fallback pool may be idle before it is stopped.
+     */
+    public void setMaxIdleTimeMs(int maxIdleTimeMs)
+    {
+        _maxIdleTimeMs=maxIdleTimeMs;
+        QueuedThreadPool fallback=_fallback;
+        if (fallback!=null)
+            fallback.setMaxIdleTimeMs(maxIdleTimeMs);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return maximum total time that stop() will wait for running jobs to complete.
+     */
+    public int getMaxStopTimeMs()
+    {
+        return _maxStopTime;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param stopTimeMs maximum total time that stop() will wait for running jobs to complete.
+     */
+    public void setMaxStopTimeMs(int stopTimeMs)
+    {
+        _maxStopTime=stopTimeMs;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The name of the pool, used as the prefix of thread names.
+     */
+    public String getName()
+    {
+        return _name;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param name The name of the pool, used as the prefix of thread names.
+     */
+    public void setName(String name)
+    {
+        if (isRunning())
+            throw new IllegalStateException("started");
+        _name=name;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if virtual threads are used when the runtime supports them.
+     */
+    public boolean isUseVirtualThreads()
+    {
+        return _useVirtualThreads;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param useVirtualThreads True if virtual threads are used when the runtime supports them,
+     * false to always use the fallback pool of platform threads.
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads)
+    {
+        if (isRunning())
+            throw new IllegalStateException("started");
+        _useVirtualThreads=useVirtualThreads;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the started pool runs jobs on virtual threads, false if it uses the fallback pool.
+     */
+    public boolean isVirtual()
+    {
+        return _factory!=null;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStart() throws Exception
+    {
+        _threads.set(0);
+        _queued.set(0);
+        _factory=_useVirtualThreads?newThreadFactory():null;
+        if (_factory!=null)
+        {
+            _permits=new Semaphore(_maxConcurrency);
+        }
+        else
+        {
+            LOG.debug("Virtual threads not available for {}",this);
+            QueuedThreadPool fallback=new QueuedThreadPool(_maxConcurrency);
+            fallback.setName(_name);
+            fallback.setMaxIdleTimeMs(_maxIdleTimeMs);
+            fallback.setMaxStopTimeMs(_maxStopTime);
+            fallback.start();
+            _fallback=fallback;
+        }
+        super.doStart();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        long start=System.currentTimeMillis();
+
+        if (_fallback!=null)
+        {
+            _fallback.stop();
+            _fallback=null;
+        }
+        else
+        {
+            // let jobs complete naturally for a while, then interrupt them
+            while (_threads.get()>0 && (System.currentTimeMillis()-start) < (_maxStopTime/2))
+                Thread.sleep(1);
+            for (Thread thread : _running.keySet())
+                thread.interrupt();
+            while (_threads.get()>0 && (System.currentTimeMillis()-start) < _maxStopTime)
+                Thread.sleep(1);
+            if (_threads.get()>0)
+                LOG.warn(_threads.get()+" threads could not be stopped");
+        }
+        _factory=null;
+
+        synchronized (_joinLock)
+        {
+            _joinLock.notifyAll();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    public boolean dispatch(Runnable job)
+    {
+        if (!isRunning())
+            return false;
+
+        _queued.incrementAndGet();
+        boolean dispatched=false;
+        try
+        {
+            QueuedThreadPool fallback=_fallback;
+            if (fallback!=null)
+            {
+                dispatched=fallback.dispatch(new Job(job,null));
+            }
+            else
+            {
+                ThreadFactory factory=_factory;
+                if (factory!=null)
+                {
+                    _threads.incrementAndGet();
+                    try
+                    {
+                        factory.newThread(new Job(job,_permits)).start();
+                        dispatched=true;
+                    }
+                    finally
+                    {
+                        if (!dispatched)
+                            _threads.decrementAndGet();
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (!dispatched)
+                _queued.decrementAndGet();
+        }
+        return dispatched;
+    }
+
+    /* ------------------------------------------------------------ */
+    public void execute(Runnable job)
+    {
+        if (!dispatch(job))
+            throw new RejectedExecutionException();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Blocks until the thread pool is {@link org.eclipse.jetty.util.component.LifeCycle#stop stopped}.
+     */
+    public void join() throws InterruptedException
+    {
+        synchronized (_joinLock)
+        {
+            while (isRunning())
+                _joinLock.wait();
+        }
+
+        while (isStopping())
+            Thread.sleep(1);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of threads, including virtual threads that are waiting to run their job
+     */
+    public int getThreads()
+    {
+        QueuedThreadPool fallback=_fallback;
+        if (fallback!=null)
+            return fallback.getThreads();
+        return _threads.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs that may be started before the pool is at its {@link #getMaxConcurrency() maximum concurrency}
+     */
+    public int getIdleThreads()
+    {
+        QueuedThreadPool fallback=_fallback;
+        if (fallback!=null)
+            return fallback.getIdleThreads();
+        Semaphore permits=_permits;
+        return permits==null?0:Math.max(0,permits.availablePermits());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs running
+     */
+    public int getRunningJobs()
+    {
+        return _running.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of jobs waiting for a running job to complete
+     */
+    public int getQueueSize()
+    {
+        return _queued.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return True if the pool is at its {@link #getMaxConcurrency() maximum concurrency}
+     * and there are no more permits than waiting jobs
+     */
+    public boolean isLowOnThreads()
+    {
+        QueuedThreadPool fallback=_fallback;
+        if (fallback!=null)
+            return fallback.isLowOnThreads();
+        Semaphore permits=_permits;
+        return permits!=null && permits.availablePermits()<=_queued.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    public String dump()
+    {
+        return AggregateLifeCycle.dump(this);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        List<Object> dump = new ArrayList<Object>();
+        for (Map.Entry<Thread,Runnable> entry : _running.entrySet())
+        {
+            Thread thread=entry.getKey();
+            StackTraceElement[] trace=thread.getStackTrace();
+            dump.add(thread.getId()+" "+thread.getName()+" "+thread.getState()+" @ "+(trace.length>0?trace[0]:"???")+" "+entry.getValue());
+        }
+        out.append(String.valueOf(this)).append("\n");
+        AggregateLifeCycle.dump(out,indent,dump);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return _name+"{"+(isVirtual()?"virtual,":"")+getRunningJobs()+"<="+getMaxConcurrency()+","+getQueueSize()+"}#"+getState();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The factory of the threads started for each job, or null to use the fallback pool.
+     * By default, a factory of virtual threads if the runtime supports them.
+     */
+    protected ThreadFactory newThreadFactory()
+    {
+        return newVirtualThreadFactory(_name+"-");
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param prefix The prefix of the thread names
+     * @return A factory of virtual threads, or null if the runtime does not support them.
+     */
+    public static ThreadFactory newVirtualThreadFactory(String prefix)
+    {
+        try
+        {
+            Method ofVirtual=Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass=Class.forName("java.lang.Thread$Builder");
+            Object builder=ofVirtual.invoke(null);
+            builder=builderClass.getMethod("name",String.class,long.class).invoke(builder,prefix,0L);
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (Throwable e)
+        {
+            // Not supported, or a preview feature that is not enabled
+            LOG.ignore(e);
+            return null;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** A job that is tracked while it runs, and that waits for
+     * a permit when running on a virtual thread.
+     */
+    private class Job implements Runnable
+    {
+        private final Runnable _job;
+        private final Semaphore _semaphore;
+
+        Job(Runnable job, Semaphore semaphore)
+        {
+            _job=job;
+            _semaphore=semaphore;
+        }
+
+        public void run()
+        {
+            Semaphore permits=_semaphore;
+            boolean permitted=false;
+            Thread thread=Thread.currentThread();
+            try
+            {
+                try
+                {
+                    if (permits!=null)
+                    {
+                        permits.acquire();
+                        permitted=true;
+                    }
+                }
+                finally
+                {
+                    _queued.decrementAndGet();
+                }
+                _running.put(thread,_job);
+                _job.run();
+            }
+            catch (InterruptedException e)
+            {
+                LOG.ignore(e);
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+            }
+            finally
+            {
+                _running.remove(thread);
+                if (permitted)
+                    permits.release();
+                if (permits!=null)
+                    _threads.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.valueOf(_job);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.eclipse.jetty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class BlockingRingQueueTest
+{
+    @Test
+    public void testWrap() throws Exception
+    {
+        BlockingRingQueue<String> queue = new BlockingRingQueue<String>(3);
+        assertEquals(4,queue.getCapacity());
+        assertEquals(0,queue.size());
+        assertEquals(null,queue.peek());
+
+        for (int i=0;i<5;i++)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+            assertTrue(queue.offer("four"));
+            assertFalse(queue.offer("five"));
+            assertEquals(4,queue.size());
+            assertEquals(0,queue.remainingCapacity());
+            assertEquals("[one, two, three, four]",queue.toString());
+
+            assertEquals("one",queue.peek());
+            assertEquals("one",queue.poll());
+            assertEquals("two",queue.poll());
+            assertEquals(2,queue.size());
+            assertTrue(queue.offer("five"));
+
+            List<String> drained=new ArrayList<String>();
+            assertEquals(3,queue.drainTo(drained));
+            assertEquals("[three, four, five]",drained.toString());
+            assertEquals(null,queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testTakeAndPut() throws Exception
+    {
+        final BlockingRingQueue<String> queue = new BlockingRingQueue<String>(2);
+        final String[] data=new String[3];
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    data[0]=queue.take();
+                    data[1]=queue.take();
+                    data[2]=queue.poll(100,TimeUnit.MILLISECONDS);
+                }
+                catch(InterruptedException e)
+                {
+                    e.printStackTrace();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        };
+        thread.start();
+
+        Thread.sleep(200);
+        queue.put("zero");
+        queue.put("one");
+        assertTrue(done.await(10,TimeUnit.SECONDS));
+        assertEquals("zero",data[0]);
+        assertEquals("one",data[1]);
+        assertEquals(null,data[2]);
+
+        queue.put("a");
+        queue.put("b");
+        assertFalse(queue.offer("c",100,TimeUnit.MILLISECONDS));
+
+        // put blocks until a consumer takes
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                    queue.take();
+                }
+                catch(InterruptedException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }.start();
+        queue.put("c");
+        assertEquals("[b, c]",queue.toString());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final int THREADS=8;
+        final int LOOPS=20000;
+        final BlockingRingQueue<Long> queue = new BlockingRingQueue<Long>(64);
+        final AtomicLong produced = new AtomicLong();
+        final AtomicLong consumed = new AtomicLong();
+        final CountDownLatch producers = new CountDownLatch(THREADS);
+        final CountDownLatch consumers = new CountDownLatch(THREADS);
+
+        for (int t=0;t<THREADS;t++)
+        {
+            final int id=t;
+            new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i=0;i<LOOPS;i++)
+                        {
+                            Long msg=Long.valueOf(id*LOOPS+i);
+                            produced.addAndGet(msg.longValue());
+                            queue.put(msg);
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        e.printStackTrace();
+                    }
+                    finally
+                    {
+                        producers.countDown();
+                    }
+                }
+            }.start();
+
+            new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i=0;i<LOOPS;i++)
+                        {
+                            Long msg=(i%2==0)?queue.take():queue.poll(10,TimeUnit.SECONDS);
+                            consumed.addAndGet(msg.longValue());
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        e.printStackTrace();
+                    }
+                    finally
+                    {
+                        consumers.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        assertTrue(producers.await(60,TimeUnit.SECONDS));
+        assertTrue(consumers.await(60,TimeUnit.SECONDS));
+        assertEquals(produced.get(),consumed.get());
+        assertEquals(0,queue.size());
+    }
+}
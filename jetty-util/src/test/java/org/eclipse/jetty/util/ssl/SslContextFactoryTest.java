@@ -180,4 +180,18 @@ public class SslContextFactoryTest
             Assert.fail("Unexpected exception");
         }
     }
+
+    @Test
+    public void testSessionCache() throws Exception
+    {
+        SslContextFactory cf = new SslContextFactory();
+        cf.setSslSessionCacheSize(100);
+        cf.setSslSessionTimeout(60);
+        cf.start();
+
+        Assert.assertEquals(100,cf.getSslContext().getServerSessionContext().getSessionCacheSize());
+        Assert.assertEquals(60,cf.getSslContext().getServerSessionContext().getSessionTimeout());
+        Assert.assertEquals(100,cf.getSslContext().getClientSessionContext().getSessionCacheSize());
+        Assert.assertEquals(0,cf.getSslSessionCacheEntries());
+    }
 }
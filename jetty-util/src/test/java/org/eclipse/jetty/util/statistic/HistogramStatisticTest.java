@@ -0,0 +1,51 @@
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramStatisticTest
+{
+    @Test
+    public void testBuckets()
+    {
+        for (int i=0;i<8;i++)
+        {
+            assertEquals(i,HistogramStatistic.bucket(i));
+            assertEquals(i,HistogramStatistic.upperBound(i));
+        }
+        long[] samples={8,9,15,16,17,31,32,1000,1023,1024,123456789L,Long.MAX_VALUE};
+        for (long sample : samples)
+        {
+            int bucket=HistogramStatistic.bucket(sample);
+            assertTrue(HistogramStatistic.upperBound(bucket)>=sample);
+            assertTrue(HistogramStatistic.upperBound(bucket-1)<sample);
+            assertTrue(HistogramStatistic.upperBound(bucket)-sample<=sample/8);
+        }
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        assertEquals(0,histogram.getPercentile(99));
+
+        for (int i=1;i<=1000;i++)
+            histogram.set(i);
+
+        assertEquals(1000,histogram.getCount());
+        assertEquals(1000,histogram.getMax());
+        assertEquals(500.5,histogram.getMean(),0.01);
+        assertEquals(1,histogram.getPercentile(0));
+        assertEquals(1000,histogram.getPercentile(100));
+        long median=histogram.getPercentile(50);
+        assertTrue(median>=500 && median<=500*9/8);
+        long p99=histogram.getPercentile(99);
+        assertTrue(p99>=990 && p99<=1000);
+
+        histogram.reset();
+        assertEquals(0,histogram.getCount());
+        assertEquals(0,histogram.getMax());
+    }
+}
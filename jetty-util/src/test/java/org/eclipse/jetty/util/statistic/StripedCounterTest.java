@@ -0,0 +1,49 @@
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+/* ------------------------------------------------------------ */
+public class StripedCounterTest
+{
+    @Test
+    public void testConcurrentAdd() throws Exception
+    {
+        testConcurrentAdd(new StripedCounter());
+    }
+
+    @Test
+    public void testSingleStripe() throws Exception
+    {
+        testConcurrentAdd(new StripedCounter(1));
+    }
+
+    private void testConcurrentAdd(final StripedCounter counter) throws Exception
+    {
+        Thread[] threads = new Thread[8];
+        for (int t=0;t<threads.length;t++)
+        {
+            threads[t]=new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i=0;i<10000;i++)
+                        counter.add(2);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(8*10000*2,counter.get());
+        counter.increment();
+        assertEquals("160001",counter.toString());
+
+        counter.reset();
+        assertEquals(0,counter.get());
+    }
+}
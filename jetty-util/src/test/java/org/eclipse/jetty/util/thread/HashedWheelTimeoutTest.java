@@ -0,0 +1,103 @@
+// ========================================================================
+// Copyright (c) 2011 Mort Bay Consulting Pty. Ltd.
+// ------------------------------------------------------------------------
+// All rights reserved. This program and the accompanying materials
+// are made available under the terms of the Eclipse Public License v1.0
+// and Apache License v2.0 which accompanies this distribution.
+// The Eclipse Public License is available at
+// http://www.eclipse.org/legal/epl-v10.html
+// The Apache License v2.0 is available at
+// http://www.opensource.org/licenses/apache2.0.php
+// You may elect to redistribute this code under either of these licenses.
+// ========================================================================
+
+package org.eclipse.jetty.util.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HashedWheelTimeoutTest extends TimeoutTest
+{
+    /* ------------------------------------------------------------ */
+    @Override
+    protected Timeout newTimeout(Object lock)
+    {
+        return new HashedWheelTimeout(lock);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testWheels()
+    {
+        long[] delays = {0,1,255,256,257,65535,65536,65537,1L<<24,(1L<<24)+1,1L<<32,(1L<<32)+3,1L<<34};
+
+        HashedWheelTimeout wheel = new HashedWheelTimeout(lock);
+        wheel.setNow(1000);
+        Timeout.Task[] tasks = new Timeout.Task[delays.length];
+        for (int i=0;i<tasks.length;i++)
+        {
+            tasks[i]=new Timeout.Task();
+            wheel.schedule(tasks[i],delays[i]);
+        }
+        assertEquals(tasks.length,wheel.getSize());
+
+        for (int i=0;i<tasks.length;i++)
+        {
+            long time=1000+delays[i];
+            if (time>1000)
+            {
+                wheel.setNow(time-1);
+                wheel.tick();
+                assertFalse("early "+i,tasks[i].isExpired());
+                assertTrue("next "+i,wheel.getTimeToNext()<=1);
+            }
+
+            wheel.setNow(time);
+            wheel.tick();
+            assertTrue("expired "+i,tasks[i].isExpired());
+            for (int j=i+1;j<tasks.length;j++)
+                if (delays[j]>delays[i])
+                    assertFalse("expired "+j+" at "+i,tasks[j].isExpired());
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testRandom()
+    {
+        Random random = new Random(1234);
+        HashedWheelTimeout wheel = new HashedWheelTimeout(lock,10);
+        wheel.setDuration(100);
+        long now=1000;
+        wheel.setNow(now);
+
+        Timeout.Task[] tasks = new Timeout.Task[1000];
+        long[] expiry = new long[tasks.length];
+        for (int i=0;i<tasks.length;i++)
+        {
+            tasks[i]=new Timeout.Task();
+            long delay=random.nextInt(1+random.nextInt(1000000));
+            expiry[i]=now+delay+100;
+            wheel.schedule(tasks[i],delay);
+        }
+
+        for (int i=0;i<tasks.length;i+=3)
+            tasks[i].cancel();
+        assertEquals(tasks.length-(tasks.length+2)/3,wheel.getSize());
+
+        while (!wheel.isEmpty())
+        {
+            long to_next=wheel.getTimeToNext();
+            now+=random.nextBoolean()?to_next:random.nextInt(10000);
+            wheel.tick(now);
+            for (int i=0;i<tasks.length;i++)
+                assertEquals("expired "+i+" at "+now,i%3!=0 && expiry[i]<=now,tasks[i].isExpired());
+        }
+    }
+}
@@ -64,7 +64,27 @@ public class QueuedThreadPoolTest
     @Test
     public void testThreadPool() throws Exception
     {        
+        testThreadPool(new QueuedThreadPool());
+    }
+
+    @Test
+    public void testStripedThreadPool() throws Exception
+    {
+        QueuedThreadPool tp= new QueuedThreadPool();
+        tp.setQueueStripes(4);
+        testThreadPool(tp);
+    }
+
+    @Test
+    public void testRingQueueThreadPool() throws Exception
+    {
         QueuedThreadPool tp= new QueuedThreadPool();
+        tp.setRingQueue(true);
+        testThreadPool(tp);
+    }
+
+    private void testThreadPool(QueuedThreadPool tp) throws Exception
+    {
         tp.setMinThreads(5);
         tp.setMaxThreads(10);
         tp.setMaxIdleTimeMs(1000);
@@ -138,6 +158,19 @@ public class QueuedThreadPoolTest
 
     @Test
     public void testShrink() throws Exception
+    {
+        testShrink(new QueuedThreadPool());
+    }
+
+    @Test
+    public void testStripedShrink() throws Exception
+    {
+        QueuedThreadPool tp= new QueuedThreadPool();
+        tp.setQueueStripes(4);
+        testShrink(tp);
+    }
+
+    private void testShrink(QueuedThreadPool tp) throws Exception
     {
         final AtomicInteger sleep = new AtomicInteger(100);
         Runnable job = new Runnable()
@@ -156,7 +189,6 @@ public class QueuedThreadPoolTest
             
         };
         
-        QueuedThreadPool tp= new QueuedThreadPool();
         tp.setMinThreads(2);
         tp.setMaxThreads(10);
         tp.setMaxIdleTimeMs(400);
@@ -183,6 +215,9 @@ public class QueuedThreadPoolTest
         }
         waitForThreads(tp,2);
         waitForIdle(tp,2);
+        Assert.assertTrue(tp.getThreadsExpired()>0);
+        Assert.assertEquals(tp.getThreads(),tp.getThreadsCreated()-tp.getThreadsExpired());
+        tp.stop();
     }
 
     @Test
@@ -209,6 +244,108 @@ public class QueuedThreadPoolTest
     }
 
 
+    @Test
+    public void testStripedStealing() throws Exception
+    {
+        QueuedThreadPool tp= new QueuedThreadPool();
+        tp.setQueueStripes(8);
+        tp.setMinThreads(2);
+        tp.setMaxThreads(4);
+        tp.setStatsOn(true);
+        tp.start();
+        waitForIdle(tp,2);
+
+        final CountDownLatch latch=new CountDownLatch(1000);
+        Runnable job=new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+            }
+        };
+
+        // dispatch from more threads than there are pool threads
+        Thread[] threads=new Thread[8];
+        for (int t=0;t<threads.length;t++)
+        {
+            final QueuedThreadPool pool=tp;
+            final Runnable j=job;
+            threads[t]=new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i=0;i<125;i++)
+                        pool.dispatch(j);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertTrue(latch.await(10,TimeUnit.SECONDS));
+        Assert.assertTrue(tp.getThreads()<=4);
+        Assert.assertEquals(0,tp.getQueueSize());
+        Assert.assertEquals(1000,tp.getQueueLatencyCount());
+        Assert.assertTrue(tp.getQueueLatency50()<=tp.getQueueLatency99());
+        Assert.assertTrue(tp.getQueueLatency99()<=tp.getQueueLatencyMax());
+
+        tp.statsReset();
+        Assert.assertEquals(0,tp.getQueueLatencyCount());
+        tp.stop();
+        waitForThreads(tp,0);
+    }
+
+    @Test
+    public void testJobStatistics() throws Exception
+    {
+        QueuedThreadPool tp= new QueuedThreadPool();
+        tp.setMinThreads(2);
+        tp.setMaxThreads(2);
+        tp.setStatsOn(true);
+        tp.start();
+        waitForIdle(tp,2);
+
+        final CountDownLatch latch=new CountDownLatch(10);
+        Runnable job=new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(10);
+                }
+                catch(InterruptedException e)
+                {}
+                latch.countDown();
+            }
+        };
+        for (int i=0;i<10;i++)
+            assertTrue(tp.dispatch(job));
+        assertTrue(latch.await(10,TimeUnit.SECONDS));
+        waitForIdle(tp,2);
+
+        Assert.assertEquals(10,tp.getJobTimeCount());
+        Assert.assertTrue(tp.getJobTime50()>=10000);
+        Assert.assertTrue(tp.getJobTime50()<=tp.getJobTime99());
+        Assert.assertTrue(tp.getJobTime99()<=tp.getJobTimeMax());
+        Assert.assertTrue(tp.getBusyThreadsMax()<=2);
+        Assert.assertEquals(2,tp.getThreadsCreated());
+        Assert.assertEquals(0,tp.getDispatchesRejected());
+        String dump=tp.dump();
+        assertTrue(dump.contains("jobTime(us) count=10"));
+        assertTrue(dump.contains("threadsCreated=2"));
+
+        tp.stop();
+        Assert.assertFalse(tp.dispatch(job));
+        Assert.assertEquals(1,tp.getDispatchesRejected());
+
+        tp.statsReset();
+        Assert.assertEquals(0,tp.getJobTimeCount());
+        Assert.assertEquals(0,tp.getDispatchesRejected());
+    }
+
     private void waitForIdle(QueuedThreadPool tp, int idle)
     {
         long now=System.currentTimeMillis();
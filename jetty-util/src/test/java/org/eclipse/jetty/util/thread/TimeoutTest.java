@@ -35,7 +35,7 @@ public class TimeoutTest
     @Before
     public void setUp() throws Exception
     {
-        timeout=new Timeout(lock);
+        timeout=newTimeout(lock);
         tasks= new Timeout.Task[10]; 
         
         for (int i=0;i<tasks.length;i++)
@@ -47,6 +47,12 @@ public class TimeoutTest
         timeout.setNow(100);
     }
 
+    /* ------------------------------------------------------------ */
+    protected Timeout newTimeout(Object lock)
+    {
+        return new Timeout(lock);
+    }
+
     /* ------------------------------------------------------------ */
     @Test
     public void testExpiry()
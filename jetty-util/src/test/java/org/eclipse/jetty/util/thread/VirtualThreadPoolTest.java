@@ -0,0 +1,224 @@
+package org.eclipse.jetty.util.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.log.StdErrCapture;
+import org.eclipse.jetty.util.log.StdErrLog;
+import org.junit.Test;
+
+public class VirtualThreadPoolTest
+{
+    @Test
+    public void testVirtualThreadFactory() throws Exception
+    {
+        ThreadFactory factory = VirtualThreadPool.newVirtualThreadFactory("test-");
+        boolean supported=true;
+        try
+        {
+            Thread.class.getMethod("ofVirtual");
+        }
+        catch(NoSuchMethodException e)
+        {
+            supported=false;
+        }
+        if (!supported)
+            assertEquals(null,factory);
+
+        VirtualThreadPool tp = new VirtualThreadPool();
+        tp.start();
+        assertEquals(factory!=null,tp.isVirtual());
+        final CountDownLatch latch = new CountDownLatch(1);
+        tp.dispatch(new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10,TimeUnit.SECONDS));
+        tp.stop();
+    }
+
+    @Test
+    public void testFallback() throws Exception
+    {
+        VirtualThreadPool tp = new VirtualThreadPool(2);
+        tp.setUseVirtualThreads(false);
+        testConcurrencyLimit(tp);
+        assertFalse(tp.isVirtual());
+    }
+
+    @Test
+    public void testJobException() throws Exception
+    {
+        Logger log = Log.getLogger(VirtualThreadPool.class);
+        StdErrCapture capture = log instanceof StdErrLog?new StdErrCapture((StdErrLog)log):null;
+        VirtualThreadPool tp = new VirtualThreadPool(2);
+        try
+        {
+            tp.start();
+            final CountDownLatch thrown = new CountDownLatch(1);
+            assertTrue(tp.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    thrown.countDown();
+                    throw new IllegalStateException("testJobException");
+                }
+            }));
+            assertTrue(thrown.await(10,TimeUnit.SECONDS));
+            long end=System.currentTimeMillis()+10000;
+            while (tp.getRunningJobs()>0 && System.currentTimeMillis()<end)
+                Thread.sleep(10);
+            assertEquals(0,tp.getRunningJobs());
+            if (capture!=null)
+                capture.assertContains("testJobException");
+
+            // The pool still runs jobs
+            final CountDownLatch latch = new CountDownLatch(1);
+            assertTrue(tp.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    latch.countDown();
+                }
+            }));
+            assertTrue(latch.await(10,TimeUnit.SECONDS));
+        }
+        finally
+        {
+            tp.stop();
+            if (capture!=null)
+                ((StdErrLog)log).setStdErrStream(System.err);
+        }
+    }
+
+    @Test
+    public void testFallbackShrink() throws Exception
+    {
+        VirtualThreadPool tp = new VirtualThreadPool(12);
+        tp.setUseVirtualThreads(false);
+        tp.setMaxIdleTimeMs(100);
+        tp.start();
+
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i=0;i<12;i++)
+        {
+            assertTrue(tp.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        release.await(10,TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException e)
+                    {
+                    }
+                }
+            }));
+        }
+        // More threads than the minimum of the fallback are started
+        long end=System.currentTimeMillis()+10000;
+        while (tp.getThreads()<=8 && System.currentTimeMillis()<end)
+            Thread.sleep(10);
+        int threads=tp.getThreads();
+        assertTrue(threads>8);
+
+        // Idle platform threads are stopped
+        release.countDown();
+        end=System.currentTimeMillis()+10000;
+        while (tp.getThreads()>=threads && System.currentTimeMillis()<end)
+            Thread.sleep(10);
+        assertTrue(tp.getThreads()<threads);
+        tp.stop();
+    }
+
+    @Test
+    public void testThreadPerJob() throws Exception
+    {
+        // Platform threads stand in for virtual threads, which are not available on all runtimes
+        final AtomicInteger started = new AtomicInteger();
+        VirtualThreadPool tp = new VirtualThreadPool(2)
+        {
+            @Override
+            protected ThreadFactory newThreadFactory()
+            {
+                return new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        started.incrementAndGet();
+                        return new Thread(runnable);
+                    }
+                };
+            }
+        };
+        testConcurrencyLimit(tp);
+        assertEquals(4,started.get());
+    }
+
+    private void testConcurrencyLimit(VirtualThreadPool tp) throws Exception
+    {
+        tp.start();
+        assertFalse(tp.isLowOnThreads());
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int i=0;i<4;i++)
+        {
+            assertTrue(tp.dispatch(new Runnable()
+            {
+                public void run()
+                {
+                    int r=running.incrementAndGet();
+                    synchronized (maxRunning)
+                    {
+                        maxRunning.set(Math.max(r,maxRunning.get()));
+                    }
+                    try
+                    {
+                        release.await(10,TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException e)
+                    {
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }));
+        }
+
+        long end=System.currentTimeMillis()+10000;
+        while ((tp.getRunningJobs()<2 || tp.getQueueSize()<2) && System.currentTimeMillis()<end)
+            Thread.sleep(10);
+        assertEquals(2,tp.getRunningJobs());
+        assertEquals(2,tp.getQueueSize());
+        assertTrue(tp.isLowOnThreads());
+        assertTrue(tp.dump().contains(tp.getName()));
+
+        release.countDown();
+        assertTrue(done.await(10,TimeUnit.SECONDS));
+        assertEquals(2,maxRunning.get());
+
+        end=System.currentTimeMillis()+10000;
+        while (tp.getRunningJobs()>0 && System.currentTimeMillis()<end)
+            Thread.sleep(10);
+        assertEquals(0,tp.getQueueSize());
+        assertFalse(tp.isLowOnThreads());
+
+        tp.stop();
+        assertFalse(tp.dispatch(new Runnable(){public void run(){}}));
+    }
+}
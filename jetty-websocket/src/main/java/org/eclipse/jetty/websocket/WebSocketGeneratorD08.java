@@ -16,6 +16,7 @@ package org.eclipse.jetty.websocket;
 import java.io.IOException;
 
 import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
 
@@ -29,6 +30,8 @@ import org.eclipse.jetty.io.EofException;
  */
 public class WebSocketGeneratorD08 implements WebSocketGenerator
 {
+    private static final int GATHER_SIZE=512;
+
     final private WebSocketBuffers _buffers;
     final private EndPoint _endp;
     private Buffer _buffer;
@@ -133,35 +136,43 @@ public class WebSocketGeneratorD08 implements WebSocketGenerator
 
 
             // write payload
-            int remaining = payload;
-            while (remaining > 0)
+            if (!mask && payload>=GATHER_SIZE)
             {
-                _buffer.compact();
-                int chunk = remaining < _buffer.space() ? remaining : _buffer.space();
-
-                if (mask)
+                // Gather the payload with the buffered frame header rather than copying it
+                flushBuffer(new ByteArrayBuffer(content,offset,payload,Buffer.READONLY));
+            }
+            else
+            {
+                int remaining = payload;
+                while (remaining > 0)
                 {
-                    for (int i=0;i<chunk;i++)
-                        _buffer.put((byte)(content[offset+ (payload-remaining)+i]^_mask[+_m++%4]));
-                }
-                else
-                    _buffer.put(content, offset + (payload - remaining), chunk);
+                    _buffer.compact();
+                    int chunk = remaining < _buffer.space() ? remaining : _buffer.space();
 
-                remaining -= chunk;
-                if (_buffer.space() > 0)
-                {
-                    // Gently flush the data, issuing a non-blocking write
-                    flushBuffer();
-                }
-                else
-                {
-                    // Forcibly flush the data, issuing a blocking write
-                    flush();
-                    if (remaining == 0)
+                    if (mask)
+                    {
+                        for (int i=0;i<chunk;i++)
+                            _buffer.put((byte)(content[offset+ (payload-remaining)+i]^_mask[+_m++%4]));
+                    }
+                    else
+                        _buffer.put(content, offset + (payload - remaining), chunk);
+
+                    remaining -= chunk;
+                    if (_buffer.space() > 0)
                     {
                         // Gently flush the data, issuing a non-blocking write
                         flushBuffer();
                     }
+                    else
+                    {
+                        // Forcibly flush the data, issuing a blocking write
+                        flush();
+                        if (remaining == 0)
+                        {
+                            // Gently flush the data, issuing a non-blocking write
+                            flushBuffer();
+                        }
+                    }
                 }
             }
             offset+=payload;
@@ -188,6 +199,41 @@ public class WebSocketGeneratorD08 implements WebSocketGenerator
         return 0;
     }
 
+    /** Flush the buffer and a payload with a gathering write.
+     * Any of the payload that is not written is copied into the buffer, or
+     * if it does not fit, the flush blocks until the payload is written.
+     * @param payload The payload, which is not referenced after this call.
+     */
+    private void flushBuffer(Buffer payload) throws IOException
+    {
+        if (!_endp.isOpen())
+            throw new EofException();
+        _endp.flush(_buffer,payload);
+        _buffer.compact();
+        if (payload.length()<=_buffer.space())
+        {
+            _buffer.put(payload);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long end=now+_endp.getMaxIdleTime();
+        while (payload.length()>0)
+        {
+            if (!_endp.isBlocking() && !_endp.blockWritable(end-now))
+            {
+                now = System.currentTimeMillis();
+                if (now<end)
+                    continue;
+                throw new IOException("Write timeout");
+            }
+            if (!_endp.isOpen())
+                throw new EofException();
+            _endp.flush(_buffer,payload);
+        }
+        _buffer.compact();
+    }
+
     public synchronized int flush() throws IOException
     {
         if (_buffer==null)
@@ -115,6 +115,35 @@ public class WebSocketGeneratorD08Test
             assertEquals('0'+(i%10),0xff&_out.get());
     }
 
+    @Test
+    public void testGatheredPayload() throws Exception
+    {
+        _generator = new WebSocketGeneratorD08(_buffers, _endPoint,null);
+
+        byte[] b=new byte[1500];
+        for (int i=0;i<b.length;i++)
+            b[i]=(byte)('0'+(i%10));
+
+        _generator.addFrame((byte)0x8,(byte)0x4,b,0,b.length);
+        b[0]='x';
+        _generator.flush();
+
+        // Fragmented at the buffer capacity
+        assertEquals((byte)0x04,_out.get());
+        assertEquals((byte)126,_out.get());
+        assertEquals((byte)(1014>>8),_out.get());
+        assertEquals((byte)(1014&0xff),_out.get());
+        for (int i=0;i<1014;i++)
+            assertEquals('0'+(i%10),0xff&_out.get());
+        assertEquals((byte)0x80,_out.get());
+        assertEquals((byte)126,_out.get());
+        assertEquals((byte)(486>>8),_out.get());
+        assertEquals((byte)(486&0xff),_out.get());
+        for (int i=1014;i<b.length;i++)
+            assertEquals('0'+(i%10),0xff&_out.get());
+        assertEquals(0,_out.length());
+    }
+
     @Test
     public void testOneStringMasked() throws Exception
     {